@@ -0,0 +1,4 @@
+CREATE SCHEMA IF NOT EXISTS `{{database}}`;
+CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table2}}` (`id` int unsigned NOT NULL AUTO_INCREMENT,`category` varchar(50) NOT NULL,`name` varchar(500) NOT NULL,`modifiable` tinyint(1) NOT NULL DEFAULT '1',`type` enum('plain','object','number') NOT NULL DEFAULT 'plain',PRIMARY KEY (`id`),UNIQUE KEY `category` (`category`,`name`));
+CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table}}` (`lookup` bigint unsigned NOT NULL,`property_id` int unsigned NOT NULL,`property` blob,PRIMARY KEY (`lookup`,`property_id`),KEY `propertyid` (`property_id`),CONSTRAINT `propertyid` FOREIGN KEY (`property_id`) REFERENCES `{{database}}`.`{{table2}}` (`id`) ON DELETE CASCADE ON UPDATE CASCADE);
+CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table3}}` (`id` bigint unsigned NOT NULL AUTO_INCREMENT,`lookup` bigint unsigned NOT NULL,`property_id` int unsigned NOT NULL,`origin` char(36) NOT NULL,`changed` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,PRIMARY KEY (`id`),KEY `changed` (`changed`));
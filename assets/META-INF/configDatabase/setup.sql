@@ -1,3 +1,4 @@
 CREATE DATABASE IF NOT EXISTS {{database}};
 CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table2}}` (`id` int unsigned NOT NULL AUTO_INCREMENT,`category` varchar(50) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL,`name` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL,`modifiable` tinyint(1) NOT NULL DEFAULT '1',`type` enum('plain','object','number') CHARACTER SET utf8mb4 COLLATE utf8mb4_0900_ai_ci NOT NULL DEFAULT 'plain',PRIMARY KEY (`id`),UNIQUE KEY `category` (`category`,`name`)) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
-CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table}}` (`lookup` bigint unsigned NOT NULL,`property_id` int unsigned NOT NULL,`property` blob,PRIMARY KEY (`lookup`,`property_id`),KEY `propertyid` (`property_id`),CONSTRAINT `propertyid` FOREIGN KEY (`property_id`) REFERENCES `PropertyInfo` (`id`) ON DELETE CASCADE ON UPDATE CASCADE) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
\ No newline at end of file
+CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table}}` (`lookup` bigint unsigned NOT NULL,`property_id` int unsigned NOT NULL,`property` blob,PRIMARY KEY (`lookup`,`property_id`),KEY `propertyid` (`property_id`),CONSTRAINT `propertyid` FOREIGN KEY (`property_id`) REFERENCES `PropertyInfo` (`id`) ON DELETE CASCADE ON UPDATE CASCADE) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+CREATE TABLE IF NOT EXISTS `{{database}}`.`{{table3}}` (`id` bigint unsigned NOT NULL AUTO_INCREMENT,`lookup` bigint unsigned NOT NULL,`property_id` int unsigned NOT NULL,`origin` char(36) CHARACTER SET ascii NOT NULL,`changed` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,PRIMARY KEY (`id`),KEY `changed` (`changed`)) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
\ No newline at end of file
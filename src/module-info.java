@@ -30,6 +30,7 @@ module watamebot {
 	exports net.foxgenesis.executor;
 	exports net.foxgenesis.http;
 	exports net.foxgenesis.property;
+	exports net.foxgenesis.property.codec;
 	exports net.foxgenesis.property.lck;
 	exports net.foxgenesis.log;
 	exports net.foxgenesis.watame;
@@ -2,22 +2,65 @@ package net.foxgenesis.database;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import com.zaxxer.hikari.HikariConfig;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public abstract class AConnectionProvider implements AutoCloseable {
+	/**
+	 * Prefix of settings applying to the read replica
+	 */
+	private static final String REPLICA_PREFIX = "replica.";
+
+	/**
+	 * Prefix of settings applying to the concurrency limiter
+	 */
+	private static final String LIMITER_PREFIX = "limiter.";
 
 	protected final Logger logger;
 	protected final Properties properties;
 
 	private final String name;
 	private final String database;
+	private final String dialect;
+	private final int queryTimeout;
+	private final long slowQueryThreshold;
+
+	private JDBCExecutor executor;
+
+	/**
+	 * Settings of the concurrency limiter. {@code null} if it is disabled
+	 */
+	@Nullable
+	private final Properties limiterSettings;
+
+	private ConcurrencyLimiter limiter;
+
+	/**
+	 * Settings of the read replica overriding the primary settings. {@code null}
+	 * if no replica is configured
+	 */
+	@Nullable
+	private final Properties replica;
+
+	/**
+	 * Time in nanoseconds after a write during which reads are sent to the
+	 * primary
+	 */
+	private final long readYourWritesWindow;
+
+	private volatile long lastWrite;
 
 	public AConnectionProvider(@NotNull String name, @NotNull Properties properties) {
 		this.name = Objects.requireNonNull(name);
@@ -26,6 +69,7 @@ public abstract class AConnectionProvider implements AutoCloseable {
 
 		String type = properties.getProperty("databaseType", "mysql");
 		properties.remove("databaseType");
+		dialect = type.toLowerCase(Locale.ROOT);
 
 		String ip = properties.getProperty("ip", "localhost");
 		properties.remove("ip");
@@ -36,7 +80,41 @@ public abstract class AConnectionProvider implements AutoCloseable {
 		database = properties.getProperty("database", "WatameBot");
 		properties.remove("database");
 
-		properties.put("jdbcUrl", "jdbc:%s://%s:%s/%s".formatted(type, ip, port, database));
+		queryTimeout = Integer.parseInt(properties.getProperty("queryTimeout", "0"));
+		properties.remove("queryTimeout");
+
+		slowQueryThreshold = Long.parseLong(properties.getProperty("slowQueryThreshold", "0"));
+		properties.remove("slowQueryThreshold");
+
+		// Split off the limiter settings
+		Properties limiterSettings = new Properties();
+		for (String key : properties.stringPropertyNames())
+			if (key.startsWith(LIMITER_PREFIX))
+				limiterSettings.setProperty(key.substring(LIMITER_PREFIX.length()), (String) properties.remove(key));
+		this.limiterSettings = Boolean.parseBoolean(limiterSettings.getProperty("enabled", "true")) ? limiterSettings
+				: null;
+
+		// Split off the replica settings
+		Properties replica = new Properties();
+		for (String key : properties.stringPropertyNames())
+			if (key.startsWith(REPLICA_PREFIX))
+				replica.setProperty(key.substring(REPLICA_PREFIX.length()), (String) properties.remove(key));
+
+		readYourWritesWindow = TimeUnit.MILLISECONDS
+				.toNanos(Long.parseLong(replica.getProperty("readYourWritesWindow", "2000")));
+		replica.remove("readYourWritesWindow");
+		lastWrite = System.nanoTime() - readYourWritesWindow - 1;
+
+		String replicaIp = replica.getProperty("ip", "");
+		replica.remove("ip");
+		String replicaPort = replica.getProperty("port", port);
+		replica.remove("port");
+
+		if (!replicaIp.isBlank())
+			replica.putIfAbsent("jdbcUrl", "jdbc:%s://%s:%s/%s".formatted(type, replicaIp, replicaPort, database));
+		this.replica = replica.containsKey("jdbcUrl") ? replica : null;
+
+		properties.putIfAbsent("jdbcUrl", "jdbc:%s://%s:%s/%s".formatted(type, ip, port, database));
 
 		properties.put("poolName", name);
 	}
@@ -44,6 +122,80 @@ public abstract class AConnectionProvider implements AutoCloseable {
 	@NotNull
 	protected abstract Connection openConnection() throws SQLException;
 
+	/**
+	 * Open a connection for a read-only statement. Providers with a read replica
+	 * connect to the replica unless this process wrote to the primary within the
+	 * read-your-writes window.
+	 *
+	 * @return Returns the new {@link Connection}
+	 *
+	 * @throws SQLException Thrown if no connection could be opened
+	 *
+	 * @see #markWrite()
+	 */
+	@NotNull
+	protected Connection openReadConnection() throws SQLException {
+		return openConnection();
+	}
+
+	/**
+	 * Check if a read replica was configured.
+	 *
+	 * @return Returns {@code true} if {@code replica.ip} or
+	 *         {@code replica.jdbcUrl} is set
+	 */
+	public boolean hasReplica() {
+		return replica != null;
+	}
+
+	/**
+	 * Record that this process wrote to the primary. Reads are sent to the
+	 * primary for the read-your-writes window afterwards so they observe the
+	 * write even if the replica lags behind.
+	 */
+	public void markWrite() {
+		lastWrite = System.nanoTime();
+	}
+
+	/**
+	 * Get the time a replica may lag behind the primary.
+	 *
+	 * @return Returns the read-your-writes window in milliseconds
+	 */
+	public long getReadYourWritesWindow() {
+		return TimeUnit.NANOSECONDS.toMillis(readYourWritesWindow);
+	}
+
+	/**
+	 * Check if reads must go to the primary because this process wrote recently.
+	 *
+	 * @return Returns {@code true} if the last write is within the
+	 *         read-your-writes window
+	 */
+	protected boolean isWithinWriteWindow() {
+		return System.nanoTime() - lastWrite < readYourWritesWindow;
+	}
+
+	/**
+	 * Create the settings of the read replica pool. The primary settings are used
+	 * for everything the replica does not override.
+	 *
+	 * @return Returns the replica settings or {@code null} if no replica was
+	 *         configured
+	 */
+	@Nullable
+	protected Properties createReplicaProperties() {
+		if (replica == null)
+			return null;
+
+		Properties merged = new Properties();
+		merged.putAll(properties);
+		merged.putAll(replica);
+		merged.put("poolName", name + " Replica");
+		merged.put("readOnly", "true");
+		return merged;
+	}
+
 	@NotNull
 	protected <U> Optional<U> openAutoClosedConnection(@NotNull ConnectionConsumer<U> consumer) throws SQLException {
 		try (Connection conn = openConnection()) {
@@ -71,6 +223,113 @@ public abstract class AConnectionProvider implements AutoCloseable {
 		return database;
 	}
 
+	/**
+	 * Get the SQL dialect spoken by the databases of this provider. Databases
+	 * use statements and setup files of this dialect in place of their defaults
+	 * when they exist.
+	 *
+	 * @return Returns the lowercase {@code databaseType}
+	 */
+	@NotNull
+	public String getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * Get the default time in seconds a statement may run before it is cancelled.
+	 *
+	 * @return Returns the configured {@code queryTimeout} or {@code 0} for no
+	 *         limit
+	 */
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	/**
+	 * Get the time in milliseconds at which a statement is written to the slow
+	 * query log.
+	 *
+	 * @return Returns the configured {@code slowQueryThreshold} or {@code 0} if
+	 *         the log is disabled
+	 */
+	public long getSlowQueryThreshold() {
+		return slowQueryThreshold;
+	}
+
+	/**
+	 * Create the configuration of a connection pool. Pool metrics are published
+	 * through JMX.
+	 *
+	 * @param properties - pool settings
+	 *
+	 * @return Returns the created {@link HikariConfig}
+	 *
+	 * @see PoolMetrics
+	 */
+	@NotNull
+	protected static HikariConfig createPoolConfig(@NotNull Properties properties) {
+		HikariConfig config = new HikariConfig(properties);
+		config.setMetricsTrackerFactory(new PoolMetrics());
+		return config;
+	}
+
+	/**
+	 * Get the maximum amount of connections held by this provider.
+	 *
+	 * @return Returns the size of the connection pool
+	 */
+	public int getMaximumPoolSize() {
+		return Integer.parseInt(properties.getProperty("maximumPoolSize", "10"));
+	}
+
+	/**
+	 * Get the executor used to run blocking statements off of the caller's
+	 * thread. At most {@link #getMaximumPoolSize()} tasks run at once.
+	 *
+	 * @return Returns the JDBC executor of this provider
+	 */
+	@NotNull
+	public synchronized ExecutorService getExecutor() {
+		if (executor == null)
+			executor = new JDBCExecutor(name, Math.max(1, getMaximumPoolSize()));
+		return executor;
+	}
+
+	/**
+	 * Get the limiter admitting work before a connection is checked out. Its
+	 * limit never exceeds {@link #getMaximumPoolSize()}.
+	 *
+	 * @return Returns the concurrency limiter of this provider or {@code null} if
+	 *         {@code limiter.enabled} is {@code false}
+	 */
+	@Nullable
+	public synchronized ConcurrencyLimiter getLimiter() {
+		if (limiter == null && limiterSettings != null)
+			limiter = new ConcurrencyLimiter(getMaximumPoolSize(),
+					Double.parseDouble(limiterSettings.getProperty("backgroundShare", "0.5")),
+					Long.parseLong(limiterSettings.getProperty("maxWait", "30000")),
+					Long.parseLong(limiterSettings.getProperty("backgroundWait", "1000")));
+		return limiter;
+	}
+
+	/**
+	 * Stop accepting new tasks on the JDBC executor and wait for running tasks to
+	 * complete. Called before the connection pool is closed.
+	 */
+	protected synchronized void shutdownExecutor() {
+		if (executor == null)
+			return;
+
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				logger.warn("Timed out waiting for {} JDBC tasks to complete", executor.shutdownNow().size());
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@FunctionalInterface
 	public interface ConnectionConsumer<U> {
 		@SuppressWarnings("exports")
@@ -5,12 +5,24 @@ import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.foxgenesis.config.KVPFile;
+import net.foxgenesis.database.ConcurrencyLimiter.Permit;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
 import net.foxgenesis.util.resource.ModuleResource;
 
 import org.jetbrains.annotations.NotNull;
@@ -27,13 +39,21 @@ import net.dv8tion.jda.internal.utils.IOUtil;
  *
  */
 public abstract class AbstractDatabase implements AutoCloseable {
+	/**
+	 * Catalog entry listing the ids of read-only statements
+	 */
+	private static final String READ_ONLY_KEY = "@readonly";
 
 	private final HashMap<String, String> statements = new HashMap<>();
 
+	private final Set<String> readOnly = new HashSet<>();
+
 	private final ModuleResource operationsFile;
 
 	private final ModuleResource setupFile;
 
+	private final List<ModuleResource> migrations;
+
 	private final String name;
 
 	/**
@@ -44,6 +64,13 @@ public abstract class AbstractDatabase implements AutoCloseable {
 
 	private AConnectionProvider provider;
 
+	private DatabaseMetrics metrics;
+
+	/**
+	 * Set while the current thread must not read from a replica
+	 */
+	private final ThreadLocal<Boolean> readPrimary = ThreadLocal.withInitial(() -> false);
+
 	/**
 	 * NEED_JAVADOC
 	 *
@@ -53,9 +80,30 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	 */
 	public AbstractDatabase(@NotNull String name, @NotNull ModuleResource operationsFile,
 			@NotNull ModuleResource setupFile) {
+		this(name, operationsFile, setupFile, new ModuleResource[0]);
+	}
+
+	/**
+	 * Create a database with versioned schema migrations.
+	 * <p>
+	 * The {@code setupFile} is the first version of the schema. Every script in
+	 * {@code migrations} is the next version, so {@code migrations[0]} is version
+	 * 2. Each script is only run once per database. Scripts must not be modified
+	 * once released; add a new migration instead.
+	 * </p>
+	 *
+	 * @param name           - database name
+	 * @param operationsFile - statement catalog
+	 * @param setupFile      - initial schema script
+	 * @param migrations     - scripts applied after the {@code setupFile} in
+	 *                       order
+	 */
+	public AbstractDatabase(@NotNull String name, @NotNull ModuleResource operationsFile,
+			@NotNull ModuleResource setupFile, @NotNull ModuleResource... migrations) {
 		this.name = Objects.requireNonNull(name);
 		this.operationsFile = Objects.requireNonNull(operationsFile);
 		this.setupFile = Objects.requireNonNull(setupFile);
+		this.migrations = List.of(migrations);
 
 		logger = LoggerFactory.getLogger(name);
 	}
@@ -75,6 +123,21 @@ public abstract class AbstractDatabase implements AutoCloseable {
 				logger.error("Statement id {} is already registered!", id);
 		});
 
+		// Replace statements the provider's dialect does not understand
+		ModuleResource dialect = operationsFile.getVariant(provider.getDialect());
+		if (dialect.exists()) {
+			logger.debug("Using {} statements from {}", provider.getDialect(), dialect);
+			new KVPFile(dialect).forEach(statements::put);
+		}
+
+		// Statements that may be sent to a read replica
+		String tagged = statements.remove(READ_ONLY_KEY);
+		if (tagged != null)
+			for (String id : tagged.split(","))
+				if (!id.isBlank())
+					readOnly.add(id.strip());
+
+		metrics = new DatabaseMetrics(name, provider.getSlowQueryThreshold());
 		this.provider = provider;
 
 		onReady();
@@ -83,6 +146,8 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	synchronized final void unload() {
 		IOUtil.silentClose(this);
 		provider = null;
+		if (metrics != null)
+			metrics.close();
 	}
 
 	/**
@@ -106,6 +171,153 @@ public abstract class AbstractDatabase implements AutoCloseable {
 		throw new UnsupportedOperationException("Database has not been setup yet!");
 	}
 
+	/**
+	 * Open a connection for read-only statements. The connection may point to a
+	 * read replica and must not be used for writes.
+	 *
+	 * @return Returns the new {@link Connection}
+	 *
+	 * @throws SQLException Thrown if no connection could be opened
+	 *
+	 * @see AConnectionProvider#openReadConnection()
+	 */
+	protected Connection openReadConnection() throws SQLException {
+		AConnectionProvider provider = this.provider;
+		if (provider == null)
+			throw new UnsupportedOperationException("Database has not been setup yet!");
+		return readPrimary.get() ? provider.openConnection() : provider.openReadConnection();
+	}
+
+	/**
+	 * Send all read-only statements made by the current thread inside
+	 * {@code func} to the primary. Used for data known to be newer than the
+	 * replica.
+	 *
+	 * @param <U>  Result type
+	 * @param func - function reading from the database
+	 *
+	 * @return Returns the result of {@code func}
+	 *
+	 * @throws SQLException Thrown if {@code func} throws
+	 */
+	protected final <U> U readFromPrimary(SQLSupplier<U> func) throws SQLException {
+		boolean previous = readPrimary.get();
+		readPrimary.set(true);
+		try {
+			return func.get();
+		} finally {
+			readPrimary.set(previous);
+		}
+	}
+
+	/**
+	 * Get the time a read replica may lag behind the primary.
+	 *
+	 * @return Returns the read-your-writes window in milliseconds
+	 *
+	 * @see AConnectionProvider#getReadYourWritesWindow()
+	 */
+	protected final long getReadYourWritesWindow() {
+		AConnectionProvider provider = this.provider;
+		if (provider == null)
+			throw new UnsupportedOperationException("Database has not been setup yet!");
+		return provider.getReadYourWritesWindow();
+	}
+
+	/**
+	 * Run a statement on a connection once the provider's
+	 * {@link ConcurrencyLimiter} admits it. The time the connection is held is
+	 * fed back into the limit. Only failures that point at an overloaded database
+	 * shrink the limit.
+	 *
+	 * @param <U>  Result type
+	 * @param id   - statement id deciding which connection is opened
+	 * @param func - function using the connection
+	 *
+	 * @return Returns the result of {@code func}
+	 *
+	 * @throws SQLException Thrown if the work was shed or {@code func} throws
+	 *
+	 * @see ConcurrencyLimiter#isOverload(Throwable)
+	 */
+	protected final <U> U withConnection(String id, SQLFunction<Connection, U> func) throws SQLException {
+		Permit permit = acquirePermit(id);
+		boolean failed = false;
+		try (Connection c = isReadOnly(id) ? openReadConnection() : openConnection()) {
+			return func.apply(c);
+		} catch (SQLException | RuntimeException e) {
+			failed = ConcurrencyLimiter.isOverload(e);
+			throw e;
+		} finally {
+			if (permit != null)
+				permit.release(failed);
+			if (modifies(id))
+				markWrite();
+		}
+	}
+
+	/**
+	 * Check if a statement may modify data. Queries that are not tagged
+	 * read-only do not start the read-your-writes window.
+	 *
+	 * @param id - statement id
+	 *
+	 * @return Returns {@code false} if the statement is read-only or a
+	 *         {@code SELECT}
+	 */
+	final boolean modifies(String id) {
+		return !isReadOnly(id) && !getRawStatement(id).stripLeading().regionMatches(true, 0, "SELECT", 0, 6);
+	}
+
+	@Nullable
+	private Permit acquirePermit(@Nullable String id) throws SQLException {
+		AConnectionProvider provider = this.provider;
+		if (provider == null)
+			throw new UnsupportedOperationException("Database has not been setup yet!");
+
+		ConcurrencyLimiter limiter = provider.getLimiter();
+		return limiter != null ? limiter.acquire(id) : null;
+	}
+
+	/**
+	 * Time a statement prepared outside of the named statement methods, such as
+	 * one whose SQL was formatted from a catalog entry.
+	 *
+	 * @param <S>       Statement type
+	 * @param <U>       Result type
+	 * @param id        - statement id to record the execution under
+	 * @param statement - statement to execute
+	 * @param func      - function executing the statement
+	 *
+	 * @return Returns the result of {@code func}
+	 *
+	 * @throws SQLException Thrown if {@code func} throws
+	 */
+	protected final <S extends Statement, U> U timeStatement(String id, S statement, SQLFunction<S, U> func)
+			throws SQLException {
+		return metrics.time(id, statement, func);
+	}
+
+	/**
+	 * Get the metrics of this database's statements.
+	 *
+	 * @return Returns the statement metrics
+	 */
+	final DatabaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Start the read-your-writes window after a write.
+	 *
+	 * @see AConnectionProvider#markWrite()
+	 */
+	final void markWrite() {
+		AConnectionProvider provider = this.provider;
+		if (provider != null)
+			provider.markWrite();
+	}
+
 	/**
 	 * NEED_JAVADOC
 	 *
@@ -118,11 +330,14 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	protected void prepareStatement(String id, SQLConsumer<PreparedStatement> func, int... flags) throws SQLException {
 		validate(id);
 
-		try (Connection c = openConnection()) {
+		withConnection(id, c -> {
 			try (PreparedStatement statement = c.prepareStatement(getRawStatement(id), flags)) {
-				func.accept(statement);
+				return metrics.time(id, statement, s -> {
+					func.accept(s);
+					return null;
+				});
 			}
-		}
+		});
 	}
 
 	/**
@@ -136,11 +351,14 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	protected void prepareCallable(String id, SQLConsumer<CallableStatement> func) throws SQLException {
 		validate(id);
 
-		try (Connection c = openConnection()) {
+		withConnection(id, c -> {
 			try (CallableStatement statement = c.prepareCall(getRawStatement(id))) {
-				func.accept(statement);
+				return metrics.time(id, statement, s -> {
+					func.accept(s);
+					return null;
+				});
 			}
-		}
+		});
 	}
 
 	/**
@@ -161,11 +379,11 @@ public abstract class AbstractDatabase implements AutoCloseable {
 			throws SQLException {
 		validate(id);
 
-		try (Connection c = openConnection()) {
+		return Optional.ofNullable(withConnection(id, c -> {
 			try (PreparedStatement statement = c.prepareStatement(getRawStatement(id), flags)) {
-				return Optional.ofNullable(func.apply(statement));
+				return metrics.time(id, statement, func);
 			}
-		}
+		}));
 	}
 
 	/**
@@ -184,13 +402,228 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	protected <U> Optional<U> mapCallable(String id, SQLFunction<CallableStatement, U> func) throws SQLException {
 		validate(id);
 
-		try (Connection c = openConnection()) {
+		return Optional.ofNullable(withConnection(id, c -> {
 			try (CallableStatement statement = c.prepareCall(getRawStatement(id))) {
-				return Optional.ofNullable(func.apply(statement));
+				return metrics.time(id, statement, func);
 			}
+		}));
+	}
+
+	/**
+	 * Open a {@link DatabaseSession} holding one connection for several
+	 * statements. The session must be closed once done. It counts against the
+	 * provider's {@link ConcurrencyLimiter} until it is closed.
+	 *
+	 * @return Returns the opened {@link DatabaseSession}
+	 *
+	 * @throws SQLException Thrown if the work was shed or a connection could not
+	 *                      be opened
+	 */
+	@NotNull
+	protected DatabaseSession openSession() throws SQLException {
+		Permit permit = acquirePermit(null);
+		Connection connection = null;
+		try {
+			connection = openConnection();
+			return new DatabaseSession(this, connection, permit);
+		} catch (SQLException | RuntimeException e) {
+			if (connection != null)
+				connection.close();
+			if (permit != null)
+				permit.discard();
+			throw e;
 		}
 	}
 
+	/**
+	 * Run a unit of work in a single transaction. The transaction is committed if
+	 * {@code func} completes and rolled back if it throws.
+	 *
+	 * @param <U>  Result type
+	 * @param func - function to run inside the transaction
+	 *
+	 * @return Returns the result of {@code func}
+	 *
+	 * @throws SQLException Thrown if a statement failed or the transaction could
+	 *                      not be committed
+	 */
+	protected <U> U inTransaction(@NotNull SQLFunction<DatabaseSession, U> func) throws SQLException {
+		try (DatabaseSession session = openSession()) {
+			session.begin();
+			try {
+				U result = func.apply(session);
+				session.commit();
+				return result;
+			} catch (SQLException | RuntimeException e) {
+				if (session.inTransaction())
+					session.rollback();
+				throw e;
+			}
+		}
+	}
+
+	// =========================================================================================================
+	// Asynchronous
+
+	/**
+	 * Asynchronously run a statement on the provider's JDBC executor using the
+	 * provider's default query timeout.
+	 *
+	 * @param <U>   Result type
+	 * @param id    - statement id
+	 * @param func  - function to execute the statement
+	 * @param flags - flags to prepare the statement with
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes with the result
+	 *         of {@code func}. Cancelling it cancels the running statement
+	 *
+	 * @see #mapStatementAsync(String, SQLFunction, Duration, int...)
+	 */
+	@NotNull
+	protected <U> CompletableFuture<Optional<U>> mapStatementAsync(String id, SQLFunction<PreparedStatement, U> func,
+			int... flags) {
+		return mapStatementAsync(id, func, null, flags);
+	}
+
+	/**
+	 * Asynchronously run a statement on the provider's JDBC executor.
+	 *
+	 * @param <U>     Result type
+	 * @param id      - statement id
+	 * @param func    - function to execute the statement
+	 * @param timeout - time the statement may take or {@code null} for the
+	 *                provider's default
+	 * @param flags   - flags to prepare the statement with
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes with the result
+	 *         of {@code func}. Cancelling it cancels the running statement
+	 */
+	@NotNull
+	protected <U> CompletableFuture<Optional<U>> mapStatementAsync(String id, SQLFunction<PreparedStatement, U> func,
+			@Nullable Duration timeout, int... flags) {
+		validate(id);
+		return supplyAsync(session -> session.mapStatement(id, func, flags), timeout);
+	}
+
+	/**
+	 * Asynchronously run a statement on the provider's JDBC executor using the
+	 * provider's default query timeout.
+	 *
+	 * @param id    - statement id
+	 * @param func  - function to execute the statement
+	 * @param flags - flags to prepare the statement with
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes once the
+	 *         statement ran. Cancelling it cancels the running statement
+	 */
+	@NotNull
+	protected CompletableFuture<Void> prepareStatementAsync(String id, SQLConsumer<PreparedStatement> func,
+			int... flags) {
+		validate(id);
+		return supplyAsync(session -> {
+			session.prepareStatement(id, func, flags);
+			return null;
+		}, null);
+	}
+
+	/**
+	 * Asynchronously run a unit of work in a single transaction on the provider's
+	 * JDBC executor.
+	 *
+	 * @param <U>     Result type
+	 * @param func    - function to run inside the transaction
+	 * @param timeout - time each statement may take or {@code null} for the
+	 *                provider's default
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes with the result
+	 *         of {@code func}. Cancelling it cancels the running statement and
+	 *         rolls back the transaction
+	 *
+	 * @see #inTransaction(SQLFunction)
+	 */
+	@NotNull
+	protected <U> CompletableFuture<U> inTransactionAsync(SQLFunction<DatabaseSession, U> func,
+			@Nullable Duration timeout) {
+		return supplyAsync(session -> {
+			session.begin();
+			try {
+				U result = func.apply(session);
+				session.commit();
+				return result;
+			} catch (SQLException | RuntimeException e) {
+				if (session.inTransaction())
+					session.rollback();
+				throw e;
+			}
+		}, timeout);
+	}
+
+	/**
+	 * Asynchronously run a unit of work in a {@link DatabaseSession} on the
+	 * provider's JDBC executor.
+	 * <p>
+	 * The {@code timeout} is set as the query timeout of every statement and also
+	 * bounds the returned future, which includes the time spent waiting for a
+	 * free connection. The work keeps the {@link Priority} of the calling thread.
+	 * If the future is cancelled or times out before the work started, the work
+	 * is skipped. Otherwise the running statement is cancelled.
+	 * </p>
+	 *
+	 * @param <U>     Result type
+	 * @param func    - unit of work to run
+	 * @param timeout - time the work may take or {@code null} for the provider's
+	 *                default
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes with the result
+	 *         of {@code func}
+	 */
+	@NotNull
+	protected <U> CompletableFuture<U> supplyAsync(@NotNull SQLFunction<DatabaseSession, U> func,
+			@Nullable Duration timeout) {
+		AConnectionProvider provider = this.provider;
+		if (provider == null)
+			throw new UnsupportedOperationException("Database has not been setup yet!");
+
+		long millis = timeout != null ? timeout.toMillis() : provider.getQueryTimeout() * 1000L;
+		CompletableFuture<U> future = new CompletableFuture<>();
+		AtomicReference<DatabaseSession> running = new AtomicReference<>();
+
+		// Run with the priority of the caller
+		Future<?> task = provider.getExecutor().submit(ConcurrencyLimiter.withCurrentPriority(() -> {
+			if (future.isDone())
+				return;
+
+			try (DatabaseSession session = openSession()) {
+				if (millis > 0)
+					session.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999)));
+
+				running.set(session);
+				if (future.isDone())
+					session.cancel();
+				future.complete(func.apply(session));
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			} finally {
+				running.set(null);
+			}
+		}));
+
+		if (millis > 0)
+			future.orTimeout(millis, TimeUnit.MILLISECONDS);
+
+		future.whenComplete((result, error) -> {
+			if (error == null)
+				return;
+
+			// Stop work that is no longer wanted
+			task.cancel(false);
+			DatabaseSession session = running.get();
+			if (session != null)
+				session.cancel();
+		});
+		return future;
+	}
+
 	/**
 	 * NEED_JAVADOC
 	 *
@@ -203,6 +636,19 @@ public abstract class AbstractDatabase implements AutoCloseable {
 		return statements.containsKey(id);
 	}
 
+	/**
+	 * Check if a statement was tagged read-only in the statement catalog. Read-only
+	 * statements may be sent to a read replica.
+	 *
+	 * @param id - statement id
+	 *
+	 * @return Returns {@code true} if the statement is listed under
+	 *         {@value #READ_ONLY_KEY}
+	 */
+	protected final boolean isReadOnly(String id) {
+		return readOnly.contains(id);
+	}
+
 	/**
 	 * NEED_JAVADOC
 	 *
@@ -234,8 +680,22 @@ public abstract class AbstractDatabase implements AutoCloseable {
 			throw new UnsupportedOperationException("Database has not been setup yet!");
 	}
 
-	final String[] getSetupLines() throws IOException {
-		return setupFile.readAllLines();
+	/**
+	 * Read every schema migration of this database. Scripts of the specified
+	 * {@code dialect} are used when present.
+	 *
+	 * @param dialect - SQL dialect of the connection provider
+	 *
+	 * @return Returns all migrations ordered by version
+	 *
+	 * @throws IOException Thrown if a script could not be read
+	 */
+	final List<Migration> getMigrations(@NotNull String dialect) throws IOException {
+		List<Migration> list = new ArrayList<>(migrations.size() + 1);
+		list.add(Migration.read(1, setupFile, dialect));
+		for (int i = 0; i < migrations.size(); i++)
+			list.add(Migration.read(i + 2, migrations.get(i), dialect));
+		return list;
 	}
 
 	@NotNull
@@ -280,4 +740,16 @@ public abstract class AbstractDatabase implements AutoCloseable {
 	public interface SQLFunction<U, V> {
 		V apply(U u) throws SQLException;
 	}
+
+	/**
+	 * Supplier that may throw a {@link SQLException}.
+	 *
+	 * @author Ashley
+	 *
+	 * @param <U> Result type
+	 */
+	@FunctionalInterface
+	public interface SQLSupplier<U> {
+		U get() throws SQLException;
+	}
 }
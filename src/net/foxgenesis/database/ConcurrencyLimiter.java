@@ -0,0 +1,422 @@
+package net.foxgenesis.database;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Adaptive limit on the amount of database work in flight, applied before a
+ * connection is checked out of the pool.
+ * <p>
+ * The limit follows AIMD: it grows by one for every limit's worth of fast
+ * completions while it is in use and shrinks by {@link #BACKOFF} whenever work
+ * takes more than {@link #TOLERANCE} times the long term average of the same
+ * kind of work or fails because the database is overloaded.
+ * This keeps the amount of concurrent work near what the database can serve
+ * without queueing inside the pool.
+ * </p>
+ * <p>
+ * Work runs with the {@link Priority} of the calling thread. Waiting work is
+ * admitted in priority order. {@link Priority#BACKGROUND Background} work may
+ * only use part of the limit and is shed after a short wait so that
+ * {@link Priority#INTERACTIVE interactive} work keeps a low latency during
+ * bursts. Work handed to other threads keeps its priority when it is wrapped
+ * with {@link #withCurrentPriority(Runnable)}.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @see #withPriority(Priority)
+ */
+public final class ConcurrencyLimiter {
+	/**
+	 * Factor the limit is multiplied with when work is slow or fails
+	 */
+	private static final double BACKOFF = 0.9;
+
+	/**
+	 * Work slower than this multiple of the average latency is considered slow
+	 */
+	private static final double TOLERANCE = 2.0;
+
+	/**
+	 * Weight of a new sample in the long term average latency
+	 */
+	private static final double SMOOTHING = 0.05;
+
+	private static final ThreadLocal<Priority> priority = ThreadLocal.withInitial(() -> Priority.NORMAL);
+
+	/**
+	 * Importance of database work
+	 */
+	public enum Priority {
+		/**
+		 * Work a user is waiting on, such as command responses
+		 */
+		INTERACTIVE,
+		/**
+		 * Default priority
+		 */
+		NORMAL,
+		/**
+		 * Work nobody is waiting on, such as sweeps and migrations. Shed when the
+		 * database is busy
+		 */
+		BACKGROUND
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition[] waiting = new Condition[Priority.values().length];
+	private final int[] waiters = new int[Priority.values().length];
+
+	private final int maxLimit;
+	private final double backgroundShare;
+	private final long maxWait;
+	private final long backgroundWait;
+
+	private double limit;
+	private int inFlight;
+
+	/**
+	 * Long term average latency of every kind of work. Guarded by {@code lock}
+	 */
+	private final Map<String, Double> averageLatency = new HashMap<>();
+
+	private final LongAdder shed = new LongAdder();
+
+	/**
+	 * Create a new limiter.
+	 *
+	 * @param maxLimit        - highest limit. Usually the size of the pool
+	 * @param backgroundShare - part of the limit background work may use
+	 * @param maxWait         - time in milliseconds work waits to be admitted
+	 * @param backgroundWait  - time in milliseconds background work waits before
+	 *                        it is shed
+	 */
+	public ConcurrencyLimiter(int maxLimit, double backgroundShare, long maxWait, long backgroundWait) {
+		this.maxLimit = Math.max(1, maxLimit);
+		this.backgroundShare = Math.min(1, Math.max(0, backgroundShare));
+		this.maxWait = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWait));
+		this.backgroundWait = TimeUnit.MILLISECONDS.toNanos(Math.max(0, backgroundWait));
+		this.limit = this.maxLimit;
+
+		for (int i = 0; i < waiting.length; i++)
+			waiting[i] = lock.newCondition();
+	}
+
+	/**
+	 * Wait until work of the current thread's priority may run.
+	 *
+	 * @return Returns a permit that must be released once the work completed
+	 *
+	 * @throws SQLTransientConnectionException Thrown if the work was not admitted
+	 *                                         in time. An
+	 *                                         {@link OverloadedException} if it
+	 *                                         was shed
+	 *
+	 * @see #acquire(String)
+	 */
+	@NotNull
+	public Permit acquire() throws SQLTransientConnectionException {
+		return acquire(null);
+	}
+
+	/**
+	 * Wait until work of the current thread's priority may run. The latency of
+	 * the work is only compared with earlier work of the same kind.
+	 *
+	 * @param kind - kind of work, such as a statement id
+	 *
+	 * @return Returns a permit that must be released once the work completed
+	 *
+	 * @throws SQLTransientConnectionException Thrown if the work was not admitted
+	 *                                         in time. An
+	 *                                         {@link OverloadedException} if it
+	 *                                         was shed
+	 */
+	@NotNull
+	public Permit acquire(@Nullable String kind) throws SQLTransientConnectionException {
+		Priority p = priority.get();
+		long remaining = p == Priority.BACKGROUND ? backgroundWait : maxWait;
+
+		lock.lock();
+		try {
+			waiters[p.ordinal()]++;
+			try {
+				while (!admits(p)) {
+					if (remaining <= 0) {
+						shed.increment();
+						throw new OverloadedException(
+								"Database is overloaded (" + inFlight + "/" + getLimit() + " in flight)");
+					}
+					remaining = waiting[p.ordinal()].awaitNanos(remaining);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLTransientConnectionException("Interrupted while waiting for the database", e);
+			} finally {
+				waiters[p.ordinal()]--;
+			}
+
+			inFlight++;
+			return new Permit(kind != null ? kind : "", System.nanoTime());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the current limit.
+	 *
+	 * @return Returns the amount of work allowed in flight
+	 */
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the amount of work in flight.
+	 *
+	 * @return Returns the amount of admitted work that was not released yet
+	 */
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the amount of work that was not admitted in time.
+	 *
+	 * @return Returns the amount of shed work
+	 */
+	public long getShedCount() {
+		return shed.sum();
+	}
+
+	/**
+	 * Set the priority of database work made by the current thread until the
+	 * returned scope is closed.
+	 *
+	 * @param p - priority of the work
+	 *
+	 * @return Returns a scope restoring the previous priority when closed
+	 */
+	@NotNull
+	public static Scope withPriority(@NotNull Priority p) {
+		Priority previous = priority.get();
+		priority.set(p);
+		return () -> priority.set(previous);
+	}
+
+	/**
+	 * Run a task with a priority.
+	 *
+	 * @param p    - priority of the work
+	 * @param task - task to run
+	 */
+	public static void runWithPriority(@NotNull Priority p, @NotNull Runnable task) {
+		Priority previous = priority.get();
+		priority.set(p);
+		try {
+			task.run();
+		} finally {
+			priority.set(previous);
+		}
+	}
+
+	/**
+	 * Wrap a task so it runs with the priority of the current thread on whichever
+	 * thread runs it.
+	 *
+	 * @param task - task to wrap
+	 *
+	 * @return Returns a task running {@code task} with the current priority
+	 */
+	@NotNull
+	public static Runnable withCurrentPriority(@NotNull Runnable task) {
+		Priority p = priority.get();
+		return () -> runWithPriority(p, task);
+	}
+
+	/**
+	 * Wrap a supplier so it runs with the priority of the current thread on
+	 * whichever thread calls it.
+	 *
+	 * @param <T>      Result type
+	 * @param supplier - supplier to wrap
+	 *
+	 * @return Returns a supplier calling {@code supplier} with the current
+	 *         priority
+	 */
+	@NotNull
+	public static <T> Supplier<T> withCurrentPriority(@NotNull Supplier<T> supplier) {
+		Priority p = priority.get();
+		return () -> {
+			Priority previous = priority.get();
+			priority.set(p);
+			try {
+				return supplier.get();
+			} finally {
+				priority.set(previous);
+			}
+		};
+	}
+
+	/**
+	 * Decide if a failure of database work means the database is overloaded.
+	 * Only timeouts and connection failures do. Errors caused by the work itself,
+	 * such as constraint violations or syntax errors, do not.
+	 *
+	 * @param e - thrown exception
+	 *
+	 * @return Returns {@code true} if the failure should shrink the limit
+	 */
+	public static boolean isOverload(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause())
+			if (t instanceof SQLTransientException || t instanceof SQLRecoverableException)
+				return true;
+			else if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08"))
+				// Connection exception
+				return true;
+		return false;
+	}
+
+	/**
+	 * Get the priority of database work made by the current thread.
+	 *
+	 * @return Returns the current {@link Priority}
+	 */
+	@NotNull
+	public static Priority getPriority() {
+		return priority.get();
+	}
+
+	private boolean admits(Priority p) {
+		// Leave room for waiting work of a higher priority
+		for (int i = 0; i < p.ordinal(); i++)
+			if (waiters[i] > 0)
+				return false;
+
+		double allowed = p == Priority.BACKGROUND ? Math.max(1, limit * backgroundShare) : limit;
+		return inFlight < (int) allowed;
+	}
+
+	private void release(String kind, long latency, boolean failed) {
+		lock.lock();
+		try {
+			boolean saturated = inFlight >= (int) limit;
+			inFlight--;
+
+			if (latency >= 0) {
+				double average = averageLatency.getOrDefault(kind, (double) latency);
+
+				if (failed || latency > average * TOLERANCE)
+					limit = Math.max(1, limit * BACKOFF);
+				else if (saturated || hasWaiters())
+					limit = Math.min(maxLimit, limit + 1 / limit);
+
+				averageLatency.put(kind, average + (latency - average) * SMOOTHING);
+			}
+
+			// Wake the highest priority waiting work
+			for (int i = 0; i < waiting.length; i++)
+				if (waiters[i] > 0) {
+					waiting[i].signalAll();
+					break;
+				}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean hasWaiters() {
+		for (int count : waiters)
+			if (count > 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Admission of a single unit of work.
+	 *
+	 * @author Ashley
+	 */
+	public final class Permit {
+		private final String kind;
+		private final long start;
+		private boolean released;
+
+		private Permit(String kind, long start) {
+			this.kind = kind;
+			this.start = start;
+		}
+
+		/**
+		 * Release this permit and feed the work's latency into the limit.
+		 *
+		 * @param failed - if the work failed because the database is overloaded
+		 */
+		public void release(boolean failed) {
+			if (released)
+				return;
+			released = true;
+			ConcurrencyLimiter.this.release(kind, System.nanoTime() - start, failed);
+		}
+
+		/**
+		 * Release this permit without feeding its latency into the limit. Used for
+		 * work whose duration is not decided by the database, such as sessions.
+		 */
+		void discard() {
+			if (released)
+				return;
+			released = true;
+			ConcurrencyLimiter.this.release(kind, -1, false);
+		}
+	}
+
+	/**
+	 * Thrown when work was shed because the database is busy. The database itself
+	 * was not contacted, so this does not indicate that it is unreachable.
+	 *
+	 * @author Ashley
+	 */
+	public static class OverloadedException extends SQLTransientConnectionException {
+		private static final long serialVersionUID = -2311862440392641871L;
+
+		public OverloadedException(String reason) {
+			super(reason);
+		}
+	}
+
+	/**
+	 * Scope of a thread's {@link Priority}.
+	 *
+	 * @author Ashley
+	 */
+	@FunctionalInterface
+	public interface Scope extends AutoCloseable {
+		@Override
+		void close();
+	}
+}
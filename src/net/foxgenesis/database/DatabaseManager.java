@@ -1,10 +1,6 @@
 package net.foxgenesis.database;
 
 import java.io.IOException;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,7 +9,6 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ForkJoinPool;
 
 import net.foxgenesis.util.CompletableFutureUtils;
 import net.foxgenesis.util.MethodTimer;
@@ -47,6 +42,9 @@ public class DatabaseManager implements IDatabaseManager, AutoCloseable {
 	@Nullable
 	private AConnectionProvider provider;
 
+	@Nullable
+	private SchemaMigrator migrator;
+
 	private boolean ready = false;
 
 	/**
@@ -79,6 +77,11 @@ public class DatabaseManager implements IDatabaseManager, AutoCloseable {
 		}
 
 		if (wasAdded && ready && provider != null) {
+			try {
+				migrator.migrate(database);
+			} catch (CompletionException e) {
+				throw new IOException("Failed to migrate " + database.getName(), e.getCause());
+			}
 			database.setup(provider);
 			database.onReady();
 		}
@@ -119,44 +122,48 @@ public class DatabaseManager implements IDatabaseManager, AutoCloseable {
 		return databases.values().stream().anyMatch(set -> set.contains(database));
 	}
 
+	/**
+	 * Migrate and setup all registered databases in the background.
+	 *
+	 * @param provider - provider used to connect
+	 * @param executor - executor to run on or {@code null} to use the provider's
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes once every
+	 *         database is ready. It completes exceptionally without calling
+	 *         {@link AbstractDatabase#onReady()} if a schema could not be
+	 *         migrated
+	 */
 	public synchronized CompletableFuture<Void> start(@NotNull AConnectionProvider provider, Executor executor) {
-		final Executor ex = executor == null ? ForkJoinPool.commonPool() : executor;
+		final Executor ex = executor == null ? provider.getExecutor() : executor;
 		long start = System.nanoTime();
-		return CompletableFuture.runAsync(() -> {
+		return CompletableFuture.supplyAsync(() -> {
 			this.provider = Objects.requireNonNull(provider);
 			logger.info("Starting {} using provider {}", name, provider.getName());
 
-			logger.debug("Collecting database setup lines");
-			List<String> setupLines = collectDatabaseSetupLines();
-
-			synchronized (databases) {
-				provider.openAutoClosedConnection(connection -> {
-					try (Statement statement = connection.createStatement()) {
-						for (String line : setupLines)
-							try {
-								statement.execute(line);
-							} catch (SQLException e) {
-								logger.error("Error executing database setup line [" + line + "]", e);
-							}
-					}
-					return null;
-				}, error -> logger.error("Error while setting up database tables", error));
+			try {
+				migrator = new SchemaMigrator(provider);
+			} catch (IOException e) {
+				throw new CompletionException(e);
 			}
-		}, ex).thenComposeAsync(v -> {
+
 			synchronized (databases) {
-				return CompletableFutureUtils.allOf(databases.values().stream().flatMap(Set::stream)
-						.map(database -> CompletableFuture.runAsync(() -> {
-							try {
-								database.setup(provider);
-							} catch (IOException e) {
-								throw new CompletionException(e);
-							}
-						}, ex).exceptionally(e -> {
-							logger.error("Error while setting up " + database.getName(), e);
-							return null;
-						})));
+				return databases.values().stream().flatMap(Set::stream).toList();
 			}
-		}, ex).thenComposeAsync(v -> {
+		}, ex).thenComposeAsync(list -> CompletableFutureUtils.allOf(list.stream()
+				// Migrate and setup each database independently. A failed migration fails the startup
+				.map(database -> CompletableFuture.runAsync(() -> {
+					try {
+						migrator.migrate(database);
+					} catch (CompletionException e) {
+						logger.error("Failed to migrate " + database.getName(), e.getCause());
+						throw e;
+					}
+					try {
+						database.setup(provider);
+					} catch (IOException e) {
+						logger.error("Error while setting up " + database.getName(), e);
+					}
+				}, ex))), ex).thenComposeAsync(v -> {
 			logger.debug("Calling database on ready");
 			ready = true;
 			synchronized (databases) {
@@ -172,29 +179,32 @@ public class DatabaseManager implements IDatabaseManager, AutoCloseable {
 				MethodTimer.formatToSeconds(System.nanoTime() - start)));
 	}
 
-	public synchronized void start(@NotNull AConnectionProvider provider) {
+	/**
+	 * Migrate and setup all registered databases on the calling thread.
+	 *
+	 * @param provider - provider used to connect
+	 *
+	 * @throws IOException Thrown if a schema could not be migrated. No database is
+	 *                     set up in that case
+	 */
+	public synchronized void start(@NotNull AConnectionProvider provider) throws IOException {
 		long start = System.nanoTime();
 
 		this.provider = Objects.requireNonNull(provider);
 		logger.info("Starting {} using provider {}", name, provider.getName());
 
+		migrator = new SchemaMigrator(provider);
+
 		synchronized (databases) {
-			logger.debug("Collecting database setup lines");
-			List<String> setupLines = collectDatabaseSetupLines();
-
-			provider.openAutoClosedConnection(connection -> {
-				try (Statement statement = connection.createStatement()) {
-					for (String line : setupLines)
-						try {
-							statement.execute(line);
-						} catch (SQLException e) {
-							logger.error("Error executing database setup line [" + line + "]", e);
-						}
-				}
-				return null;
-			}, error -> logger.error("Error while setting up database tables", error));
+			// Bring all schemas up to date in parallel
+			List<AbstractDatabase> list = databases.values().stream().flatMap(Set::stream).toList();
+			try {
+				migrator.migrateAll(list, provider.getExecutor()).join();
+			} catch (CompletionException e) {
+				throw new IOException("Failed to migrate database schemas", e.getCause());
+			}
 
-			databases.values().stream().flatMap(Set::stream).map(database -> {
+			list.stream().map(database -> {
 				try {
 					database.setup(provider);
 					return database;
@@ -227,20 +237,4 @@ public class DatabaseManager implements IDatabaseManager, AutoCloseable {
 		if (provider != null)
 			provider.close();
 	}
-
-	private List<String> collectDatabaseSetupLines() {
-		List<String> lines = new ArrayList<>();
-
-		synchronized (databases) {
-			for (Set<AbstractDatabase> databases : this.databases.values())
-				for (AbstractDatabase database : databases)
-					try {
-						Collections.addAll(lines, database.getSetupLines());
-					} catch (IOException e) {
-						logger.error("Error while reading setup lines from " + database.getName(), e);
-					}
-		}
-
-		return lines;
-	}
 }
@@ -0,0 +1,183 @@
+package net.foxgenesis.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import net.foxgenesis.database.AbstractDatabase.SQLFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times the statement executions of an {@link AbstractDatabase}.
+ * <p>
+ * Every statement id gets its own latency histogram published through JMX as
+ * {@code net.foxgenesis.database:type=Statement,database=<name>,id=<id>}. Only
+ * the {@code execute} calls of a statement are timed, not the code binding its
+ * parameters or reading its results. Executions slower than the provider's
+ * {@code slowQueryThreshold} are logged by statement id. Bound parameters are
+ * never logged.
+ * </p>
+ * <p>
+ * Nothing is recorded once the metrics are closed, so no MBean outlives its
+ * database.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @see StatementStatsMXBean
+ */
+final class DatabaseMetrics implements AutoCloseable {
+	private static final Logger slowLogger = LoggerFactory.getLogger("Slow Query");
+
+	private final String database;
+	private final long slowThreshold;
+	private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * Only set while holding {@code this}
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * @param database        - name of the database
+	 * @param slowThresholdMs - executions at or above this many milliseconds
+	 *                        are logged. {@code 0} to disable
+	 */
+	DatabaseMetrics(String database, long slowThresholdMs) {
+		this.database = database;
+		this.slowThreshold = slowThresholdMs > 0 ? TimeUnit.MILLISECONDS.toNanos(slowThresholdMs) : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Run a function with a statement whose executions are timed.
+	 *
+	 * @param <S>       Statement type. One of {@link Statement},
+	 *                  {@link PreparedStatement} or {@link CallableStatement}
+	 * @param <U>       Result type
+	 * @param id        - statement id
+	 * @param statement - statement to execute
+	 * @param func      - function executing the statement
+	 *
+	 * @return Returns the result of {@code func}
+	 *
+	 * @throws SQLException Thrown if {@code func} throws
+	 */
+	@SuppressWarnings("unchecked")
+	<S extends Statement, U> U time(String id, S statement, SQLFunction<S, U> func) throws SQLException {
+		Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+				: statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+
+		return func.apply((S) Proxy.newProxyInstance(DatabaseMetrics.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> invoke(id, statement, method, args)));
+	}
+
+	private Object invoke(String id, Statement statement, Method method, Object[] args) throws Throwable {
+		boolean timed = method.getName().startsWith("execute");
+		long start = timed ? System.nanoTime() : 0;
+		boolean failed = true;
+		try {
+			Object result = method.invoke(statement, args);
+			failed = false;
+			return result;
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			if (timed)
+				record(id, System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * Record a timed execution.
+	 *
+	 * @param id     - statement id
+	 * @param nanos  - elapsed time in nanoseconds
+	 * @param failed - if the execution threw an exception
+	 */
+	private void record(String id, long nanos, boolean failed) {
+		Stats s = stats.get(id);
+		if (s == null) {
+			synchronized (this) {
+				if (closed)
+					return;
+				s = stats.computeIfAbsent(id, this::register);
+			}
+		}
+
+		s.latency.record(nanos);
+		if (failed)
+			s.errors.increment();
+
+		if (nanos >= slowThreshold)
+			slowLogger.warn("[{}] {} took {}ms{}", database, id, TimeUnit.NANOSECONDS.toMillis(nanos),
+					failed ? " and failed" : "");
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		stats.values().forEach(s -> PoolMetrics.unregister(s.name));
+		stats.clear();
+	}
+
+	private Stats register(String id) {
+		Stats s = new Stats();
+		s.name = PoolMetrics.register(
+				"type=Statement,database=" + ObjectName.quote(database) + ",id=" + ObjectName.quote(id), s);
+		return s;
+	}
+
+	private static final class Stats implements StatementStatsMXBean {
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+		private ObjectName name;
+
+		@Override
+		public long getCount() {
+			return latency.getCount();
+		}
+
+		@Override
+		public long getErrors() {
+			return errors.sum();
+		}
+
+		@Override
+		public double getMean() {
+			return latency.getMean();
+		}
+
+		@Override
+		public double getP50() {
+			return latency.getPercentile(0.5);
+		}
+
+		@Override
+		public double getP99() {
+			return latency.getPercentile(0.99);
+		}
+
+		@Override
+		public double getMax() {
+			return latency.getMax();
+		}
+
+		@Override
+		public void reset() {
+			latency.reset();
+			errors.reset();
+		}
+	}
+}
@@ -0,0 +1,467 @@
+package net.foxgenesis.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.foxgenesis.database.AbstractDatabase.SQLConsumer;
+import net.foxgenesis.database.AbstractDatabase.SQLFunction;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A unit of work holding a single connection of an {@link AbstractDatabase}
+ * across multiple statements.
+ * <p>
+ * Statements are prepared once per session and reused for every call with the
+ * same id. A session can group its statements in a transaction, collect
+ * batches of a statement and stream large results row by row. Closing the
+ * session rolls back any transaction that was not committed and returns the
+ * connection to the pool.
+ * </p>
+ * <p>
+ * Sessions are not thread safe and should be closed by the thread that opened
+ * them. Only {@link #cancel()} may be called from another thread.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @see AbstractDatabase#openSession()
+ * @see AbstractDatabase#inTransaction(SQLFunction)
+ */
+public class DatabaseSession implements AutoCloseable {
+	private final AbstractDatabase database;
+	private final Connection connection;
+	private final boolean autoCommit;
+
+	@Nullable
+	private final ConcurrencyLimiter.Permit permit;
+
+	private final Map<String, PreparedStatement> prepared = new ConcurrentHashMap<>();
+	private final Map<String, Integer> batches = new HashMap<>();
+
+	private boolean transaction;
+	private volatile boolean closed;
+	private volatile boolean cancelled;
+	private boolean wrote;
+	private int queryTimeout;
+
+	DatabaseSession(@NotNull AbstractDatabase database, @NotNull Connection connection,
+			@Nullable ConcurrencyLimiter.Permit permit) throws SQLException {
+		this.database = Objects.requireNonNull(database);
+		this.connection = Objects.requireNonNull(connection);
+		this.permit = permit;
+		this.autoCommit = connection.getAutoCommit();
+	}
+
+	// =========================================================================================================
+	// Transactions
+
+	/**
+	 * Start a transaction. Every statement executed until {@link #commit()} or
+	 * {@link #rollback()} is applied atomically.
+	 *
+	 * @throws SQLException          Thrown if auto commit could not be disabled
+	 * @throws IllegalStateException Thrown if a transaction is already active
+	 */
+	public void begin() throws SQLException {
+		ensureOpen();
+		if (transaction)
+			throw new IllegalStateException("Transaction is already active!");
+		connection.setAutoCommit(false);
+		transaction = true;
+	}
+
+	/**
+	 * Commit the active transaction.
+	 *
+	 * @throws SQLException          Thrown if the transaction could not be
+	 *                               committed
+	 * @throws IllegalStateException Thrown if no transaction is active
+	 */
+	public void commit() throws SQLException {
+		ensureTransaction();
+		connection.commit();
+		end();
+	}
+
+	/**
+	 * Discard every change of the active transaction.
+	 *
+	 * @throws SQLException          Thrown if the transaction could not be rolled
+	 *                               back
+	 * @throws IllegalStateException Thrown if no transaction is active
+	 */
+	public void rollback() throws SQLException {
+		ensureTransaction();
+		try {
+			connection.rollback();
+		} finally {
+			end();
+		}
+	}
+
+	/**
+	 * Check if this session has an active transaction.
+	 *
+	 * @return Returns {@code true} if a transaction was started and not yet
+	 *         committed or rolled back
+	 */
+	public boolean inTransaction() {
+		return transaction;
+	}
+
+	// =========================================================================================================
+	// Statements
+
+	/**
+	 * Set the time in seconds every statement of this session may run before the
+	 * driver cancels it.
+	 *
+	 * @param seconds - query timeout or {@code 0} for no limit
+	 *
+	 * @throws SQLException Thrown if the timeout could not be applied
+	 */
+	public void setQueryTimeout(int seconds) throws SQLException {
+		if (seconds < 0)
+			throw new IllegalArgumentException("seconds must not be negative");
+		queryTimeout = seconds;
+		for (PreparedStatement statement : prepared.values())
+			statement.setQueryTimeout(seconds);
+	}
+
+	/**
+	 * Cancel every statement of this session that is currently executing and
+	 * fail any further statement. Safe to call from any thread.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (PreparedStatement statement : prepared.values())
+			try {
+				statement.cancel();
+			} catch (SQLException e) {
+				// Statement finished or was closed in the meantime
+				database.logger.trace("Failed to cancel statement", e);
+			}
+	}
+
+	/**
+	 * Check if this session was {@link #cancel() cancelled}.
+	 *
+	 * @return Returns {@code true} if the session was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Run a statement of the database.
+	 *
+	 * @param id    - statement id
+	 * @param func  - function to execute the statement
+	 * @param flags - flags to prepare the statement with
+	 *
+	 * @throws SQLException Thrown if the statement failed
+	 */
+	public void prepareStatement(@NotNull String id, @NotNull SQLConsumer<PreparedStatement> func, int... flags)
+			throws SQLException {
+		database.getMetrics().time(id, statement(id, flags), s -> {
+			func.accept(s);
+			return null;
+		});
+	}
+
+	/**
+	 * Run a statement of the database and map its result.
+	 *
+	 * @param <U>   Result type
+	 * @param id    - statement id
+	 * @param func  - function to execute the statement
+	 * @param flags - flags to prepare the statement with
+	 *
+	 * @return Returns the result of {@code func} otherwise an empty
+	 *         {@link Optional}
+	 *
+	 * @throws SQLException Thrown if the statement failed
+	 */
+	@NotNull
+	public <U> Optional<U> mapStatement(@NotNull String id, @NotNull SQLFunction<PreparedStatement, U> func,
+			int... flags) throws SQLException {
+		return Optional.ofNullable(database.getMetrics().time(id, statement(id, flags), func));
+	}
+
+	// =========================================================================================================
+	// Batches
+
+	/**
+	 * Bind the parameters of a statement and add them to its batch. The batch is
+	 * sent once {@link #executeBatch(String)} is called.
+	 *
+	 * @param id     - statement id
+	 * @param binder - function setting the statement parameters
+	 *
+	 * @throws SQLException Thrown if the parameters could not be added
+	 */
+	public void addBatch(@NotNull String id, @NotNull SQLConsumer<PreparedStatement> binder) throws SQLException {
+		PreparedStatement statement = statement(id);
+		binder.accept(statement);
+		statement.addBatch();
+		batches.merge(id, 1, Integer::sum);
+	}
+
+	/**
+	 * Get the amount of parameter sets waiting in the batch of a statement.
+	 *
+	 * @param id - statement id
+	 *
+	 * @return Returns the size of the pending batch
+	 */
+	public int getBatchSize(@NotNull String id) {
+		return batches.getOrDefault(id, 0);
+	}
+
+	/**
+	 * Send the batch of a statement.
+	 *
+	 * @param id - statement id
+	 *
+	 * @return Returns the update counts of every batched parameter set. Empty if
+	 *         nothing was batched
+	 *
+	 * @throws SQLException Thrown if the batch failed
+	 */
+	@NotNull
+	public int[] executeBatch(@NotNull String id) throws SQLException {
+		if (batches.remove(id) == null)
+			return new int[0];
+		return database.getMetrics().time(id, statement(id), PreparedStatement::executeBatch);
+	}
+
+	// =========================================================================================================
+	// Streaming
+
+	/**
+	 * Stream the result of a query row by row instead of reading it into memory
+	 * at once.
+	 * <p>
+	 * The {@code fetchSize} is a hint for the amount of rows fetched from the
+	 * server per round trip. Drivers may ignore it unless configured for cursor
+	 * fetching (for MySQL {@code useCursorFetch=true}). The returned stream must
+	 * be closed before the statement is used again.
+	 * </p>
+	 *
+	 * @param <U>       Row type
+	 * @param id        - statement id
+	 * @param binder    - function setting the statement parameters
+	 * @param fetchSize - amount of rows to fetch at once or {@code 0} for the
+	 *                  driver default
+	 * @param mapper    - function reading the current row
+	 *
+	 * @return Returns a lazily populated {@link Stream} of mapped rows
+	 *
+	 * @throws SQLException Thrown if the query failed
+	 */
+	@NotNull
+	public <U> Stream<U> stream(@NotNull String id, @NotNull SQLConsumer<PreparedStatement> binder, int fetchSize,
+			@NotNull SQLFunction<ResultSet, U> mapper) throws SQLException {
+		PreparedStatement statement = statement(id);
+		binder.accept(statement);
+		statement.setFetchSize(fetchSize);
+
+		ResultSet result = database.getMetrics().time(id, statement, PreparedStatement::executeQuery);
+		result.setFetchSize(fetchSize);
+
+		Iterator<U> iterator = new Iterator<>() {
+			private boolean advanced;
+			private boolean hasNext;
+
+			@Override
+			public boolean hasNext() {
+				if (!advanced) {
+					try {
+						hasNext = result.next();
+					} catch (SQLException e) {
+						throw new DatabaseException(e);
+					}
+					advanced = true;
+				}
+				return hasNext;
+			}
+
+			@Override
+			public U next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				advanced = false;
+				try {
+					return mapper.apply(result);
+				} catch (SQLException e) {
+					throw new DatabaseException(e);
+				}
+			}
+		};
+
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> {
+					try {
+						result.close();
+					} catch (SQLException e) {
+						throw new DatabaseException(e);
+					}
+				});
+	}
+
+	/**
+	 * Iterate over the result of a query row by row.
+	 *
+	 * @param id        - statement id
+	 * @param binder    - function setting the statement parameters
+	 * @param fetchSize - amount of rows to fetch at once or {@code 0} for the
+	 *                  driver default
+	 * @param row       - function reading the current row
+	 *
+	 * @throws SQLException Thrown if the query failed
+	 *
+	 * @see #stream(String, SQLConsumer, int, SQLFunction)
+	 */
+	public void forEach(@NotNull String id, @NotNull SQLConsumer<PreparedStatement> binder, int fetchSize,
+			@NotNull SQLConsumer<ResultSet> row) throws SQLException {
+		PreparedStatement statement = statement(id);
+		binder.accept(statement);
+		statement.setFetchSize(fetchSize);
+
+		try (ResultSet result = database.getMetrics().time(id, statement, PreparedStatement::executeQuery)) {
+			result.setFetchSize(fetchSize);
+			while (result.next())
+				row.accept(result);
+		}
+	}
+
+	// =========================================================================================================
+
+	/**
+	 * Close every prepared statement and return the connection. An active
+	 * transaction is rolled back.
+	 *
+	 * @throws SQLException Thrown if the connection could not be cleaned up
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (closed)
+			return;
+		closed = true;
+
+		SQLException error = null;
+		try {
+			if (transaction) {
+				database.logger.warn("Rolling back uncommitted transaction");
+				connection.rollback();
+				end();
+			}
+		} catch (SQLException e) {
+			error = e;
+		}
+
+		for (PreparedStatement statement : prepared.values())
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				error = merge(error, e);
+			}
+		prepared.clear();
+		batches.clear();
+
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			error = merge(error, e);
+		}
+
+		if (permit != null)
+			permit.discard();
+
+		// Sessions always use the primary
+		if (wrote)
+			database.markWrite();
+
+		if (error != null)
+			throw error;
+	}
+
+	private PreparedStatement statement(String id, int... flags) throws SQLException {
+		ensureOpen();
+		if (cancelled)
+			throw new SQLException("Session was cancelled");
+		String key = flags.length == 0 ? id : id + Arrays.toString(flags);
+
+		if (!wrote && database.modifies(id))
+			wrote = true;
+
+		PreparedStatement statement = prepared.get(key);
+		if (statement == null) {
+			String raw = database.getRawStatement(id);
+			statement = flags.length == 0 ? connection.prepareStatement(raw) : connection.prepareStatement(raw, flags);
+			if (queryTimeout > 0)
+				statement.setQueryTimeout(queryTimeout);
+			prepared.put(key, statement);
+		}
+		return statement;
+	}
+
+	private void end() throws SQLException {
+		transaction = false;
+		connection.setAutoCommit(autoCommit);
+	}
+
+	private void ensureOpen() {
+		if (closed)
+			throw new IllegalStateException("Session is closed!");
+	}
+
+	private void ensureTransaction() {
+		ensureOpen();
+		if (!transaction)
+			throw new IllegalStateException("No transaction is active!");
+	}
+
+	private static SQLException merge(SQLException error, SQLException e) {
+		if (error == null)
+			return e;
+		error.addSuppressed(e);
+		return error;
+	}
+
+	/**
+	 * Unchecked wrapper for {@link SQLException SQLExceptions} thrown while
+	 * consuming a result {@link Stream}.
+	 *
+	 * @author Ashley
+	 */
+	public static class DatabaseException extends RuntimeException {
+		private static final long serialVersionUID = 5093721054219783413L;
+
+		public DatabaseException(SQLException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized SQLException getCause() {
+			return (SQLException) super.getCause();
+		}
+	}
+}
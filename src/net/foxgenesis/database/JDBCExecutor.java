@@ -0,0 +1,111 @@
+package net.foxgenesis.database;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import net.foxgenesis.executor.BoundedExecutor;
+import net.foxgenesis.executor.PrefixedThreadFactory;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor dedicated to blocking JDBC calls of a connection pool.
+ * <p>
+ * Virtual threads are used when the runtime supports them. A task only runs
+ * once one of {@code permits} slots is free so no more statements are in
+ * flight than the pool has connections. On runtimes without virtual threads a
+ * fixed pool of {@code permits} platform threads is used instead.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class JDBCExecutor extends AbstractExecutorService {
+	private static final Logger logger = LoggerFactory.getLogger(JDBCExecutor.class);
+
+	private final ExecutorService delegate;
+
+	/**
+	 * Limits concurrent tasks when running on virtual threads. {@code null} for
+	 * platform threads
+	 */
+	private final Semaphore permits;
+
+	JDBCExecutor(@NotNull String name, int permits) {
+		if (permits < 1)
+			throw new IllegalArgumentException("permits must be at least 1");
+
+		ExecutorService virtual = BoundedExecutor.newVirtualThreadExecutor();
+		if (virtual != null) {
+			logger.debug("Running {} JDBC tasks on virtual threads with {} permits", name, permits);
+			this.delegate = virtual;
+			this.permits = new Semaphore(permits, true);
+		} else {
+			logger.debug("Running {} JDBC tasks on {} platform threads", name, permits);
+			this.delegate = Executors.newFixedThreadPool(permits, new PrefixedThreadFactory(name + " JDBC"));
+			this.permits = null;
+		}
+	}
+
+	@Override
+	public void execute(@NotNull Runnable command) {
+		if (permits == null) {
+			delegate.execute(command);
+			return;
+		}
+
+		delegate.execute(() -> {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			try {
+				command.run();
+			} finally {
+				permits.release();
+			}
+		});
+	}
+
+	/**
+	 * Check if tasks run on virtual threads.
+	 *
+	 * @return Returns {@code true} if virtual threads are used
+	 */
+	boolean isVirtual() {
+		return permits != null;
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@NotNull
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+}
@@ -0,0 +1,120 @@
+package net.foxgenesis.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies in microseconds.
+ * <p>
+ * Values below 16&micro;s get their own bucket. Every power of two above is
+ * split into eight buckets so reported percentiles are at most 12.5% above the
+ * recorded value.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class LatencyHistogram {
+	private static final int LINEAR = 16;
+	private static final int SUB_BUCKETS = 8;
+	private static final int SUB_BITS = 3;
+	private static final int FIRST_EXPONENT = 4;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(
+			LINEAR + (Long.SIZE - FIRST_EXPONENT) * SUB_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param nanos - elapsed time in nanoseconds
+	 */
+	void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		buckets.incrementAndGet(index(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulateAndGet(micros, Math::max);
+	}
+
+	/**
+	 * Get the amount of recorded latencies.
+	 *
+	 * @return Returns the sample count
+	 */
+	long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Get the highest recorded latency.
+	 *
+	 * @return Returns the maximum in milliseconds
+	 */
+	double getMax() {
+		return max.get() / 1000D;
+	}
+
+	/**
+	 * Get the average recorded latency.
+	 *
+	 * @return Returns the mean in milliseconds
+	 */
+	double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : sum.sum() / 1000D / n;
+	}
+
+	/**
+	 * Estimate a percentile of the recorded latencies.
+	 *
+	 * @param percentile - percentile between {@code 0} and {@code 1}
+	 *
+	 * @return Returns the upper bound of the bucket holding the percentile in
+	 *         milliseconds
+	 */
+	double getPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[buckets.length()];
+		for (int i = 0; i < snapshot.length; i++)
+			total += snapshot[i] = buckets.get(i);
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++)
+			if ((seen += snapshot[i]) >= rank)
+				return Math.min(upperBound(i), max.get()) / 1000D;
+		return getMax();
+	}
+
+	/**
+	 * Clear all recorded latencies.
+	 */
+	void reset() {
+		for (int i = 0; i < buckets.length(); i++)
+			buckets.set(i, 0);
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	private static int index(long micros) {
+		if (micros < LINEAR)
+			return (int) micros;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < LINEAR)
+			return index;
+		int exponent = (index - LINEAR) / SUB_BUCKETS + FIRST_EXPONENT;
+		int sub = (index - LINEAR) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,54 @@
+package net.foxgenesis.database;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import net.foxgenesis.util.resource.ModuleResource;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single version of a database schema.
+ *
+ * @param version     - schema version created by this migration
+ * @param description - name of the migration script
+ * @param statements  - SQL statements to execute. One per script line
+ * @param checksum    - checksum of the statements used to detect modified
+ *                    scripts
+ *
+ * @author Ashley
+ */
+record Migration(int version, String description, String[] statements, long checksum) {
+
+	/**
+	 * Read a migration script. Blank lines and lines starting with {@code --} or
+	 * {@code #} are ignored.
+	 *
+	 * @param version  - schema version created by the script
+	 * @param resource - script to read
+	 * @param dialect  - SQL dialect to prefer
+	 *
+	 * @return Returns the read {@link Migration}
+	 *
+	 * @throws IOException Thrown if the script could not be read
+	 */
+	static Migration read(int version, @NotNull ModuleResource resource, @NotNull String dialect)
+			throws IOException {
+		ModuleResource variant = resource.getVariant(dialect);
+		if (variant.exists())
+			resource = variant;
+
+		String[] statements = Arrays.stream(resource.readAllLines()).map(String::strip)
+				.filter(line -> !line.isEmpty() && !line.startsWith("--") && !line.startsWith("#"))
+				.toArray(String[]::new);
+
+		CRC32 crc = new CRC32();
+		for (String statement : statements)
+			crc.update((statement + '\n').getBytes(StandardCharsets.UTF_8));
+
+		String path = resource.getResourcePath();
+		return new Migration(version, path.substring(path.lastIndexOf('/') + 1), statements, crc.getValue());
+	}
+}
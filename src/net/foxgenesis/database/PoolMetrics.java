@@ -0,0 +1,147 @@
+package net.foxgenesis.database;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.foxgenesis.util.MBeanUtils;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Collects metrics of Hikari connection pools and publishes them through JMX
+ * as {@code net.foxgenesis.database:type=Pool,name=<pool name>}.
+ *
+ * @author Ashley
+ *
+ * @see PoolStatsMXBean
+ */
+public final class PoolMetrics implements MetricsTrackerFactory {
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		Tracker tracker = new Tracker(poolStats);
+		tracker.name = register("type=Pool,name=" + ObjectName.quote(poolName), tracker);
+		return tracker;
+	}
+
+	/**
+	 * Register a bean with the platform {@link MBeanServer}, replacing a
+	 * previously registered bean with the same name.
+	 *
+	 * @param properties - key properties of the bean name
+	 * @param bean       - bean to register
+	 *
+	 * @return Returns the registered name or {@code null} if registration failed
+	 */
+	static ObjectName register(String properties, Object bean) {
+		return MBeanUtils.register("net.foxgenesis.database:" + properties, bean);
+	}
+
+	/**
+	 * Remove a bean from the platform {@link MBeanServer}.
+	 *
+	 * @param name - name returned by {@link #register(String, Object)}
+	 */
+	static void unregister(ObjectName name) {
+		MBeanUtils.unregister(name);
+	}
+
+	private static final class Tracker implements IMetricsTracker, PoolStatsMXBean {
+		private final PoolStats stats;
+		private final LatencyHistogram acquire = new LatencyHistogram();
+		private final LatencyHistogram usage = new LatencyHistogram();
+		private final LongAdder timeouts = new LongAdder();
+
+		private ObjectName name;
+
+		Tracker(PoolStats stats) {
+			this.stats = stats;
+		}
+
+		@Override
+		public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+			acquire.record(elapsedAcquiredNanos);
+		}
+
+		@Override
+		public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+			usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+		}
+
+		@Override
+		public void recordConnectionTimeout() {
+			timeouts.increment();
+		}
+
+		@Override
+		public void close() {
+			unregister(name);
+		}
+
+		@Override
+		public int getActiveConnections() {
+			return stats.getActiveConnections();
+		}
+
+		@Override
+		public int getIdleConnections() {
+			return stats.getIdleConnections();
+		}
+
+		@Override
+		public int getTotalConnections() {
+			return stats.getTotalConnections();
+		}
+
+		@Override
+		public int getPendingThreads() {
+			return stats.getPendingThreads();
+		}
+
+		@Override
+		public int getMaxConnections() {
+			return stats.getMaxConnections();
+		}
+
+		@Override
+		public long getAcquireCount() {
+			return acquire.getCount();
+		}
+
+		@Override
+		public double getAcquireP50() {
+			return acquire.getPercentile(0.5);
+		}
+
+		@Override
+		public double getAcquireP99() {
+			return acquire.getPercentile(0.99);
+		}
+
+		@Override
+		public double getAcquireMax() {
+			return acquire.getMax();
+		}
+
+		@Override
+		public double getUsageP99() {
+			return usage.getPercentile(0.99);
+		}
+
+		@Override
+		public long getTimeouts() {
+			return timeouts.sum();
+		}
+
+		@Override
+		public void reset() {
+			acquire.reset();
+			usage.reset();
+			timeouts.reset();
+		}
+	}
+}
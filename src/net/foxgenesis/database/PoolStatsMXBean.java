@@ -0,0 +1,69 @@
+package net.foxgenesis.database;
+
+/**
+ * JMX view of a connection pool. Times are in milliseconds.
+ *
+ * @author Ashley
+ */
+public interface PoolStatsMXBean {
+	/**
+	 * @return Returns the amount of connections in use
+	 */
+	int getActiveConnections();
+
+	/**
+	 * @return Returns the amount of connections waiting to be used
+	 */
+	int getIdleConnections();
+
+	/**
+	 * @return Returns the amount of open connections
+	 */
+	int getTotalConnections();
+
+	/**
+	 * @return Returns the amount of threads waiting for a connection
+	 */
+	int getPendingThreads();
+
+	/**
+	 * @return Returns the maximum size of the pool
+	 */
+	int getMaxConnections();
+
+	/**
+	 * @return Returns the amount of handed out connections
+	 */
+	long getAcquireCount();
+
+	/**
+	 * @return Returns the median time spent waiting for a connection
+	 */
+	double getAcquireP50();
+
+	/**
+	 * @return Returns the 99th percentile time spent waiting for a connection
+	 */
+	double getAcquireP99();
+
+	/**
+	 * @return Returns the longest time spent waiting for a connection
+	 */
+	double getAcquireMax();
+
+	/**
+	 * @return Returns the 99th percentile time a connection was held
+	 */
+	double getUsageP99();
+
+	/**
+	 * @return Returns the amount of requests that timed out waiting for a
+	 *         connection
+	 */
+	long getTimeouts();
+
+	/**
+	 * Clear all recorded times.
+	 */
+	void reset();
+}
@@ -0,0 +1,306 @@
+package net.foxgenesis.database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import net.foxgenesis.config.KVPFile;
+import net.foxgenesis.util.CompletableFutureUtils;
+import net.foxgenesis.util.resource.FormattedModuleResource;
+import net.foxgenesis.util.resource.ModuleResource;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the schema {@link Migration Migrations} of {@link AbstractDatabase
+ * AbstractDatabases}.
+ * <p>
+ * The applied versions of every database are recorded in a schema version
+ * table together with the checksum of their script. Only versions newer than
+ * the recorded ones are applied, so nothing is executed once a schema is
+ * current. Databases are migrated in parallel with each other while the
+ * versions of a single database are applied in order.
+ * </p>
+ * <p>
+ * A version is only recorded once all of its statements succeed. Each version
+ * runs in a transaction together with its record, so a failed version is
+ * rolled back where the dialect supports it. Schema changes commit implicitly
+ * in MySQL and H2 and are not rolled back. A script that was modified after it
+ * was applied is reported but not applied again.
+ * </p>
+ * <p>
+ * Pending versions are applied while holding a named database lock, and the
+ * applied versions are read again once it is held. Instances starting at the
+ * same time therefore apply every version only once. Dialects without named
+ * locks, such as an embedded H2 database only one process can open, skip the
+ * lock.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class SchemaMigrator {
+	private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+	/**
+	 * Name of the table holding applied schema versions
+	 */
+	public static final String TABLE = "SchemaVersion";
+
+	/**
+	 * Time in seconds to wait for another instance to finish migrating
+	 */
+	private static final int LOCK_TIMEOUT = 60;
+
+	/**
+	 * Longest lock name supported by MySQL
+	 */
+	private static final int MAX_LOCK_NAME = 64;
+
+	private final AConnectionProvider provider;
+	private final Map<String, String> statements = new HashMap<>();
+
+	/**
+	 * Applied versions by database name. Filled once the version table is read
+	 */
+	private volatile Map<String, Map<Integer, Long>> applied;
+
+	/**
+	 * Create a migrator for the databases of a connection provider.
+	 *
+	 * @param provider - provider used to connect
+	 *
+	 * @throws IOException Thrown if the migration statements could not be read
+	 */
+	public SchemaMigrator(@NotNull AConnectionProvider provider) throws IOException {
+		this.provider = Objects.requireNonNull(provider);
+
+		ModuleResource catalog = new FormattedModuleResource(SchemaMigrator.class.getModule(),
+				"/META-INF/migrations/statements.kvp", Map.of("database", provider.getDatabase(), "table", TABLE));
+		new KVPFile(catalog).forEach(statements::put);
+
+		ModuleResource dialect = catalog.getVariant(provider.getDialect());
+		if (dialect.exists())
+			new KVPFile(dialect).forEach(statements::put);
+	}
+
+	/**
+	 * Migrate multiple databases in parallel.
+	 *
+	 * @param databases - databases to migrate
+	 * @param executor  - executor to run migrations on
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes once every
+	 *         database was migrated. It completes exceptionally if any migration
+	 *         failed. Failed migrations are logged
+	 */
+	@NotNull
+	public CompletableFuture<Void> migrateAll(@NotNull Collection<AbstractDatabase> databases,
+			@NotNull Executor executor) {
+		return CompletableFutureUtils.allOf(databases.stream()
+				.map(database -> CompletableFuture.runAsync(() -> migrate(database), executor).whenComplete((v, e) -> {
+					if (e != null)
+						logger.error("Failed to migrate " + database.getName(), e);
+				})));
+	}
+
+	/**
+	 * Apply every pending migration of a database.
+	 *
+	 * @param database - database to migrate
+	 *
+	 * @return Returns the amount of applied versions
+	 *
+	 * @throws CompletionException Thrown if a migration failed
+	 */
+	public int migrate(@NotNull AbstractDatabase database) {
+		String name = database.getName();
+		try {
+			List<Migration> migrations = database.getMigrations(provider.getDialect());
+			Map<Integer, Long> versions = getAppliedVersions().getOrDefault(name, Map.of());
+			int count = 0;
+
+			if (!versions.keySet().containsAll(migrations.stream().map(Migration::version).toList()))
+				count = applyPending(name, migrations);
+
+			for (Migration migration : migrations) {
+				Long checksum = versions.get(migration.version());
+				if (checksum != null && checksum != migration.checksum())
+					logger.warn("Version {} of {} ({}) was modified after it was applied", migration.version(),
+							name, migration.description());
+			}
+
+			if (count > 0)
+				logger.info("Applied {} migrations to {}", count, name);
+			else
+				logger.debug("Schema of {} is up to date", name);
+			return count;
+		} catch (IOException | SQLException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * Apply the versions of a database that are not recorded yet while holding
+	 * its migration lock.
+	 *
+	 * @param name       - database name
+	 * @param migrations - all versions of the database
+	 *
+	 * @return Returns the amount of applied versions
+	 *
+	 * @throws SQLException Thrown if the lock could not be taken or a version
+	 *                      failed
+	 */
+	private int applyPending(String name, List<Migration> migrations) throws SQLException {
+		try (Connection c = provider.openConnection()) {
+			String lock = TABLE + ":" + name;
+			if (lock.length() > MAX_LOCK_NAME)
+				lock = lock.substring(0, MAX_LOCK_NAME);
+
+			lock(c, lock);
+			try {
+				// Another instance may have applied versions while we waited
+				Map<Integer, Long> versions = readAppliedVersions(c, name);
+				int count = 0;
+
+				for (Migration migration : migrations)
+					if (!versions.containsKey(migration.version())) {
+						apply(c, name, migration);
+						count++;
+					}
+				return count;
+			} finally {
+				unlock(c, lock);
+			}
+		}
+	}
+
+	private void apply(Connection c, String name, Migration migration) throws SQLException {
+		logger.info("Migrating {} to version {} ({})", name, migration.version(), migration.description());
+
+		c.setAutoCommit(false);
+		try {
+			try (Statement statement = c.createStatement()) {
+				for (String line : migration.statements())
+					try {
+						statement.execute(line);
+					} catch (SQLException e) {
+						throw new SQLException("Failed to execute [" + line + "]", e);
+					}
+			}
+
+			try (PreparedStatement statement = c.prepareStatement(statements.get("version_insert"))) {
+				statement.setString(1, name);
+				statement.setInt(2, migration.version());
+				statement.setLong(3, migration.checksum());
+				statement.setString(4, migration.description());
+				statement.executeUpdate();
+			}
+			c.commit();
+		} catch (SQLException e) {
+			c.rollback();
+			throw e;
+		} finally {
+			c.setAutoCommit(true);
+		}
+		applied.computeIfAbsent(name, n -> new ConcurrentHashMap<>()).put(migration.version(), migration.checksum());
+	}
+
+	/**
+	 * Read the applied versions of a single database.
+	 *
+	 * @param c    - connection to read with
+	 * @param name - database name
+	 *
+	 * @return Returns the applied versions with their checksums
+	 *
+	 * @throws SQLException Thrown if the version table could not be read
+	 */
+	private Map<Integer, Long> readAppliedVersions(Connection c, String name) throws SQLException {
+		Map<Integer, Long> versions = new HashMap<>();
+		try (PreparedStatement statement = c.prepareStatement(statements.get("version_read_database"))) {
+			statement.setString(1, name);
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next())
+					versions.put(result.getInt("version"), result.getLong("checksum"));
+			}
+		}
+		return versions;
+	}
+
+	/**
+	 * Take a named lock held by the connection's session.
+	 *
+	 * @param c    - connection to lock with
+	 * @param lock - lock name
+	 *
+	 * @throws SQLException Thrown if the lock was not taken in time
+	 */
+	private void lock(Connection c, String lock) throws SQLException {
+		String sql = statements.getOrDefault("lock_acquire", "");
+		if (sql.isBlank())
+			return;
+
+		try (PreparedStatement statement = c.prepareStatement(sql)) {
+			statement.setString(1, lock);
+			statement.setInt(2, LOCK_TIMEOUT);
+			try (ResultSet result = statement.executeQuery()) {
+				if (!result.next() || result.getInt(1) != 1)
+					throw new SQLTransientException("Timed out waiting for migration lock " + lock);
+			}
+		}
+	}
+
+	private void unlock(Connection c, String lock) throws SQLException {
+		String sql = statements.getOrDefault("lock_release", "");
+		if (sql.isBlank())
+			return;
+
+		try (PreparedStatement statement = c.prepareStatement(sql)) {
+			statement.setString(1, lock);
+			statement.execute();
+		}
+	}
+
+	/**
+	 * Create the version table if needed and read all applied versions once.
+	 *
+	 * @return Returns the applied versions by database name
+	 *
+	 * @throws SQLException Thrown if the version table could not be read
+	 */
+	private synchronized Map<String, Map<Integer, Long>> getAppliedVersions() throws SQLException {
+		if (applied != null)
+			return applied;
+
+		Map<String, Map<Integer, Long>> map = new ConcurrentHashMap<>();
+		try (Connection c = provider.openConnection()) {
+			try (Statement statement = c.createStatement()) {
+				for (String id : List.of("schema_create", "version_create"))
+					statement.execute(statements.get(id));
+
+				try (ResultSet result = statement.executeQuery(statements.get("version_read"))) {
+					while (result.next())
+						map.computeIfAbsent(result.getString("name"), n -> new ConcurrentHashMap<>())
+								.put(result.getInt("version"), result.getLong("checksum"));
+				}
+			}
+		}
+		return applied = map;
+	}
+}
@@ -0,0 +1,45 @@
+package net.foxgenesis.database;
+
+/**
+ * JMX view of the executions of a single named statement. Latencies are in
+ * milliseconds and measured from execution start until the statement's result
+ * was consumed.
+ *
+ * @author Ashley
+ */
+public interface StatementStatsMXBean {
+	/**
+	 * @return Returns the amount of executions
+	 */
+	long getCount();
+
+	/**
+	 * @return Returns the amount of executions that threw an exception
+	 */
+	long getErrors();
+
+	/**
+	 * @return Returns the average latency
+	 */
+	double getMean();
+
+	/**
+	 * @return Returns the median latency
+	 */
+	double getP50();
+
+	/**
+	 * @return Returns the 99th percentile latency
+	 */
+	double getP99();
+
+	/**
+	 * @return Returns the highest latency
+	 */
+	double getMax();
+
+	/**
+	 * Clear all recorded executions.
+	 */
+	void reset();
+}
@@ -0,0 +1,63 @@
+package net.foxgenesis.database.providers;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import net.foxgenesis.database.AConnectionProvider;
+
+/**
+ * Connection provider for an embedded H2 database running in MySQL
+ * compatibility mode. No database server is needed.
+ * <p>
+ * The database is kept in memory unless a {@code path} is set, in which case
+ * it is stored in files at that location. Databases use statements of the
+ * {@code h2} dialect where MySQL syntax is not supported.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class H2ConnectionProvider extends AConnectionProvider {
+	/**
+	 * Settings enabling MySQL compatibility
+	 */
+	private static final String MODE = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;IGNORECASE=TRUE";
+
+	private final HikariDataSource source;
+
+	public H2ConnectionProvider(Properties properties) {
+		super("H2", prepare(properties));
+		source = new HikariDataSource(createPoolConfig(properties));
+	}
+
+	@Override
+	protected Connection openConnection() throws SQLException {
+		return source.getConnection();
+	}
+
+	@Override
+	public int getMaximumPoolSize() {
+		return source.getMaximumPoolSize();
+	}
+
+	@Override
+	public void close() {
+		shutdownExecutor();
+		logger.info("Shutting down connection pool");
+		source.close();
+	}
+
+	private static Properties prepare(Properties properties) {
+		String database = properties.getProperty("database", "WatameBot");
+		String path = (String) properties.remove("path");
+
+		// Keep in memory databases alive until the pool is closed
+		String target = path == null || path.isBlank() ? "mem:" + database + ";DB_CLOSE_DELAY=-1" : path;
+
+		properties.setProperty("databaseType", "h2");
+		properties.putIfAbsent("jdbcUrl", "jdbc:h2:" + target + MODE);
+		return properties;
+	}
+}
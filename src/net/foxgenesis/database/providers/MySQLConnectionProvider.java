@@ -4,15 +4,19 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Properties;
 
-import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import net.foxgenesis.database.AConnectionProvider;
 
+import org.jetbrains.annotations.Nullable;
+
 public class MySQLConnectionProvider extends AConnectionProvider {
 
 	private final HikariDataSource source;
 
+	@Nullable
+	private final HikariDataSource replica;
+
 	public MySQLConnectionProvider(Properties properties) {
 		super("MySQL", properties);
 
@@ -27,7 +31,10 @@ public class MySQLConnectionProvider extends AConnectionProvider {
 		properties.putIfAbsent("dataSource.elideSetAutoCommits", false);
 		properties.putIfAbsent("dataSource.maintainTimeStats", true);
 
-		source = new HikariDataSource(new HikariConfig(properties));
+		source = new HikariDataSource(createPoolConfig(properties));
+
+		Properties replicaProperties = createReplicaProperties();
+		replica = replicaProperties != null ? new HikariDataSource(createPoolConfig(replicaProperties)) : null;
 	}
 
 	@Override
@@ -35,9 +42,30 @@ public class MySQLConnectionProvider extends AConnectionProvider {
 		return source.getConnection();
 	}
 
+	@Override
+	protected Connection openReadConnection() throws SQLException {
+		if (replica == null || isWithinWriteWindow())
+			return source.getConnection();
+
+		try {
+			return replica.getConnection();
+		} catch (SQLException e) {
+			logger.warn("Replica unavailable, reading from primary", e);
+			return source.getConnection();
+		}
+	}
+
+	@Override
+	public int getMaximumPoolSize() {
+		return source.getMaximumPoolSize();
+	}
+
 	@Override
 	public void close() throws Exception {
+		shutdownExecutor();
 		logger.info("Shutting down connection pool");
+		if (replica != null)
+			replica.close();
 		source.close();
 	}
 }
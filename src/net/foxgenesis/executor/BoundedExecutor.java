@@ -0,0 +1,250 @@
+package net.foxgenesis.executor;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import net.foxgenesis.util.MBeanUtils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor running at most {@code threads} tasks at once with room for
+ * {@code queue} waiting tasks. Tasks submitted while the queue is full are
+ * rejected with a {@link RejectedExecutionException}.
+ * <p>
+ * Virtual threads are used when the runtime supports them. Otherwise a fixed
+ * pool of {@code threads} platform threads is used. Statistics are published
+ * through JMX as {@code net.foxgenesis.executor:type=Executor,name=<name>}.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @see ExecutorStatsMXBean
+ */
+public final class BoundedExecutor extends AbstractExecutorService implements ExecutorStatsMXBean, AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+	private final String name;
+	private final int threads;
+	private final int queue;
+
+	private final ExecutorService delegate;
+
+	/**
+	 * Limits concurrent tasks when running on virtual threads. {@code null} for
+	 * platform threads
+	 */
+	@Nullable
+	private final Semaphore permits;
+
+	/**
+	 * Tasks that were accepted but did not finish yet
+	 */
+	private final AtomicInteger outstanding = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	@Nullable
+	private final ObjectName bean;
+
+	/**
+	 * Create a new bounded executor.
+	 *
+	 * @param name    - name used for threads and the JMX bean
+	 * @param threads - amount of tasks that may run at once
+	 * @param queue   - amount of tasks that may wait for a free thread
+	 */
+	public BoundedExecutor(@NotNull String name, int threads, int queue) {
+		this.name = Objects.requireNonNull(name);
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+		if (queue < 0)
+			throw new IllegalArgumentException("queue must not be negative");
+		this.threads = threads;
+		this.queue = queue;
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		if (virtual != null) {
+			this.delegate = virtual;
+			this.permits = new Semaphore(threads, true);
+		} else {
+			this.delegate = Executors.newFixedThreadPool(threads, new PrefixedThreadFactory(name));
+			this.permits = null;
+		}
+		logger.debug("Created {} executor with {} {} threads and a queue of {}", name, threads,
+				virtual != null ? "virtual" : "platform", queue);
+
+		bean = MBeanUtils.register("net.foxgenesis.executor:type=Executor,name=" + ObjectName.quote(name), this);
+	}
+
+	@Override
+	public void execute(@NotNull Runnable command) {
+		Objects.requireNonNull(command);
+		if (delegate.isShutdown())
+			reject("is shut down");
+
+		if (outstanding.incrementAndGet() > threads + queue) {
+			outstanding.decrementAndGet();
+			reject("is full (" + threads + " running, " + queue + " queued)");
+		}
+
+		try {
+			delegate.execute(() -> {
+				try {
+					if (permits != null)
+						permits.acquire();
+				} catch (InterruptedException e) {
+					outstanding.decrementAndGet();
+					Thread.currentThread().interrupt();
+					return;
+				}
+
+				active.incrementAndGet();
+				try {
+					command.run();
+				} finally {
+					active.decrementAndGet();
+					if (permits != null)
+						permits.release();
+					outstanding.decrementAndGet();
+					completed.increment();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			outstanding.decrementAndGet();
+			rejected.increment();
+			throw e;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@NotNull
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Stop accepting tasks, wait up to ten seconds for running tasks to finish and
+	 * interrupt the rest. The JMX bean is removed afterwards.
+	 */
+	@Override
+	public void close() {
+		delegate.shutdown();
+		try {
+			if (!delegate.awaitTermination(10, TimeUnit.SECONDS))
+				logger.warn("Timed out waiting for {} tasks of {} to complete", delegate.shutdownNow().size(), name);
+		} catch (InterruptedException e) {
+			delegate.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		MBeanUtils.unregister(bean);
+	}
+
+	/**
+	 * Get the name of this executor.
+	 *
+	 * @return Returns the name used for threads and the JMX bean
+	 */
+	@NotNull
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int getMaxThreads() {
+		return threads;
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return queue;
+	}
+
+	@Override
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	@Override
+	public int getQueuedCount() {
+		return Math.max(0, outstanding.get() - active.get());
+	}
+
+	@Override
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return permits != null;
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedExecutor [name=" + name + ", threads=" + threads + ", queue=" + queue + "]";
+	}
+
+	private void reject(String reason) {
+		rejected.increment();
+		throw new RejectedExecutionException(name + " executor " + reason);
+	}
+
+	/**
+	 * Create a virtual thread per task executor if the runtime supports it. Looked
+	 * up reflectively as the module is compiled for a release without virtual
+	 * threads.
+	 *
+	 * @return Returns the created executor or {@code null} if virtual threads are
+	 *         unavailable
+	 */
+	@Nullable
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package net.foxgenesis.executor;
+
+/**
+ * JMX view of a {@link BoundedExecutor}.
+ *
+ * @author Ashley
+ */
+public interface ExecutorStatsMXBean {
+	/**
+	 * @return Returns the amount of tasks that may run at once
+	 */
+	int getMaxThreads();
+
+	/**
+	 * @return Returns the amount of tasks that may wait for a free thread
+	 */
+	int getQueueCapacity();
+
+	/**
+	 * @return Returns the amount of running tasks
+	 */
+	int getActiveCount();
+
+	/**
+	 * @return Returns the amount of tasks waiting for a free thread
+	 */
+	int getQueuedCount();
+
+	/**
+	 * @return Returns the amount of finished tasks
+	 */
+	long getCompletedCount();
+
+	/**
+	 * @return Returns the amount of tasks rejected because the queue was full
+	 */
+	long getRejectedCount();
+
+	/**
+	 * @return Returns {@code true} if tasks run on virtual threads
+	 */
+	boolean isVirtual();
+}
@@ -5,7 +5,8 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 
-import org.apache.commons.lang3.SerializationUtils;
+import net.foxgenesis.property.codec.PropertyCodecs;
+
 import org.jetbrains.annotations.NotNull;
 
 public interface Property<L, M extends PropertyMapping> extends ImmutableProperty<L, M> {
@@ -133,6 +134,6 @@ public interface Property<L, M extends PropertyMapping> extends ImmutablePropert
 		}
 
 		// JAVA OBJECTS
-		return SerializationUtils.serialize(obj);
+		return PropertyCodecs.encode(obj);
 	}
 }
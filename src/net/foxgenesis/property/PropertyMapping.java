@@ -4,7 +4,7 @@ import java.util.Arrays;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 
-import org.apache.commons.lang3.SerializationUtils;
+import net.foxgenesis.property.codec.PropertyCodecs;
 
 /**
  * Interface defining method of parsing a property value into a usable data
@@ -206,6 +206,6 @@ public interface PropertyMapping {
 	}
 
 	static <U> U parse(Class<U> returnType, byte[] data) throws PropertyException {
-		return returnType.cast(SerializationUtils.deserialize(data));
+		return returnType.cast(PropertyCodecs.decode(data));
 	}
 }
@@ -0,0 +1,501 @@
+package net.foxgenesis.property.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compact versioned binary {@link PropertyCodec}.
+ * <p>
+ * Supported values are {@code null}, boxed primitives, strings, primitive
+ * arrays, arrays of supported values and records registered with
+ * {@link #registerRecord(String, Class)}. Every value is written as a one byte
+ * tag followed by its data. Integers, longs and lengths use variable length
+ * zig-zag encoding.
+ * </p>
+ * <p>
+ * Data starts with the bytes {@code 'W' 'B'} followed by the format version.
+ * Data written by a newer format version is rejected.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class BinaryPropertyCodec implements PropertyCodec {
+	private static final byte MAGIC_0 = 'W';
+	private static final byte MAGIC_1 = 'B';
+
+	/**
+	 * Current format version
+	 */
+	public static final byte VERSION = 1;
+
+	// Tags
+	private static final byte NULL = 0;
+	private static final byte FALSE = 1;
+	private static final byte TRUE = 2;
+	private static final byte BYTE = 3;
+	private static final byte SHORT = 4;
+	private static final byte CHAR = 5;
+	private static final byte INT = 6;
+	private static final byte LONG = 7;
+	private static final byte FLOAT = 8;
+	private static final byte DOUBLE = 9;
+	private static final byte STRING = 10;
+	private static final byte BYTE_ARRAY = 11;
+	private static final byte BOOLEAN_ARRAY = 12;
+	private static final byte SHORT_ARRAY = 13;
+	private static final byte CHAR_ARRAY = 14;
+	private static final byte INT_ARRAY = 15;
+	private static final byte LONG_ARRAY = 16;
+	private static final byte FLOAT_ARRAY = 17;
+	private static final byte DOUBLE_ARRAY = 18;
+	private static final byte STRING_ARRAY = 19;
+	private static final byte OBJECT_ARRAY = 20;
+	private static final byte RECORD = 21;
+
+	// Component types of object arrays
+	private static final Map<String, Class<?>> BUILT_IN = Map.of("Object", Object.class, "String", String.class,
+			"Boolean", Boolean.class, "Byte", Byte.class, "Short", Short.class, "Character", Character.class,
+			"Integer", Integer.class, "Long", Long.class, "Float", Float.class, "Double", Double.class);
+
+	private final Map<String, RecordType> recordsByName = new ConcurrentHashMap<>();
+	private final Map<Class<?>, RecordType> recordsByClass = new ConcurrentHashMap<>();
+
+	/**
+	 * Register a record type so it can be stored with this codec. The record
+	 * must be public and its package must be exported or opened to this module.
+	 * <p>
+	 * The {@code name} is stored with every value and must not change once data
+	 * was written. Adding, removing or reordering components makes existing data
+	 * unreadable.
+	 * </p>
+	 *
+	 * @param <R>  record type
+	 * @param name - unique name of the record type
+	 * @param type - record class
+	 *
+	 * @throws IllegalArgumentException Thrown if the name or class is already
+	 *                                  registered
+	 */
+	public <R extends Record> void registerRecord(@NotNull String name, @NotNull Class<R> type) {
+		Objects.requireNonNull(name);
+		if (BUILT_IN.containsKey(name))
+			throw new IllegalArgumentException("Name " + name + " is reserved");
+
+		RecordComponent[] components = type.getRecordComponents();
+		Class<?>[] types = new Class<?>[components.length];
+		Method[] accessors = new Method[components.length];
+		for (int i = 0; i < components.length; i++) {
+			types[i] = components[i].getType();
+			accessors[i] = components[i].getAccessor();
+		}
+
+		try {
+			RecordType record = new RecordType(name, type, type.getDeclaredConstructor(types), accessors);
+			if (recordsByName.putIfAbsent(name, record) != null)
+				throw new IllegalArgumentException("Record name " + name + " is already registered");
+			if (recordsByClass.putIfAbsent(type, record) != null) {
+				recordsByName.remove(name, record);
+				throw new IllegalArgumentException(type + " is already registered");
+			}
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Failed to find canonical constructor of " + type, e);
+		}
+	}
+
+	@Override
+	public boolean canEncode(Object obj) {
+		if (obj == null)
+			return true;
+
+		Class<?> type = obj.getClass();
+		if (type != Object.class && type.getPackageName().equals("java.lang")
+				&& BUILT_IN.containsKey(type.getSimpleName()))
+			return true;
+		if (type.isArray()) {
+			Class<?> component = type.getComponentType();
+			if (component.isPrimitive())
+				return true;
+			if (componentName(component) == null)
+				return false;
+			for (int i = 0, length = Array.getLength(obj); i < length; i++)
+				if (!canEncode(Array.get(obj, i)))
+					return false;
+			return true;
+		}
+
+		RecordType record = recordsByClass.get(type);
+		if (record == null)
+			return false;
+		for (Method accessor : record.accessors)
+			if (!canEncode(record.get(accessor, obj)))
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean canDecode(byte[] data) {
+		return data.length >= 3 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+	}
+
+	@Override
+	public byte[] encode(Object obj) throws PropertyException {
+		Writer out = new Writer();
+		out.write(MAGIC_0);
+		out.write(MAGIC_1);
+		out.write(VERSION);
+		write(out, obj);
+		return out.toByteArray();
+	}
+
+	@Override
+	public Object decode(byte[] data) throws PropertyException {
+		if (!canDecode(data))
+			throw new PropertyException("Data is not in binary property format");
+		if (data[2] > VERSION || data[2] < 1)
+			throw new PropertyException("Unsupported binary property version " + data[2]);
+
+		Reader in = new Reader(data, 3);
+		try {
+			Object value = read(in);
+			if (in.position != data.length)
+				throw new PropertyException("Unexpected data after value");
+			return value;
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new PropertyException("Truncated binary property", e);
+		} catch (ArrayStoreException e) {
+			throw new PropertyException("Array element does not match the array type", e);
+		}
+	}
+
+	private void write(Writer out, Object obj) {
+		if (obj == null) {
+			out.write(NULL);
+		} else if (obj instanceof Boolean b) {
+			out.write(b ? TRUE : FALSE);
+		} else if (obj instanceof Byte b) {
+			out.write(BYTE);
+			out.write(b);
+		} else if (obj instanceof Short s) {
+			out.write(SHORT);
+			out.writeVarLong(s);
+		} else if (obj instanceof Character c) {
+			out.write(CHAR);
+			out.writeVarLong(c);
+		} else if (obj instanceof Integer i) {
+			out.write(INT);
+			out.writeVarLong(i);
+		} else if (obj instanceof Long l) {
+			out.write(LONG);
+			out.writeVarLong(l);
+		} else if (obj instanceof Float f) {
+			out.write(FLOAT);
+			out.writeInt(Float.floatToRawIntBits(f));
+		} else if (obj instanceof Double d) {
+			out.write(DOUBLE);
+			out.writeLong(Double.doubleToRawLongBits(d));
+		} else if (obj instanceof String s) {
+			out.write(STRING);
+			out.writeString(s);
+		} else if (obj instanceof byte[] a) {
+			out.write(BYTE_ARRAY);
+			out.writeLength(a.length);
+			out.write(a, 0, a.length);
+		} else if (obj instanceof boolean[] a) {
+			out.write(BOOLEAN_ARRAY);
+			out.writeLength(a.length);
+			for (boolean b : a)
+				out.write(b ? 1 : 0);
+		} else if (obj instanceof short[] a) {
+			out.write(SHORT_ARRAY);
+			out.writeLength(a.length);
+			for (short s : a)
+				out.writeVarLong(s);
+		} else if (obj instanceof char[] a) {
+			out.write(CHAR_ARRAY);
+			out.writeString(new String(a));
+		} else if (obj instanceof int[] a) {
+			out.write(INT_ARRAY);
+			out.writeLength(a.length);
+			for (int i : a)
+				out.writeVarLong(i);
+		} else if (obj instanceof long[] a) {
+			out.write(LONG_ARRAY);
+			out.writeLength(a.length);
+			for (long l : a)
+				out.writeVarLong(l);
+		} else if (obj instanceof float[] a) {
+			out.write(FLOAT_ARRAY);
+			out.writeLength(a.length);
+			for (float f : a)
+				out.writeInt(Float.floatToRawIntBits(f));
+		} else if (obj instanceof double[] a) {
+			out.write(DOUBLE_ARRAY);
+			out.writeLength(a.length);
+			for (double d : a)
+				out.writeLong(Double.doubleToRawLongBits(d));
+		} else if (obj instanceof String[] a) {
+			out.write(STRING_ARRAY);
+			out.writeLength(a.length);
+			for (String s : a) {
+				// Length is shifted to make room for null
+				if (s == null) {
+					out.writeLength(0);
+				} else {
+					byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+					out.writeLength(bytes.length + 1);
+					out.write(bytes, 0, bytes.length);
+				}
+			}
+		} else if (obj instanceof Object[] a) {
+			String component = componentName(a.getClass().getComponentType());
+			if (component == null)
+				throw new PropertyException("Unsupported array type " + a.getClass());
+
+			out.write(OBJECT_ARRAY);
+			out.writeString(component);
+			out.writeLength(a.length);
+			for (Object o : a)
+				write(out, o);
+		} else {
+			RecordType record = recordsByClass.get(obj.getClass());
+			if (record == null)
+				throw new PropertyException("Unsupported type " + obj.getClass());
+
+			out.write(RECORD);
+			out.writeString(record.name);
+			out.writeLength(record.accessors.length);
+			for (Method accessor : record.accessors)
+				write(out, record.get(accessor, obj));
+		}
+	}
+
+	private Object read(Reader in) {
+		byte tag = in.read();
+		return switch (tag) {
+			case NULL -> null;
+			case FALSE -> Boolean.FALSE;
+			case TRUE -> Boolean.TRUE;
+			case BYTE -> in.read();
+			case SHORT -> (short) in.readVarLong();
+			case CHAR -> (char) in.readVarLong();
+			case INT -> (int) in.readVarLong();
+			case LONG -> in.readVarLong();
+			case FLOAT -> Float.intBitsToFloat(in.readInt());
+			case DOUBLE -> Double.longBitsToDouble(in.readLong());
+			case STRING -> in.readString();
+			case BYTE_ARRAY -> in.readBytes(in.readLength());
+			case BOOLEAN_ARRAY -> {
+				boolean[] a = new boolean[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = in.read() != 0;
+				yield a;
+			}
+			case SHORT_ARRAY -> {
+				short[] a = new short[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = (short) in.readVarLong();
+				yield a;
+			}
+			case CHAR_ARRAY -> in.readString().toCharArray();
+			case INT_ARRAY -> {
+				int[] a = new int[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = (int) in.readVarLong();
+				yield a;
+			}
+			case LONG_ARRAY -> {
+				long[] a = new long[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = in.readVarLong();
+				yield a;
+			}
+			case FLOAT_ARRAY -> {
+				float[] a = new float[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = Float.intBitsToFloat(in.readInt());
+				yield a;
+			}
+			case DOUBLE_ARRAY -> {
+				double[] a = new double[in.readLength()];
+				for (int i = 0; i < a.length; i++)
+					a[i] = Double.longBitsToDouble(in.readLong());
+				yield a;
+			}
+			case STRING_ARRAY -> {
+				String[] a = new String[in.readLength()];
+				for (int i = 0; i < a.length; i++) {
+					int length = in.readLength();
+					a[i] = length == 0 ? null : new String(in.readBytes(length - 1), StandardCharsets.UTF_8);
+				}
+				yield a;
+			}
+			case OBJECT_ARRAY -> {
+				Class<?> component = resolveComponent(in.readString());
+				Object[] a = (Object[]) Array.newInstance(component, in.readLength());
+				for (int i = 0; i < a.length; i++)
+					a[i] = read(in);
+				yield a;
+			}
+			case RECORD -> {
+				String name = in.readString();
+				RecordType record = recordsByName.get(name);
+				if (record == null)
+					throw new PropertyException("Unknown record type " + name);
+
+				int length = in.readLength();
+				if (length != record.accessors.length)
+					throw new PropertyException("Record " + name + " has " + record.accessors.length
+							+ " components but " + length + " were stored");
+
+				Object[] args = new Object[length];
+				for (int i = 0; i < length; i++)
+					args[i] = read(in);
+				yield record.create(args);
+			}
+			default -> throw new PropertyException("Unknown tag " + tag);
+		};
+	}
+
+	private String componentName(Class<?> component) {
+		if (component.getPackageName().equals("java.lang") && BUILT_IN.containsKey(component.getSimpleName()))
+			return component.getSimpleName();
+		RecordType record = recordsByClass.get(component);
+		return record != null ? record.name : null;
+	}
+
+	private Class<?> resolveComponent(String name) {
+		Class<?> type = BUILT_IN.get(name);
+		if (type != null)
+			return type;
+		RecordType record = recordsByName.get(name);
+		if (record != null)
+			return record.type;
+		throw new PropertyException("Unknown array type " + name);
+	}
+
+	private static record RecordType(String name, Class<?> type, Constructor<?> constructor, Method[] accessors) {
+		Object get(Method accessor, Object obj) {
+			try {
+				return accessor.invoke(obj);
+			} catch (ReflectiveOperationException e) {
+				throw new PropertyException("Failed to read record component " + accessor.getName(), e);
+			}
+		}
+
+		Object create(Object[] args) {
+			try {
+				return constructor.newInstance(args);
+			} catch (ReflectiveOperationException | IllegalArgumentException e) {
+				throw new PropertyException("Failed to create record " + name, e);
+			}
+		}
+	}
+
+	private static final class Writer extends ByteArrayOutputStream {
+		Writer() {
+			super(32);
+		}
+
+		void writeInt(int v) {
+			write(v >>> 24);
+			write(v >>> 16);
+			write(v >>> 8);
+			write(v);
+		}
+
+		void writeLong(long v) {
+			writeInt((int) (v >>> 32));
+			writeInt((int) v);
+		}
+
+		void writeVarLong(long v) {
+			// Zig-zag so small negative numbers stay small
+			long z = (v << 1) ^ (v >> 63);
+			while ((z & ~0x7FL) != 0) {
+				write((int) ((z & 0x7F) | 0x80));
+				z >>>= 7;
+			}
+			write((int) z);
+		}
+
+		void writeLength(int length) {
+			writeVarLong(length);
+		}
+
+		void writeString(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeLength(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+	}
+
+	private static final class Reader {
+		private final byte[] data;
+		int position;
+
+		Reader(byte[] data, int position) {
+			this.data = data;
+			this.position = position;
+		}
+
+		byte read() {
+			return data[position++];
+		}
+
+		int readInt() {
+			return (read() & 0xFF) << 24 | (read() & 0xFF) << 16 | (read() & 0xFF) << 8 | (read() & 0xFF);
+		}
+
+		long readLong() {
+			return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+		}
+
+		long readVarLong() {
+			long z = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = read();
+				z |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return (z >>> 1) ^ -(z & 1);
+			}
+			throw new PropertyException("Malformed variable length number");
+		}
+
+		int readLength() {
+			// Every element takes at least one byte
+			long length = readVarLong();
+			if (length < 0 || length > data.length)
+				throw new PropertyException("Invalid length " + length);
+			return (int) length;
+		}
+
+		byte[] readBytes(int length) {
+			if (position + length > data.length)
+				throw new PropertyException("Truncated binary property");
+			byte[] out = new byte[length];
+			System.arraycopy(data, position, out, 0, length);
+			position += length;
+			return out;
+		}
+
+		String readString() {
+			int length = readLength();
+			if (position + length > data.length)
+				throw new PropertyException("Truncated binary property");
+			String s = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return s;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package net.foxgenesis.property.codec;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Interface defining a format used to store object properties.
+ * <p>
+ * Each codec must be able to recognize its own data so that multiple formats
+ * can be read from the same configuration.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @see PropertyCodecs
+ */
+public interface PropertyCodec {
+
+	/**
+	 * Check if an object can be stored with this codec.
+	 *
+	 * @param obj - object to check
+	 *
+	 * @return Returns {@code true} if {@link #encode(Object)} can store the
+	 *         object
+	 */
+	boolean canEncode(@Nullable Object obj);
+
+	/**
+	 * Check if the specified data was stored with this codec.
+	 *
+	 * @param data - stored data
+	 *
+	 * @return Returns {@code true} if {@link #decode(byte[])} can read the data
+	 */
+	boolean canDecode(byte @NotNull [] data);
+
+	/**
+	 * Store an object.
+	 *
+	 * @param obj - object to store
+	 *
+	 * @return Returns the encoded data
+	 *
+	 * @throws PropertyException Thrown if the object can not be stored
+	 */
+	byte @NotNull [] encode(@Nullable Object obj) throws PropertyException;
+
+	/**
+	 * Read a stored object.
+	 *
+	 * @param data - stored data
+	 *
+	 * @return Returns the decoded object
+	 *
+	 * @throws PropertyException Thrown if the data is invalid
+	 */
+	@Nullable
+	Object decode(byte @NotNull [] data) throws PropertyException;
+}
@@ -0,0 +1,151 @@
+package net.foxgenesis.property.codec;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Registry of the {@link PropertyCodec PropertyCodecs} used to store object
+ * properties.
+ * <p>
+ * Objects are stored with the first codec that can encode them. Stored data
+ * is read with the first codec that recognizes it, so data written by older
+ * versions stays readable.
+ * </p>
+ * <p>
+ * The {@link BinaryPropertyCodec} is only used to store objects once it was
+ * enabled with {@link #setBinaryEnabled(boolean)}, as older versions can not
+ * read its format. Until then objects are stored with the
+ * {@link SerializationPropertyCodec}. Binary data is always readable.
+ * </p>
+ *
+ * @author Ashley
+ */
+public final class PropertyCodecs {
+	private static final BinaryPropertyCodec BINARY = new BinaryPropertyCodec();
+	private static final SerializationPropertyCodec SERIALIZATION = new SerializationPropertyCodec();
+
+	private static final List<PropertyCodec> codecs = new CopyOnWriteArrayList<>(List.of(BINARY, SERIALIZATION));
+
+	private static volatile boolean binaryEnabled;
+
+	private PropertyCodecs() {}
+
+	/**
+	 * Store an object with the first codec that supports it.
+	 *
+	 * @param obj - object to store
+	 *
+	 * @return Returns the encoded data
+	 *
+	 * @throws PropertyException Thrown if no codec can store the object
+	 */
+	public static byte @NotNull [] encode(@Nullable Object obj) throws PropertyException {
+		for (PropertyCodec codec : codecs)
+			if (writes(codec) && codec.canEncode(obj))
+				return codec.encode(obj);
+		throw new PropertyException("No codec found for " + obj.getClass());
+	}
+
+	/**
+	 * Read data stored by any registered codec.
+	 *
+	 * @param data - stored data
+	 *
+	 * @return Returns the decoded object
+	 *
+	 * @throws PropertyException Thrown if no codec recognizes the data or the data
+	 *                           is invalid
+	 */
+	@Nullable
+	public static Object decode(byte @NotNull [] data) throws PropertyException {
+		for (PropertyCodec codec : codecs)
+			if (codec.canDecode(data))
+				return codec.decode(data);
+		throw new PropertyException("No codec found for stored data");
+	}
+
+	/**
+	 * Re-encode data that was not stored with the preferred codec.
+	 *
+	 * @param data - stored data
+	 *
+	 * @return Returns the data encoded with the preferred codec or {@code null}
+	 *         if the data is already in the preferred format or can not be
+	 *         converted
+	 *
+	 * @throws PropertyException Thrown if the data is invalid
+	 */
+	public static byte @Nullable [] migrate(byte @NotNull [] data) throws PropertyException {
+		PropertyCodec preferred = getPreferred();
+		if (preferred.canDecode(data))
+			return null;
+
+		Object obj = decode(data);
+		return preferred.canEncode(obj) ? preferred.encode(obj) : null;
+	}
+
+	/**
+	 * Register a record type to be stored in the compact binary format.
+	 *
+	 * @param <R>  record type
+	 * @param name - unique name of the record type
+	 * @param type - record class
+	 *
+	 * @see BinaryPropertyCodec#registerRecord(String, Class)
+	 */
+	public static <R extends Record> void registerRecord(@NotNull String name, @NotNull Class<R> type) {
+		BINARY.registerRecord(name, type);
+	}
+
+	/**
+	 * Register a codec that is preferred over all previously registered codecs.
+	 *
+	 * @param codec - codec to add
+	 */
+	public static void register(@NotNull PropertyCodec codec) {
+		codecs.add(0, Objects.requireNonNull(codec));
+	}
+
+	/**
+	 * Get the codec used to store new data when it supports the value.
+	 *
+	 * @return Returns the preferred {@link PropertyCodec}
+	 */
+	@NotNull
+	public static PropertyCodec getPreferred() {
+		for (PropertyCodec codec : codecs)
+			if (writes(codec))
+				return codec;
+		return SERIALIZATION;
+	}
+
+	/**
+	 * Set if new objects are stored with the {@link BinaryPropertyCodec}.
+	 * Objects stored in the binary format can not be read by older versions.
+	 *
+	 * @param enabled - {@code true} to store supported objects in the binary
+	 *                format
+	 */
+	public static void setBinaryEnabled(boolean enabled) {
+		binaryEnabled = enabled;
+	}
+
+	/**
+	 * Check if new objects are stored with the {@link BinaryPropertyCodec}.
+	 *
+	 * @return Returns {@code true} if the binary format is written
+	 */
+	public static boolean isBinaryEnabled() {
+		return binaryEnabled;
+	}
+
+	private static boolean writes(PropertyCodec codec) {
+		return codec != BINARY || binaryEnabled;
+	}
+}
@@ -0,0 +1,52 @@
+package net.foxgenesis.property.codec;
+
+import java.io.Serializable;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+
+/**
+ * {@link PropertyCodec} using Java serialization. This is the format used by
+ * older versions and is kept to read existing data and to store objects the
+ * {@link BinaryPropertyCodec} does not support.
+ *
+ * @author Ashley
+ */
+public class SerializationPropertyCodec implements PropertyCodec {
+	/**
+	 * First bytes of every Java serialization stream
+	 */
+	private static final short STREAM_MAGIC = (short) 0xACED;
+
+	@Override
+	public boolean canEncode(Object obj) {
+		return obj == null || obj instanceof Serializable;
+	}
+
+	@Override
+	public boolean canDecode(byte[] data) {
+		return data.length >= 2 && (short) (((data[0] & 0xFF) << 8) | (data[1] & 0xFF)) == STREAM_MAGIC;
+	}
+
+	@Override
+	public byte[] encode(Object obj) throws PropertyException {
+		if (!canEncode(obj))
+			throw new PropertyException(obj.getClass() + " is not serializable");
+		try {
+			return SerializationUtils.serialize((Serializable) obj);
+		} catch (SerializationException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	@Override
+	public Object decode(byte[] data) throws PropertyException {
+		try {
+			return SerializationUtils.deserialize(data);
+		} catch (SerializationException e) {
+			throw new PropertyException(e);
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package net.foxgenesis.property.database;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.database.LCKConfigurationDatabase.PropertyChange;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+import net.foxgenesis.property.lck.impl.ForwardingLCKPropertyResolver;
+import net.foxgenesis.property.lck.impl.PropertyCache;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link LCKPropertyResolver} that keeps the property caches of multiple
+ * processes sharing the same database in sync.
+ * <p>
+ * Every successful write through this resolver is recorded in the change log
+ * table of a {@link LCKConfigurationDatabase}. Once started, the change log is
+ * polled every {@link #getPollInterval()} milliseconds and only the changed
+ * entries made by other processes are removed from the {@link PropertyCache}.
+ * </p>
+ * <p>
+ * Change ids are assigned before a change commits, so a lower id may become
+ * visible after a higher one was read. Ids skipped by a poll are remembered as
+ * gaps and read again until they appear or {@link #GAP_TIMEOUT} passed.
+ * </p>
+ * <p>
+ * Changes are recorded after the value is written. If the process stops in
+ * between, other processes see the new value once their cached value
+ * expires. If polling fails for longer than the change log retention, the
+ * whole cache is cleared since changes may have been purged.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class ChangeLogPropertyResolver extends ForwardingLCKPropertyResolver implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(ChangeLogPropertyResolver.class);
+
+	/**
+	 * Maximum amount of changes read in a single query
+	 */
+	private static final int POLL_LIMIT = 1000;
+
+	/**
+	 * Time in milliseconds a skipped change id is waited for before it is
+	 * considered rolled back
+	 */
+	private static final long GAP_TIMEOUT = 10_000;
+
+	/**
+	 * Maximum amount of skipped change ids waited for
+	 */
+	private static final int MAX_GAPS = 10_000;
+
+	private final String origin = UUID.randomUUID().toString();
+	private final LCKConfigurationDatabase changeLog;
+	private final ScheduledExecutorService executor;
+	private final long pollInterval;
+	private final long retention;
+
+	private PropertyCache<?> cache;
+	private ScheduledFuture<?> pollTask;
+	private ScheduledFuture<?> purgeTask;
+
+	private long lastChange = -1;
+	private long lastPoll;
+
+	/**
+	 * Skipped change ids mapped to the time they were first skipped
+	 */
+	private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+	/**
+	 * Create a new change log resolver.
+	 *
+	 * @param delegate     - resolver to write to
+	 * @param changeLog    - database holding the change log
+	 * @param executor     - executor used to poll the change log
+	 * @param pollInterval - time in milliseconds between polls
+	 * @param retention    - time in seconds recorded changes are kept
+	 */
+	public ChangeLogPropertyResolver(@NotNull LCKPropertyResolver delegate,
+			@NotNull LCKConfigurationDatabase changeLog, @NotNull ScheduledExecutorService executor,
+			long pollInterval, long retention) {
+		super(delegate);
+		if (pollInterval <= 0)
+			throw new IllegalArgumentException("Poll interval must be greater than 0");
+		this.changeLog = Objects.requireNonNull(changeLog);
+		this.executor = Objects.requireNonNull(executor);
+		this.pollInterval = pollInterval;
+		this.retention = retention;
+	}
+
+	/**
+	 * Start polling the change log and remove changed entries from the specified
+	 * {@code cache}.
+	 *
+	 * @param cache - cache to keep in sync
+	 */
+	public synchronized void start(@NotNull PropertyCache<?> cache) {
+		if (this.cache != null)
+			throw new IllegalStateException("Change log is already started!");
+		this.cache = Objects.requireNonNull(cache);
+
+		logger.debug("Polling property changes every {}ms as {}", pollInterval, origin);
+		// Nobody waits on polls and purges
+		pollTask = executor.scheduleWithFixedDelay(
+				() -> ConcurrencyLimiter.runWithPriority(Priority.BACKGROUND, this::poll), pollInterval, pollInterval,
+				TimeUnit.MILLISECONDS);
+		purgeTask = executor.scheduleWithFixedDelay(
+				() -> ConcurrencyLimiter.runWithPriority(Priority.BACKGROUND, this::purge), 1, 1, TimeUnit.MINUTES);
+	}
+
+	@Override
+	public boolean putInternal(Long lookup, PropertyInfo info, InputStream in) throws PropertyException {
+		if (super.putInternal(lookup, info, in)) {
+			record(List.of(new LCKKey(lookup, info.id())));
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		if (super.removeInternal(lookup, info)) {
+			record(List.of(new LCKKey(lookup, info.id())));
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException {
+		super.putAllInternal(values);
+		record(values.keySet());
+	}
+
+	/**
+	 * Get the identifier this process records its changes with.
+	 *
+	 * @return Returns the change origin of this process
+	 */
+	@NotNull
+	public String getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * Get the time between change log polls.
+	 *
+	 * @return Returns the poll interval in milliseconds
+	 */
+	public long getPollInterval() {
+		return pollInterval;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (pollTask != null)
+			pollTask.cancel(false);
+		if (purgeTask != null)
+			purgeTask.cancel(false);
+	}
+
+	private void record(Collection<LCKKey> keys) {
+		try {
+			changeLog.recordChanges(keys, origin);
+		} catch (Exception e) {
+			// The value is already written. Other processes see it once it expires
+			logger.warn("Failed to record " + keys.size() + " property changes", e);
+		}
+	}
+
+	private synchronized void poll() {
+		if (!changeLog.isReady())
+			return;
+
+		long now = System.currentTimeMillis();
+		try {
+			// Skip changes made before the database was ready
+			if (lastChange < 0) {
+				long ready = changeLog.getChangeAtReady();
+				lastChange = ready >= 0 ? ready : changeLog.getLatestChange();
+				lastPoll = now;
+			}
+
+			// Changes may have been purged while we could not poll
+			if (now - lastPoll > TimeUnit.SECONDS.toMillis(retention)) {
+				logger.warn("Missed property changes for longer than the retention. Clearing cache");
+				cache.invalidateAll();
+				lastChange = changeLog.getLatestChange();
+				gaps.clear();
+				lastPoll = now;
+				return;
+			}
+
+			// Read again from the oldest change that may still commit
+			long cursor = gaps.isEmpty() ? lastChange : Math.min(lastChange, gaps.firstKey() - 1);
+			List<PropertyChange> changes;
+			do {
+				changes = changeLog.getChanges(cursor, POLL_LIMIT);
+				List<LCKKey> keys = new ArrayList<>();
+				for (PropertyChange change : changes) {
+					if (accept(change, now) && !origin.equals(change.origin()))
+						keys.add(change.key());
+					cursor = change.id();
+				}
+
+				// Reload from the primary as the replica may not have the change yet
+				changeLog.markChanged(keys);
+				for (LCKKey key : keys)
+					cache.invalidate(key.lookup(), key.propertyId());
+			} while (changes.size() == POLL_LIMIT);
+
+			// Give up on changes that never committed
+			gaps.values().removeIf(skipped -> now - skipped > GAP_TIMEOUT);
+			while (gaps.size() > MAX_GAPS)
+				gaps.pollFirstEntry();
+
+			lastPoll = now;
+		} catch (Exception e) {
+			logger.warn("Failed to poll property changes", e);
+		}
+	}
+
+	/**
+	 * Check if a read change was not handled yet and track the ids it skipped.
+	 *
+	 * @param change - read change
+	 * @param now    - time of the poll
+	 *
+	 * @return Returns {@code true} if the change is new
+	 */
+	private boolean accept(PropertyChange change, long now) {
+		long id = change.id();
+		if (id <= lastChange)
+			return gaps.remove(id) != null;
+
+		for (long skipped = lastChange + 1; skipped < id && skipped - lastChange <= MAX_GAPS; skipped++)
+			gaps.put(skipped, now);
+		lastChange = id;
+		return true;
+	}
+
+	private void purge() {
+		if (!changeLog.isReady())
+			return;
+
+		try {
+			int purged = changeLog.purgeChanges(retention);
+			if (purged > 0)
+				logger.debug("Purged {} old property changes", purged);
+		} catch (Exception e) {
+			logger.warn("Failed to purge property changes", e);
+		}
+	}
+}
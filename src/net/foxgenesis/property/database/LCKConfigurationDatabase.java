@@ -2,20 +2,30 @@ package net.foxgenesis.property.database;
 
 import java.io.InputStream;
 import java.sql.Blob;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import net.foxgenesis.database.AbstractDatabase;
+import net.foxgenesis.database.DatabaseSession;
 import net.foxgenesis.property.PropertyException;
 import net.foxgenesis.property.PropertyInfo;
 import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.codec.PropertyCodecs;
+import net.foxgenesis.property.lck.LCKKey;
 import net.foxgenesis.property.lck.LCKPropertyResolver;
 import net.foxgenesis.util.resource.FormattedModuleResource;
 
@@ -26,19 +36,45 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 	public static final int MAX_CATEGORY_LENGTH = 50;
 	public static final int MAX_KEY_LENGTH = 500;
 
+	/**
+	 * Default name of the change log table
+	 */
+	public static final String CHANGE_LOG_TABLE = "PropertyChanges";
+
 	private final String database;
 	private final String table;
 	private final String propertyInfoTable;
+	private final String changeLogTable;
+
+	/**
+	 * Properties changed by other processes that are read from the primary until
+	 * the replica caught up. Maps to the time in nanoseconds the replica is
+	 * assumed to have caught up
+	 */
+	private final ConcurrentHashMap<LCKKey, Long> changed = new ConcurrentHashMap<>();
+
+	/**
+	 * Latest change id once the database was ready. {@code -1} if unknown
+	 */
+	private volatile long readyChange = -1;
 
 	public LCKConfigurationDatabase(String database, String propertyTable, String propertyInfoTable) {
+		this(database, propertyTable, propertyInfoTable, CHANGE_LOG_TABLE);
+	}
+
+	public LCKConfigurationDatabase(String database, String propertyTable, String propertyInfoTable,
+			String changeLogTable) {
 		super("LCK Configuration",
 				new FormattedModuleResource("watamebot", "/META-INF/configDatabase/statements.kvp",
-						Map.of("database", database, "table", propertyTable, "table2", propertyInfoTable)),
+						Map.of("database", database, "table", propertyTable, "table2", propertyInfoTable, "table3",
+								changeLogTable)),
 				new FormattedModuleResource("watamebot", "/META-INF/configDatabase/setup.sql",
-						Map.of("database", database, "table", propertyTable, "table2", propertyInfoTable)));
+						Map.of("database", database, "table", propertyTable, "table2", propertyInfoTable, "table3",
+								changeLogTable)));
 		this.database = Objects.requireNonNull(database);
 		table = Objects.requireNonNull(propertyTable);
 		this.propertyInfoTable = Objects.requireNonNull(propertyInfoTable);
+		this.changeLogTable = Objects.requireNonNull(changeLogTable);
 	}
 
 	@Override
@@ -80,7 +116,8 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 		validate(lookup, info);
 		logger.debug("Getting property: {}", info);
 		try {
-			return this.mapStatement("property_read", statement -> {
+			boolean primary = isChanged(new LCKKey(lookup, info.id()));
+			return read(primary, () -> this.mapStatement("property_read", statement -> {
 				statement.setLong(1, lookup);
 				statement.setInt(2, info.id());
 
@@ -89,6 +126,103 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 						return result.getBlob("property");
 					return null;
 				}
+			}));
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	@Override
+	public Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException {
+		validate(lookup);
+		logger.debug("Getting all properties for lookup: {}", lookup);
+		try {
+			Map<Integer, Blob> map = new HashMap<>();
+			read(changed.keySet().stream().anyMatch(key -> key.lookup() == lookup && isChanged(key)), () -> {
+				prepareStatement("property_read_all", statement -> {
+					statement.setLong(1, lookup);
+
+					try (ResultSet result = statement.executeQuery()) {
+						while (result.next())
+							map.put(result.getInt("property_id"), result.getBlob("property"));
+					}
+				});
+				return null;
+			});
+			return map;
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	@Override
+	public Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException {
+		Map<LCKKey, Blob> map = new HashMap<>();
+		if (keys.isEmpty())
+			return map;
+		for (LCKKey key : keys)
+			validate(key.lookup());
+
+		logger.debug("Getting {} properties", keys.size());
+		String sql = getRawStatement("property_read_many")
+				.formatted(keys.stream().map(k -> "(?, ?)").collect(Collectors.joining(", ")));
+
+		boolean primary = keys.stream().anyMatch(this::isChanged);
+		try {
+			read(primary, () -> withConnection("property_read_many", c -> {
+				try (PreparedStatement statement = c.prepareStatement(sql)) {
+					int i = 1;
+					for (LCKKey key : keys) {
+						statement.setLong(i++, key.lookup());
+						statement.setInt(i++, key.propertyId());
+					}
+
+					return timeStatement("property_read_many", statement, s -> {
+						try (ResultSet result = s.executeQuery()) {
+							while (result.next())
+								map.put(new LCKKey(result.getLong("lookup"), result.getInt("property_id")),
+										result.getBlob("property"));
+						}
+						return null;
+					});
+				}
+			}));
+			return map;
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	@Override
+	public void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException {
+		if (values.isEmpty())
+			return;
+		for (LCKKey key : values.keySet())
+			validate(key.lookup());
+
+		logger.debug("Writing {} properties", values.size());
+		try {
+			inTransaction(session -> {
+				for (Map.Entry<LCKKey, byte[]> entry : values.entrySet()) {
+					LCKKey key = entry.getKey();
+					byte[] data = entry.getValue();
+
+					if (data == null || data.length == 0)
+						session.addBatch("property_delete", delete -> {
+							delete.setLong(1, key.lookup());
+							delete.setInt(2, key.propertyId());
+						});
+					else
+						session.addBatch("property_insert_update", update -> {
+							update.setLong(1, key.lookup());
+							update.setInt(2, key.propertyId());
+							update.setBytes(3, data);
+						});
+				}
+
+				session.executeBatch("property_insert_update");
+				session.executeBatch("property_delete");
+				return null;
 			});
 		} catch (SQLException e) {
 			throw new PropertyException(e);
@@ -136,6 +270,8 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 					.map(id -> new PropertyInfo(id, category, key, modifiable, type))
 					.orElseThrow(() -> new IllegalArgumentException("Property already exists"));
 		} catch (SQLException e) {
+			if (isDuplicate(e))
+				throw new IllegalArgumentException("Property already exists", e);
 			throw new PropertyException(e);
 		}
 	}
@@ -244,8 +380,228 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 		}
 	}
 
+	/**
+	 * Rewrite all stored {@link PropertyType#OBJECT OBJECT} properties that are
+	 * not in the preferred {@link PropertyCodecs codec} format. A value is only
+	 * replaced if it was not changed while it was converted. Values that can not
+	 * be converted are left untouched.
+	 *
+	 * @param batchSize - amount of values read and written per page
+	 *
+	 * @return Returns the amount of rewritten values
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	public int migrateObjectProperties(int batchSize) throws PropertyException {
+		int migrated = 0;
+
+		for (PropertyInfo info : getPropertyList()) {
+			if (info.type() != PropertyType.OBJECT)
+				continue;
+
+			try (DatabaseSession session = openSession()) {
+				int rewritten = 0;
+				// Read one page of values at a time so a property is never buffered as a whole
+				long after = Long.MIN_VALUE;
+				while (true) {
+					long from = after;
+					long[] page = { 0, after };
+					Map<Long, byte[][]> converted = new HashMap<>();
+					session.forEach("property_read_by_property", statement -> {
+						statement.setInt(1, info.id());
+						statement.setLong(2, from);
+						statement.setInt(3, batchSize);
+					}, batchSize, result -> {
+						page[0]++;
+						page[1] = result.getLong("lookup");
+						byte[] old = result.getBytes("property");
+						if (old == null)
+							return;
+
+						try {
+							byte[] data = PropertyCodecs.migrate(old);
+							if (data != null)
+								converted.put(page[1], new byte[][] { old, data });
+						} catch (PropertyException e) {
+							logger.warn("Unable to convert property {} for {}", info, page[1], e);
+						}
+					});
+
+					for (Map.Entry<Long, byte[][]> entry : converted.entrySet())
+						session.addBatch("property_replace", statement -> {
+							statement.setBytes(1, entry.getValue()[1]);
+							statement.setLong(2, entry.getKey());
+							statement.setInt(3, info.id());
+							statement.setBytes(4, entry.getValue()[0]);
+						});
+					rewritten += sum(session.executeBatch("property_replace"));
+
+					if (page[0] < batchSize)
+						break;
+					after = page[1];
+				}
+
+				if (rewritten > 0)
+					logger.info("Converted {} values of {}", rewritten, info);
+				migrated += rewritten;
+			} catch (SQLException e) {
+				throw new PropertyException(e);
+			}
+		}
+		return migrated;
+	}
+
+	/**
+	 * Record that the specified properties were changed.
+	 *
+	 * @param keys   - changed properties
+	 * @param origin - identifier of the process that made the change
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	public void recordChanges(@NotNull Collection<LCKKey> keys, @NotNull String origin) throws PropertyException {
+		if (keys.isEmpty())
+			return;
+		try {
+			prepareStatement("change_insert", statement -> {
+				for (LCKKey key : keys) {
+					statement.setLong(1, key.lookup());
+					statement.setInt(2, key.propertyId());
+					statement.setString(3, origin);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			});
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	/**
+	 * Read the specified properties from the primary until a read replica can be
+	 * expected to have them. Used for properties that were changed by another
+	 * process so a reload does not read an outdated value from the replica.
+	 *
+	 * @param keys - properties changed by another process
+	 */
+	public void markChanged(@NotNull Collection<LCKKey> keys) {
+		if (keys.isEmpty() || !isReady())
+			return;
+
+		long now = System.nanoTime();
+		changed.values().removeIf(until -> now - until >= 0);
+
+		long until = now + TimeUnit.MILLISECONDS.toNanos(getReadYourWritesWindow());
+		for (LCKKey key : keys)
+			changed.put(key, until);
+	}
+
+	private boolean isChanged(LCKKey key) {
+		Long until = changed.get(key);
+		if (until == null)
+			return false;
+		if (System.nanoTime() - until < 0)
+			return true;
+		changed.remove(key, until);
+		return false;
+	}
+
+	private <U> U read(boolean primary, SQLSupplier<U> func) throws SQLException {
+		return primary ? readFromPrimary(func) : func.get();
+	}
+
+	/**
+	 * Get the changes recorded after the specified change id in the order they
+	 * were recorded.
+	 *
+	 * @param after - id of the last change already read
+	 * @param limit - maximum amount of changes to read
+	 *
+	 * @return Returns a {@link List} of recorded {@link PropertyChange
+	 *         PropertyChanges}
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	@NotNull
+	public List<PropertyChange> getChanges(long after, int limit) throws PropertyException {
+		try {
+			List<PropertyChange> list = new ArrayList<>();
+			prepareStatement("change_read", statement -> {
+				statement.setLong(1, after);
+				statement.setInt(2, limit);
+
+				try (ResultSet result = statement.executeQuery()) {
+					while (result.next())
+						list.add(new PropertyChange(result.getLong("id"),
+								new LCKKey(result.getLong("lookup"), result.getInt("property_id")),
+								result.getString("origin")));
+				}
+			});
+			return list;
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	/**
+	 * Get the id of the most recently recorded change.
+	 *
+	 * @return Returns the latest change id or {@code 0} if there are none
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	public long getLatestChange() throws PropertyException {
+		try {
+			return this.mapStatement("change_latest", statement -> {
+				try (ResultSet result = statement.executeQuery()) {
+					return result.next() ? result.getLong(1) : 0L;
+				}
+			}).orElse(0L);
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	/**
+	 * Get the id of the latest change at the time the database became ready.
+	 * Every change after it may not be reflected in values read since.
+	 *
+	 * @return Returns the change id or {@code -1} if it could not be read
+	 */
+	public long getChangeAtReady() {
+		return readyChange;
+	}
+
+	/**
+	 * Delete recorded changes that are older than the specified age.
+	 *
+	 * @param maxAge - maximum age of kept changes in seconds
+	 *
+	 * @return Returns the amount of deleted changes
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	public int purgeChanges(long maxAge) throws PropertyException {
+		try {
+			return this.mapStatement("change_purge", statement -> {
+				statement.setLong(1, maxAge);
+				return statement.executeUpdate();
+			}).orElse(0);
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
 	@Override
-	protected void onReady() {}
+	protected synchronized void onReady() {
+		if (readyChange >= 0)
+			return;
+		try {
+			readyChange = getLatestChange();
+		} catch (PropertyException e) {
+			logger.warn("Failed to read the latest property change", e);
+		}
+	}
 
 	@Override
 	public void close() {}
@@ -266,6 +622,11 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 		return propertyInfoTable;
 	}
 
+	@NotNull
+	public String getChangeLogTable() {
+		return changeLogTable;
+	}
+
 	protected boolean isValidLookup(long lookup) {
 		return Math.floor(Math.log10(lookup)) + 1 == 18;
 	}
@@ -280,6 +641,16 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 		validate(info.category(), info.name());
 	}
 
+	private void validate(long lookup) {
+		// Validate lookup
+		if (!isValidLookup(lookup))
+			throw new PropertyException("Invalid lookup");
+
+		// Validate database connection
+		if (!isReady())
+			throw new PropertyException("Database is not ready yet!");
+	}
+
 	private void validate(String category, String key) {
 		// Validate fields
 		if (category.isBlank() || key.isBlank())
@@ -294,6 +665,30 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 			throw new PropertyException("Database is not ready yet!");
 	}
 
+	private static int sum(int[] counts) {
+		int total = 0;
+		for (int count : counts)
+			if (count > 0)
+				total += count;
+		return total;
+	}
+
+	/**
+	 * Check if a statement failed because a unique key already exists.
+	 *
+	 * @param e - thrown exception
+	 *
+	 * @return Returns {@code true} if {@code e} or one of its causes is an
+	 *         integrity constraint violation
+	 */
+	private static boolean isDuplicate(SQLException e) {
+		for (Throwable t = e; t != null; t = t.getCause())
+			if (t instanceof SQLIntegrityConstraintViolationException
+					|| t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("23"))
+				return true;
+		return false;
+	}
+
 	private static PropertyInfo parsePropertyInfo(ResultSet result) throws SQLException {
 		int id = result.getInt(1);
 		String category = result.getString(2);
@@ -302,4 +697,15 @@ public class LCKConfigurationDatabase extends AbstractDatabase implements LCKPro
 		PropertyType type = PropertyType.valueOf(result.getString(5).toUpperCase());
 		return new PropertyInfo(id, category, name, modifiable, type);
 	}
+
+	/**
+	 * A recorded property change.
+	 *
+	 * @param id     - change id
+	 * @param key    - changed property
+	 * @param origin - identifier of the process that made the change
+	 *
+	 * @author Ashley
+	 */
+	public record PropertyChange(long id, LCKKey key, String origin) {}
 }
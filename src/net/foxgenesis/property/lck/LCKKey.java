@@ -0,0 +1,12 @@
+package net.foxgenesis.property.lck;
+
+/**
+ * Key identifying a single stored property value.
+ *
+ * @param lookup     - property lookup
+ * @param propertyId - {@link net.foxgenesis.property.PropertyInfo#id()
+ *                   PropertyInfo.id()} of the property
+ *
+ * @author Ashley
+ */
+public record LCKKey(long lookup, int propertyId) {}
@@ -1,6 +1,8 @@
 package net.foxgenesis.property.lck;
 
 import java.sql.Blob;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 import net.foxgenesis.property.PropertyException;
@@ -11,4 +13,43 @@ public interface LCKPropertyResolver extends PropertyResolver<Long, String, Stri
 	@SuppressWarnings("exports")
 	@Override
 	Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException;
+
+	/**
+	 * Get every internal property stored for the specified {@code lookup} in a
+	 * single operation.
+	 *
+	 * @param lookup - property lookup
+	 *
+	 * @return Returns a {@link Map} of {@link PropertyInfo#id()} to the raw value
+	 *         data of every property present for the {@code lookup}
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	@SuppressWarnings("exports")
+	Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException;
+
+	/**
+	 * Get the internal properties of multiple {@code lookup}/property pairs in a
+	 * single operation.
+	 *
+	 * @param keys - keys to retrieve
+	 *
+	 * @return Returns a {@link Map} of {@link LCKKey} to the raw value data of
+	 *         every requested property that is present
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	@SuppressWarnings("exports")
+	Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException;
+
+	/**
+	 * Write multiple internal properties in a single operation. An empty value
+	 * removes the property. Either all values are written or none are.
+	 *
+	 * @param values - {@link Map} of {@link LCKKey} to the raw value data to
+	 *               write or an empty array to remove
+	 *
+	 * @throws PropertyException Thrown if an internal error occurs
+	 */
+	void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException;
 }
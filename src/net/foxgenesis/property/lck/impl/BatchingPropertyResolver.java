@@ -0,0 +1,248 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.sql.Blob;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link LCKPropertyResolver} that combines single property reads into
+ * batches.
+ * <p>
+ * Reads that arrive within {@link #getWindow()} milliseconds of the first read
+ * of a batch are resolved together with
+ * {@link LCKPropertyResolver#getAllInternal(java.util.Collection)}. A batch is
+ * sent early once it holds {@link #getMaxBatchSize()} keys. Concurrent reads of
+ * the same key share a single pending result. A batch is read with the highest
+ * {@link Priority} of the callers it was queued by.
+ * </p>
+ * <p>
+ * The scheduler only times the batch window. Batches are read on a separate
+ * query executor, so slow reads do not hold up other scheduled tasks and the
+ * amount of concurrent batches is only limited by that executor.
+ * </p>
+ * <p>
+ * If a batch is rejected, every key of that batch is retried on its own so
+ * that a single bad key only fails its own callers. If the storage is
+ * unreachable or overloaded, every caller of the batch fails with the batch
+ * error instead so an outage does not multiply the load by the batch size.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class BatchingPropertyResolver extends ForwardingLCKPropertyResolver {
+	private static final Logger logger = LoggerFactory.getLogger(BatchingPropertyResolver.class);
+
+	private final ConcurrentHashMap<LCKKey, CompletableFuture<Optional<Blob>>> inFlight = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler;
+	private final Executor queryExecutor;
+	private final long window;
+	private final int maxBatchSize;
+
+	/**
+	 * Guarded by {@code this}
+	 */
+	private List<LCKKey> queue = new ArrayList<>();
+
+	/**
+	 * Highest priority of the queued reads. Guarded by {@code this}
+	 */
+	private Priority queuePriority = Priority.BACKGROUND;
+
+	/**
+	 * Guarded by {@code this}
+	 */
+	private ScheduledFuture<?> scheduled;
+
+	/**
+	 * Create a new batching resolver.
+	 *
+	 * @param delegate      - resolver used to read batches
+	 * @param scheduler     - executor used to wait for the batch window
+	 * @param queryExecutor - executor used to read batches
+	 * @param window        - time in milliseconds to collect reads for a batch
+	 * @param maxBatchSize  - maximum amount of keys in a batch
+	 */
+	public BatchingPropertyResolver(@NotNull LCKPropertyResolver delegate, @NotNull ScheduledExecutorService scheduler,
+			@NotNull Executor queryExecutor, long window, int maxBatchSize) {
+		super(delegate);
+		if (maxBatchSize < 1)
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		this.scheduler = Objects.requireNonNull(scheduler);
+		this.queryExecutor = Objects.requireNonNull(queryExecutor);
+		this.window = Math.max(0, window);
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	@Override
+	public Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		try {
+			return load(lookup, info.id()).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof PropertyException pe)
+				throw pe;
+			throw new PropertyException(e.getCause());
+		}
+	}
+
+	/**
+	 * Queue a read of a property. If a read for the same property is already
+	 * pending, its result is returned instead.
+	 *
+	 * @param lookup     - property lookup
+	 * @param propertyId - property id
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes with the raw
+	 *         value data once the batch containing it was read
+	 */
+	@NotNull
+	public CompletableFuture<Optional<Blob>> load(long lookup, int propertyId) {
+		LCKKey key = new LCKKey(lookup, propertyId);
+
+		CompletableFuture<Optional<Blob>> future = new CompletableFuture<>();
+		CompletableFuture<Optional<Blob>> pending = inFlight.putIfAbsent(key, future);
+		if (pending != null)
+			return pending;
+
+		enqueue(key);
+		return future;
+	}
+
+	/**
+	 * Get the time reads are collected before a batch is sent.
+	 *
+	 * @return Returns the batch window in milliseconds
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Get the maximum amount of keys sent in a single batch.
+	 *
+	 * @return Returns the maximum batch size
+	 */
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	private void enqueue(LCKKey key) {
+		Batch full = null;
+		Priority priority = ConcurrencyLimiter.getPriority();
+
+		synchronized (this) {
+			queue.add(key);
+			if (priority.compareTo(queuePriority) < 0)
+				queuePriority = priority;
+
+			if (queue.size() >= maxBatchSize) {
+				full = takeQueue();
+			} else if (queue.size() == 1) {
+				try {
+					scheduled = scheduler.schedule(this::dispatchQueue, window, TimeUnit.MILLISECONDS);
+				} catch (RejectedExecutionException e) {
+					full = takeQueue();
+				}
+			}
+		}
+
+		if (full != null)
+			submit(full);
+	}
+
+	private void dispatchQueue() {
+		Batch batch;
+		synchronized (this) {
+			scheduled = null;
+			batch = takeQueue();
+		}
+		if (!batch.keys().isEmpty())
+			submit(batch);
+	}
+
+	private void submit(Batch batch) {
+		try {
+			queryExecutor.execute(() -> dispatch(batch));
+		} catch (RejectedExecutionException e) {
+			// Executor is shut down. Read on the current thread instead
+			dispatch(batch);
+		}
+	}
+
+	/**
+	 * Take the current queue and cancel its timer. Must hold the lock on
+	 * {@code this}.
+	 *
+	 * @return Returns the queued keys with their highest priority
+	 */
+	private Batch takeQueue() {
+		Batch batch = new Batch(queue, queuePriority);
+		queue = new ArrayList<>();
+		queuePriority = Priority.BACKGROUND;
+
+		if (scheduled != null) {
+			scheduled.cancel(false);
+			scheduled = null;
+		}
+		return batch;
+	}
+
+	private void dispatch(Batch batch) {
+		ConcurrencyLimiter.runWithPriority(batch.priority(), () -> dispatch(batch.keys()));
+	}
+
+	private void dispatch(List<LCKKey> batch) {
+		try {
+			Map<LCKKey, Blob> result = delegate.getAllInternal(batch);
+			for (LCKKey key : batch)
+				complete(key, Optional.ofNullable(result.get(key)), null);
+		} catch (Exception e) {
+			if (batch.size() == 1 || StorageFailure.classify(e) != StorageFailure.REJECTED) {
+				for (LCKKey key : batch)
+					complete(key, null, e);
+				return;
+			}
+
+			logger.debug("Batch of {} properties failed. Retrying individually", batch.size(), e);
+			for (LCKKey key : batch)
+				dispatch(List.of(key));
+		}
+	}
+
+	private void complete(LCKKey key, Optional<Blob> value, Exception error) {
+		CompletableFuture<Optional<Blob>> future = inFlight.remove(key);
+		if (future == null)
+			return;
+
+		if (error != null)
+			future.completeExceptionally(error);
+		else
+			future.complete(value);
+	}
+
+	/**
+	 * Keys read together with the priority of their callers.
+	 */
+	private record Batch(List<LCKKey> keys, Priority priority) {}
+}
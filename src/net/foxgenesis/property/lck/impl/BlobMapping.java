@@ -6,23 +6,44 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.sql.Blob;
 import java.sql.SQLException;
-import java.util.Arrays;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import net.foxgenesis.property.PropertyMapping;
 import net.foxgenesis.property.PropertyType;
 
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * An immutable {@link PropertyMapping} backed by the raw bytes of a property.
+ * <p>
+ * Decoded values are computed on first use and reused afterwards, so a single
+ * mapping can be shared between threads. Numbers stored with
+ * {@link net.foxgenesis.property.Property#serialize Property.serialize} are
+ * decoded from their fixed width big-endian form. Arrays are copied before
+ * they are returned. Objects returned by {@link #getAsObject()} are shared and
+ * must not be modified.
+ * </p>
+ */
 public class BlobMapping implements PropertyMapping {
 	private final byte[] data;
 	private final long lookup;
 	private final PropertyType type;
 
+	/**
+	 * Lazily decoded text of a plain or number property
+	 */
+	private volatile String text;
+
+	/**
+	 * Lazily decoded object or array
+	 */
+	private volatile Object decoded;
+
 	public BlobMapping(long lookup, byte[] data, @NotNull PropertyType type) {
 		this.lookup = lookup;
-		this.data = Objects.requireNonNull(data);
+		this.data = Objects.requireNonNull(data).clone();
 		this.type = Objects.requireNonNull(type);
 	}
 
@@ -38,92 +59,93 @@ public class BlobMapping implements PropertyMapping {
 
 	@Override
 	public String getAsPlainText() {
-		if (type == PropertyType.NUMBER)
-			return new BigInteger(data).toString();
-		return new String(data);
+		String t = text;
+		if (t == null)
+			text = t = type == PropertyType.NUMBER ? numberText() : new String(data);
+		return t;
 	}
 
 	@Override
 	public Object getAsObject() {
-		return PropertyMapping.parse(Object.class, data);
+		return parse(Object.class);
 	}
 
 	@Override
 	public String getAsString() {
 		if (isUserReadable())
 			return getAsPlainText();
-		return PropertyMapping.parse(String.class, data);
+		return parse(String.class);
 	}
 
 	@Override
 	public boolean getAsBoolean() {
 		return switch (getType()) {
-			case OBJECT -> PropertyMapping.parse(Boolean.class, data);
+			case OBJECT -> parse(Boolean.class);
 			case PLAIN -> Boolean.parseBoolean(getAsPlainText());
-			case NUMBER -> new BigInteger(data).testBit(0);
+			case NUMBER -> (lastByte() & 1) == 1;
 		};
 	}
 
 	@Override
 	public int getAsInt() {
 		return switch (getType()) {
-			case OBJECT -> PropertyMapping.parse(Integer.class, data);
+			case OBJECT -> parse(Integer.class);
 			case PLAIN -> Integer.parseInt(getAsPlainText());
-			case NUMBER -> new BigInteger(data).intValue();
+			case NUMBER -> (int) number();
 		};
 	}
 
 	@Override
 	public float getAsFloat() {
 		return switch (getType()) {
-			case OBJECT -> PropertyMapping.parse(Float.class, data);
+			case OBJECT -> parse(Float.class);
 			case PLAIN -> Float.parseFloat(getAsPlainText());
-			case NUMBER -> new BigInteger(data).floatValue();
+			case NUMBER -> data.length <= Long.BYTES ? (float) number() : new BigInteger(data).floatValue();
 		};
 	}
 
 	@Override
 	public double getAsDouble() {
 		return switch (getType()) {
-			case OBJECT -> PropertyMapping.parse(Double.class, data);
+			case OBJECT -> parse(Double.class);
 			case PLAIN -> Double.parseDouble(getAsPlainText());
-			case NUMBER -> new BigInteger(data).doubleValue();
+			case NUMBER -> data.length <= Long.BYTES ? (double) number() : new BigInteger(data).doubleValue();
 		};
 	}
 
 	@Override
 	public long getAsLong() {
 		return switch (getType()) {
-			case OBJECT -> PropertyMapping.parse(Long.class, data);
+			case OBJECT -> parse(Long.class);
 			case PLAIN -> Long.parseLong(getAsPlainText());
-			case NUMBER -> new BigInteger(data).longValue();
+			case NUMBER -> number();
 		};
 	}
 
 	@Override
 	public String[] getAsStringArray() {
-		if (isUserReadable())
-			return PropertyMapping.unjoin(getAsPlainText(), Function.identity(), String[]::new);
-		return PropertyMapping.parse(String[].class, data);
+		return memoize(String[].class, () -> isUserReadable()
+				? PropertyMapping.unjoin(getAsPlainText(), Function.identity(), String[]::new)
+				: parse(String[].class)).clone();
 	}
 
 	@Override
 	public boolean[] getAsBooleanArray() {
-		return switch (getType()) {
+		return memoize(boolean[].class, () -> switch (getType()) {
 			case NUMBER -> {
 				boolean[] out = new boolean[data.length];
 				for (int i = 0; i < data.length; i++)
 					out[i] = (data[i] & 1) == 1;
 				yield out;
 			}
-			case OBJECT -> PropertyMapping.parse(boolean[].class, data);
+			case OBJECT -> parse(boolean[].class);
 			case PLAIN -> PropertyMapping.unjoinBoolean(getAsPlainText());
-		};
+		}).clone();
 	}
 
 	@Override
 	public int[] getAsIntegerArray() {
-		return switch (getType()) {
+		return memoize(int[].class, () -> switch (getType()) {
 			case NUMBER -> {
 				ByteBuffer b = ByteBuffer.wrap(data);
 				int[] out = new int[data.length / Integer.BYTES];
@@ -131,14 +153,14 @@ public class BlobMapping implements PropertyMapping {
 					out[i] = b.getInt();
 				yield out;
 			}
-			case OBJECT -> PropertyMapping.parse(int[].class, data);
+			case OBJECT -> parse(int[].class);
 			case PLAIN -> PropertyMapping.unjoinInt(getAsPlainText());
-		};
+		}).clone();
 	}
 
 	@Override
 	public float[] getAsFloatArray() {
-		return switch (getType()) {
+		return memoize(float[].class, () -> switch (getType()) {
 			case NUMBER -> {
 				ByteBuffer b = ByteBuffer.wrap(data);
 				float[] out = new float[data.length / Float.BYTES];
@@ -146,14 +168,14 @@ public class BlobMapping implements PropertyMapping {
 					out[i] = b.getFloat();
 				yield out;
 			}
-			case OBJECT -> PropertyMapping.parse(float[].class, data);
+			case OBJECT -> parse(float[].class);
 			case PLAIN -> PropertyMapping.unjoinFloat(getAsPlainText());
-		};
+		}).clone();
 	}
 
 	@Override
 	public double[] getAsDoubleArray() {
-		return switch (getType()) {
+		return memoize(double[].class, () -> switch (getType()) {
 			case NUMBER -> {
 				ByteBuffer b = ByteBuffer.wrap(data);
 				double[] out = new double[data.length / Double.BYTES];
@@ -161,14 +183,14 @@ public class BlobMapping implements PropertyMapping {
 					out[i] = b.getDouble();
 				yield out;
 			}
-			case OBJECT -> PropertyMapping.parse(double[].class, data);
+			case OBJECT -> parse(double[].class);
 			case PLAIN -> PropertyMapping.unjoinDouble(getAsPlainText());
-		};
+		}).clone();
 	}
 
 	@Override
 	public long[] getAsLongArray() {
-		return switch (getType()) {
+		return memoize(long[].class, () -> switch (getType()) {
 			case NUMBER -> {
 				ByteBuffer b = ByteBuffer.wrap(data);
 				long[] out = new long[data.length / Long.BYTES];
@@ -176,20 +198,87 @@ public class BlobMapping implements PropertyMapping {
 					out[i] = b.getLong();
 				yield out;
 			}
-			case OBJECT -> PropertyMapping.parse(long[].class, data);
+			case OBJECT -> parse(long[].class);
 			case PLAIN -> PropertyMapping.unjoinLong(getAsPlainText());
-		};
+		}).clone();
 	}
 
 	@Override
 	public byte[] getAsByteArray() {
 		return switch (getType()) {
-			case NUMBER -> Arrays.copyOf(data, data.length);
-			case OBJECT -> PropertyMapping.parse(byte[].class, data);
+			case NUMBER -> data.clone();
+			case OBJECT -> parse(byte[].class).clone();
 			case PLAIN -> PropertyMapping.unjoinByte(getAsPlainText());
 		};
 	}
 
+	/**
+	 * Decode an object property once and cast it to the requested type.
+	 *
+	 * @param <U>        wanted type
+	 * @param returnType - class of the wanted type
+	 *
+	 * @return Returns the decoded object
+	 */
+	private <U> U parse(Class<U> returnType) {
+		Object d = decoded;
+		if (d == null)
+			decoded = d = PropertyMapping.parse(Object.class, data);
+		return returnType.cast(d);
+	}
+
+	/**
+	 * Decode an array once. Object properties share the decoded value of
+	 * {@link #parse(Class)}.
+	 *
+	 * @param <U>     array type
+	 * @param type    - class of the array
+	 * @param decoder - function used to decode the array
+	 *
+	 * @return Returns the decoded array which must not be modified
+	 */
+	private <U> U memoize(Class<U> type, Supplier<U> decoder) {
+		if (getType() == PropertyType.OBJECT)
+			return decoder.get();
+
+		Object d = decoded;
+		if (type.isInstance(d))
+			return type.cast(d);
+
+		U value = decoder.get();
+		decoded = value;
+		return value;
+	}
+
+	/**
+	 * Decode a number property as a sign extended big-endian value. This matches
+	 * {@link BigInteger#longValue()} for any length.
+	 *
+	 * @return Returns the stored number
+	 */
+	private long number() {
+		int length = data.length;
+		if (length == 0)
+			throw new NumberFormatException("Zero length number");
+
+		// Only the lowest 8 bytes are kept
+		int start = Math.max(0, length - Long.BYTES);
+		long value = data[start];
+		for (int i = start + 1; i < length; i++)
+			value = (value << 8) | (data[i] & 0xFF);
+		return value;
+	}
+
+	private String numberText() {
+		return data.length <= Long.BYTES ? Long.toString(number()) : new BigInteger(data).toString();
+	}
+
+	private byte lastByte() {
+		if (data.length == 0)
+			throw new NumberFormatException("Zero length number");
+		return data[data.length - 1];
+	}
+
 	@Override
 	public PropertyType getType() {
 		return type;
@@ -3,57 +3,52 @@ package net.foxgenesis.property.lck.impl;
 import java.io.IOException;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 import net.foxgenesis.property.PropertyException;
 import net.foxgenesis.property.PropertyInfo;
 import net.foxgenesis.property.lck.LCKPropertyResolver;
 
 public class CachedLCKProperty extends LCKPropertyImpl {
-	protected final ConcurrentHashMap<Long, CachedObject<Optional<BlobMapping>>> cache = new ConcurrentHashMap<>();
-	private final long cacheTime;
+	protected final PropertyCache<BlobMapping> cache;
 
-	public CachedLCKProperty(PropertyInfo info, LCKPropertyResolver resolver, long cacheTime) {
+	public CachedLCKProperty(PropertyInfo info, LCKPropertyResolver resolver, PropertyCache<BlobMapping> cache) {
 		super(info, resolver);
-		this.cacheTime = cacheTime;
+		this.cache = Objects.requireNonNull(cache);
 	}
 
 	@Override
 	public Optional<BlobMapping> get(Long lookup) {
-		init(lookup);
-		Optional<BlobMapping> map = cache.get(lookup).get();
-		if (map != null)
-			return map;
-		return Optional.empty();
+		return Optional.ofNullable(cache.get(lookup, getInfo().id(), () -> retrieve(lookup)).get());
 	}
 
 	@Override
 	public boolean set(Long lookup, byte[] data, boolean isUserInput) {
 		checkUserInput(isUserInput);
-		init(lookup);
 		if (super.set(lookup, data, isUserInput)) {
-			cache.get(lookup).set(Optional.ofNullable(createMapping(lookup, data)));
+			cache.put(lookup, getInfo().id(), () -> retrieve(lookup), createMapping(lookup, data));
 			return true;
 		}
 		return false;
 	}
 
-	public long getCacheTime() {
-		return cacheTime;
-	}
-
-	protected void init(long lookup) {
-		if (!cache.containsKey(lookup))
-			cache.put(lookup, newCache(lookup));
+	@Override
+	public boolean remove(Long lookup, boolean isUserInput) {
+		checkUserInput(isUserInput);
+		if (super.remove(lookup, isUserInput)) {
+			cache.put(lookup, getInfo().id(), () -> retrieve(lookup), null);
+			return true;
+		}
+		return false;
 	}
 
-	private CachedObject<Optional<BlobMapping>> newCache(long lookup) {
-		return new CachedObject<>(() -> retrieve(lookup), cacheTime);
+	public long getCacheTime() {
+		return cache.getCacheTime();
 	}
 
-	private Optional<BlobMapping> retrieve(Long lookup) {
-		return resolver.getInternal(lookup, getInfo()).map(b -> createMapping(lookup, b));
+	private BlobMapping retrieve(Long lookup) {
+		return resolver.getInternal(lookup, getInfo()).map(b -> createMapping(lookup, b)).orElse(null);
 	}
 
 	protected BlobMapping createMapping(Long lookup, Blob blob) throws PropertyException {
@@ -1,30 +1,85 @@
 package net.foxgenesis.property.lck.impl;
 
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
+import net.foxgenesis.database.ConcurrencyLimiter;
+
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * A value that is retrieved with an update function and kept for
+ * {@link #getCacheTime()} milliseconds.
+ * <p>
+ * If a refresh {@link Executor} is provided, an outdated value is returned
+ * right away while a single reload runs on the executor. A value older than
+ * {@link #getMaxStaleness()} is never returned and is instead reloaded on the
+ * calling thread. If a background reload fails, the last good value is kept
+ * and the next access after {@link #getCacheTime()} tries again.
+ * </p>
+ *
+ * @param <T> value type
+ */
 public class CachedObject<T> {
+	private static final Logger logger = LoggerFactory.getLogger(CachedObject.class);
+
 	private final AtomicReference<T> obj = new AtomicReference<>();
 	private final AtomicLong lastCache = new AtomicLong();
+	private final AtomicLong lastAttempt = new AtomicLong();
+	private final AtomicLong version = new AtomicLong();
+	private final AtomicBoolean refreshing = new AtomicBoolean();
 	private final Supplier<T> updateFunction;
 
 	private final long cacheTime;
+	private final long maxStaleness;
+
+	@Nullable
+	private final Executor refreshExecutor;
 
 	public CachedObject(Supplier<T> updateFunction, long cacheTime) {
+		this(updateFunction, cacheTime, null, cacheTime);
+	}
+
+	/**
+	 * Create a new cached value that refreshes in the background.
+	 *
+	 * @param updateFunction  - function used to retrieve the value
+	 * @param cacheTime       - time in milliseconds a value is considered fresh
+	 * @param refreshExecutor - executor used to reload outdated values or
+	 *                        {@code null} to always reload on the calling thread
+	 * @param maxStaleness    - maximum age in milliseconds of a value that is
+	 *                        returned while it is being reloaded
+	 */
+	public CachedObject(Supplier<T> updateFunction, long cacheTime, @Nullable Executor refreshExecutor,
+			long maxStaleness) {
 		this.updateFunction = Objects.requireNonNull(updateFunction);
 		this.cacheTime = cacheTime;
+		this.refreshExecutor = refreshExecutor;
+		this.maxStaleness = Math.max(cacheTime, maxStaleness);
 	}
 
 	@Nullable
 	public T get() {
 		long time = System.currentTimeMillis();
-		if (time - lastCache.get() > cacheTime) {
+		long age = time - lastCache.get();
+
+		if (age > cacheTime) {
+			// Serve the stale value and reload in the background
+			if (refreshExecutor != null && age <= maxStaleness) {
+				if (time - lastAttempt.get() > cacheTime)
+					refresh(time);
+				return obj.get();
+			}
+
 			synchronized (this) {
-				if (time - lastCache.get() > cacheTime)
+				if (System.currentTimeMillis() - lastCache.get() > (refreshExecutor != null ? maxStaleness : cacheTime))
 					return getNew();
 			}
 		}
@@ -38,11 +93,22 @@ public class CachedObject<T> {
 
 	@Nullable
 	public synchronized T set(T newValue) {
+		version.incrementAndGet();
 		lastCache.set(System.currentTimeMillis());
 		obj.set(newValue);
 		return newValue;
 	}
 
+	/**
+	 * Get the currently held value without checking if it is still fresh.
+	 *
+	 * @return Returns the last retrieved value
+	 */
+	@Nullable
+	public T getCached() {
+		return obj.get();
+	}
+
 	public void invalidate() {
 		lastCache.set(0);
 	}
@@ -50,4 +116,47 @@ public class CachedObject<T> {
 	public long getCacheTime() {
 		return cacheTime;
 	}
+
+	/**
+	 * Get the maximum age of a value that is returned while it is reloaded in the
+	 * background.
+	 *
+	 * @return Returns the max staleness in milliseconds
+	 */
+	public long getMaxStaleness() {
+		return maxStaleness;
+	}
+
+	/**
+	 * Start a single background reload if none is running. The reload keeps the
+	 * priority of the caller.
+	 *
+	 * @param time - current time in milliseconds
+	 */
+	private void refresh(long time) {
+		if (!refreshing.compareAndSet(false, true))
+			return;
+		lastAttempt.set(time);
+		long expected = version.get();
+
+		try {
+			refreshExecutor.execute(ConcurrencyLimiter.withCurrentPriority(() -> {
+				try {
+					T newValue = updateFunction.get();
+
+					synchronized (this) {
+						// Do not overwrite a value that was set while we were loading
+						if (version.get() == expected)
+							set(newValue);
+					}
+				} catch (Exception e) {
+					logger.warn("Failed to refresh cached value. Keeping last known value", e);
+				} finally {
+					refreshing.set(false);
+				}
+			}));
+		} catch (RejectedExecutionException e) {
+			refreshing.set(false);
+		}
+	}
 }
@@ -0,0 +1,107 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the health of a remote resource.
+ * <p>
+ * The breaker is {@link State#CLOSED closed} while calls succeed. After
+ * {@code failureThreshold} consecutive failures it {@link State#OPEN opens} and
+ * rejects calls for {@code openDuration}. The first call after that is let
+ * through as a trial while the breaker is {@link State#HALF_OPEN half open}. A
+ * successful trial closes the breaker, a failed one opens it again.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class CircuitBreaker {
+	/**
+	 * State of a {@link CircuitBreaker}
+	 */
+	enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openNanos;
+
+	private State state = State.CLOSED;
+	private int failures;
+	private long openedAt;
+
+	/**
+	 * @param failureThreshold - consecutive failures that open the breaker
+	 * @param openDuration     - time in milliseconds calls are rejected once open
+	 */
+	CircuitBreaker(int failureThreshold, long openDuration) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openDuration));
+	}
+
+	/**
+	 * Check if a call may be made. Every permitted call must be followed by
+	 * {@link #onSuccess()}, {@link #onFailure()} or {@link #onSkipped()}.
+	 *
+	 * @return Returns {@code true} if the call is permitted
+	 */
+	synchronized boolean tryAcquire() {
+		return switch (state) {
+			case CLOSED -> true;
+			case OPEN -> {
+				if (System.nanoTime() - openedAt < openNanos)
+					yield false;
+				state = State.HALF_OPEN;
+				yield true;
+			}
+			// A trial call is already running
+			case HALF_OPEN -> false;
+		};
+	}
+
+	/**
+	 * Record a successful call.
+	 *
+	 * @return Returns {@code true} if this closed the breaker
+	 */
+	synchronized boolean onSuccess() {
+		failures = 0;
+		if (state == State.CLOSED)
+			return false;
+		state = State.CLOSED;
+		return true;
+	}
+
+	/**
+	 * Record a failed call.
+	 *
+	 * @return Returns {@code true} if this opened a closed breaker
+	 */
+	synchronized boolean onFailure() {
+		failures++;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			boolean opened = state == State.CLOSED;
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+			return opened;
+		}
+		return false;
+	}
+
+	/**
+	 * Record a permitted call that did not reach the resource. A trial call is
+	 * allowed again right away.
+	 */
+	synchronized void onSkipped() {
+		if (state == State.HALF_OPEN)
+			state = State.OPEN;
+	}
+
+	/**
+	 * Get the current state.
+	 *
+	 * @return Returns the breaker {@link State}
+	 */
+	synchronized State getState() {
+		return state;
+	}
+}
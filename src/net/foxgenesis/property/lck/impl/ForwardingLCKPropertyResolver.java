@@ -0,0 +1,103 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.io.InputStream;
+import java.sql.Blob;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An {@link LCKPropertyResolver} that forwards all calls to another resolver.
+ * Subclasses override the methods they want to change.
+ *
+ * @author Ashley
+ */
+public abstract class ForwardingLCKPropertyResolver implements LCKPropertyResolver {
+	protected final LCKPropertyResolver delegate;
+
+	protected ForwardingLCKPropertyResolver(@NotNull LCKPropertyResolver delegate) {
+		this.delegate = Objects.requireNonNull(delegate);
+	}
+
+	@Override
+	public PropertyInfo createPropertyInfo(String category, String key, boolean modifiable, PropertyType type)
+			throws PropertyException, IllegalArgumentException {
+		return delegate.createPropertyInfo(category, key, modifiable, type);
+	}
+
+	@Override
+	public boolean removePropertyInfo(String category, String key) {
+		return delegate.removePropertyInfo(category, key);
+	}
+
+	@Override
+	public boolean removePropertyInfo(PropertyInfo info) {
+		return delegate.removePropertyInfo(info);
+	}
+
+	@Override
+	public boolean isRegistered(String category, String key) throws PropertyException {
+		return delegate.isRegistered(category, key);
+	}
+
+	@Override
+	public PropertyInfo getPropertyByID(int id) throws PropertyException, NoSuchElementException {
+		return delegate.getPropertyByID(id);
+	}
+
+	@Override
+	public PropertyInfo getPropertyInfo(String category, String key) throws PropertyException, NoSuchElementException {
+		return delegate.getPropertyInfo(category, key);
+	}
+
+	@Override
+	public List<PropertyInfo> getPropertyList() throws PropertyException {
+		return delegate.getPropertyList();
+	}
+
+	@Override
+	public boolean removeInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		return delegate.removeInternal(lookup, info);
+	}
+
+	@Override
+	public boolean putInternal(Long lookup, PropertyInfo info, InputStream in) throws PropertyException {
+		return delegate.putInternal(lookup, info, in);
+	}
+
+	@Override
+	public Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		return delegate.getInternal(lookup, info);
+	}
+
+	@Override
+	public Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException {
+		return delegate.getAllInternal(lookup);
+	}
+
+	@Override
+	public Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException {
+		return delegate.getAllInternal(keys);
+	}
+
+	@Override
+	public void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException {
+		delegate.putAllInternal(values);
+	}
+
+	@Override
+	public boolean isPresent(Long lookup, PropertyInfo info) throws PropertyException {
+		return delegate.isPresent(lookup, info);
+	}
+}
@@ -0,0 +1,96 @@
+package net.foxgenesis.property.lck.impl;
+
+/**
+ * A probabilistic multiset used to estimate the popularity of an element. This
+ * is a count-min sketch with four rows of saturating 4-bit counters that are
+ * periodically halved so that old popularity fades away.
+ * <p>
+ * Updates are not synchronized. Lost increments only make the estimate slightly
+ * less accurate.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class FrequencySketch {
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private static final int MAX_FREQUENCY = 15;
+
+	private final int[] table;
+	private final int mask;
+	private final int sampleSize;
+
+	private int additions;
+
+	/**
+	 * Create a new sketch that can estimate the frequency of roughly
+	 * {@code expectedSize} elements.
+	 *
+	 * @param expectedSize - expected amount of distinct elements
+	 */
+	FrequencySketch(long expectedSize) {
+		int length = Integer.highestOneBit((int) Math.max(16, Math.min(expectedSize, 1 << 22)) - 1) << 1;
+		table = new int[length];
+		mask = length - 1;
+		sampleSize = 10 * length;
+	}
+
+	/**
+	 * Increment the popularity of an element.
+	 *
+	 * @param element - element to record
+	 */
+	void increment(Object element) {
+		int hash = spread(element.hashCode());
+		boolean added = false;
+
+		for (long seed : SEEDS) {
+			int index = index(hash, seed);
+			if (table[index] < MAX_FREQUENCY) {
+				table[index]++;
+				added = true;
+			}
+		}
+
+		if (added && ++additions >= sampleSize)
+			reset();
+	}
+
+	/**
+	 * Get the estimated popularity of an element.
+	 *
+	 * @param element - element to check
+	 *
+	 * @return Returns the estimated amount of times the {@code element} was
+	 *         recorded, capped at 15
+	 */
+	int frequency(Object element) {
+		int hash = spread(element.hashCode());
+		int frequency = MAX_FREQUENCY;
+
+		for (long seed : SEEDS)
+			frequency = Math.min(frequency, table[index(hash, seed)]);
+		return frequency;
+	}
+
+	/**
+	 * Halve every counter so that the sketch adapts to changes in popularity.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++)
+			table[i] >>>= 1;
+		additions = additions >>> 1;
+	}
+
+	private int index(int hash, long seed) {
+		long h = (hash + seed) * seed;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
@@ -0,0 +1,528 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import net.foxgenesis.property.lck.LCKKey;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A size bounded cache of property values shared by every cached property of a
+ * provider.
+ * <p>
+ * Each entry is a {@link CachedObject} that keeps its value fresh for
+ * {@link #getCacheTime()} milliseconds. The cache itself bounds the total
+ * weight of all entries to a memory budget and removes entries that have not
+ * been accessed for {@link #getExpireAfterAccess()} milliseconds. When the
+ * budget is exceeded, the least recently used entry is compared against the
+ * newly added entry and the one that was accessed less frequently (as
+ * estimated by a {@link FrequencySketch}) is evicted.
+ * </p>
+ * <p>
+ * If a refresh {@link Executor} is set, outdated values are served for up to
+ * {@link #getMaxStaleness()} milliseconds while they are reloaded in the
+ * background. See {@link CachedObject}.
+ * </p>
+ * <p>
+ * The weight of an entry is an estimate of its heap usage and is measured
+ * whenever the cache stores a value for it.
+ * </p>
+ * <p>
+ * Concurrent misses of the same property share a single load. Loads run
+ * outside of the backing map so a slow load never blocks other properties.
+ * </p>
+ *
+ * @author Ashley
+ *
+ * @param <M> property mapping type
+ */
+public class PropertyCache<M extends BlobMapping> {
+	/**
+	 * Estimated heap usage of an entry without its value
+	 */
+	private static final int ENTRY_OVERHEAD = 160;
+
+	private final ConcurrentHashMap<LCKKey, Node<M>> data = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads in progress. Later misses of the same key wait for these
+	 */
+	private final ConcurrentHashMap<LCKKey, CompletableFuture<Node<M>>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * Access ordered view of {@link #data}. Guarded by {@link #evictionLock}
+	 */
+	private final LinkedHashMap<LCKKey, Node<M>> order = new LinkedHashMap<>(16, 0.75f, true);
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final FrequencySketch sketch;
+
+	private final long maximumWeight;
+	private final long cacheTime;
+	private final long expireAfterAccess;
+	private final long maxStaleness;
+
+	@Nullable
+	private final Executor refreshExecutor;
+
+	/**
+	 * Guarded by {@link #evictionLock}
+	 */
+	private long weightedSize;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder loadTime = new LongAdder();
+
+	/**
+	 * Create a new cache.
+	 *
+	 * @param maximumWeight     - memory budget in bytes
+	 * @param cacheTime         - time in milliseconds a value is considered fresh
+	 * @param expireAfterAccess - time in milliseconds an unused entry is kept
+	 */
+	public PropertyCache(long maximumWeight, long cacheTime, long expireAfterAccess) {
+		this(maximumWeight, cacheTime, expireAfterAccess, null, cacheTime);
+	}
+
+	/**
+	 * Create a new cache that reloads outdated values in the background.
+	 *
+	 * @param maximumWeight     - memory budget in bytes
+	 * @param cacheTime         - time in milliseconds a value is considered fresh
+	 * @param expireAfterAccess - time in milliseconds an unused entry is kept
+	 * @param refreshExecutor   - executor used to reload outdated values or
+	 *                          {@code null} to reload on the calling thread
+	 * @param maxStaleness      - maximum age in milliseconds of a value that is
+	 *                          served while it is being reloaded
+	 */
+	public PropertyCache(long maximumWeight, long cacheTime, long expireAfterAccess,
+			@Nullable Executor refreshExecutor, long maxStaleness) {
+		if (maximumWeight <= 0)
+			throw new IllegalArgumentException("Maximum weight must be greater than 0");
+		this.maximumWeight = maximumWeight;
+		this.cacheTime = cacheTime;
+		this.expireAfterAccess = expireAfterAccess;
+		this.refreshExecutor = refreshExecutor;
+		this.maxStaleness = maxStaleness;
+
+		sketch = new FrequencySketch(maximumWeight / ENTRY_OVERHEAD);
+	}
+
+	/**
+	 * Get the cached entry of a property, creating and loading it with the
+	 * specified {@code loader} if it is not present.
+	 *
+	 * @param lookup     - property lookup
+	 * @param propertyId - property id
+	 * @param loader     - function used to retrieve the property value
+	 *
+	 * @return Returns the {@link CachedObject} holding the property value
+	 */
+	@NotNull
+	public CachedObject<M> get(long lookup, int propertyId, @NotNull Supplier<M> loader) {
+		LCKKey key = new LCKKey(lookup, propertyId);
+		long now = System.nanoTime();
+		sketch.increment(key);
+
+		Node<M> node = data.get(key);
+		if (node != null && !isExpired(node, now)) {
+			hits.increment();
+			afterRead(key, node, now);
+			return node.value;
+		}
+
+		misses.increment();
+		if (node != null)
+			remove(key, node);
+
+		// Wait for a load that is already running
+		CompletableFuture<Node<M>> future = new CompletableFuture<>();
+		CompletableFuture<Node<M>> running = loading.putIfAbsent(key, future);
+		if (running != null) {
+			node = await(running);
+			afterRead(key, node, now);
+			return node.value;
+		}
+
+		try {
+			node = data.get(key);
+			if (node == null || isExpired(node, now)) {
+				Node<M> loaded = load(loader, now);
+
+				// A value may have been put while we were loading
+				Node<M> current = data.putIfAbsent(key, loaded);
+				if (current == null || isExpired(current, now) && data.replace(key, current, loaded)) {
+					afterWrite(key, loaded);
+					node = loaded;
+
+					// Invalidated while loading. The loaded value may be outdated
+					if (loading.get(key) != future)
+						remove(key, loaded);
+				} else
+					node = data.getOrDefault(key, loaded);
+			} else
+				afterRead(key, node, now);
+
+			future.complete(node);
+			return node.value;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	/**
+	 * Get the cached entry of a property if it is present.
+	 *
+	 * @param lookup     - property lookup
+	 * @param propertyId - property id
+	 *
+	 * @return Returns the {@link CachedObject} holding the property value or
+	 *         {@code null} if it is not cached
+	 */
+	@Nullable
+	public CachedObject<M> getIfPresent(long lookup, int propertyId) {
+		LCKKey key = new LCKKey(lookup, propertyId);
+		Node<M> node = data.get(key);
+		long now = System.nanoTime();
+
+		if (node == null || isExpired(node, now))
+			return null;
+		afterRead(key, node, now);
+		return node.value;
+	}
+
+	/**
+	 * Store a known value for a property. If the property is not cached yet, a
+	 * new entry is created that uses the {@code loader} once the value is no
+	 * longer fresh.
+	 *
+	 * @param lookup     - property lookup
+	 * @param propertyId - property id
+	 * @param loader     - function used to retrieve the property value
+	 * @param value      - the current value or {@code null} if not present
+	 */
+	public void put(long lookup, int propertyId, @NotNull Supplier<M> loader, @Nullable M value) {
+		LCKKey key = new LCKKey(lookup, propertyId);
+		long now = System.nanoTime();
+
+		boolean[] created = new boolean[1];
+		Node<M> node = data.compute(key, (k, old) -> {
+			if (old != null && !isExpired(old, now)) {
+				old.value.set(value);
+				return old;
+			}
+			created[0] = true;
+			Node<M> n = new Node<>(newObject(loader), now);
+			n.value.set(value);
+			return n;
+		});
+
+		if (created[0])
+			afterWrite(key, node);
+		else {
+			evictionLock.lock();
+			try {
+				if (order.get(key) == node) {
+					int weight = weigh(value);
+					weightedSize += weight - node.weight;
+					node.weight = weight;
+					node.accessTime = now;
+					evict(null);
+				}
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Remove a property from the cache.
+	 *
+	 * @param lookup     - property lookup
+	 * @param propertyId - property id
+	 */
+	public void invalidate(long lookup, int propertyId) {
+		LCKKey key = new LCKKey(lookup, propertyId);
+		loading.remove(key);
+		Node<M> node = data.get(key);
+		if (node != null)
+			remove(key, node);
+	}
+
+	/**
+	 * Remove every entry from the cache.
+	 */
+	public void invalidateAll() {
+		evictionLock.lock();
+		try {
+			loading.clear();
+			data.clear();
+			order.clear();
+			weightedSize = 0;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all entries that have not been accessed within
+	 * {@link #getExpireAfterAccess()}.
+	 */
+	public void cleanUp() {
+		evictionLock.lock();
+		try {
+			expire(System.nanoTime());
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Get the time a property value is considered fresh.
+	 *
+	 * @return Returns the cache time in milliseconds
+	 */
+	public long getCacheTime() {
+		return cacheTime;
+	}
+
+	/**
+	 * Get the time an unused entry is kept in the cache.
+	 *
+	 * @return Returns the idle time in milliseconds
+	 */
+	public long getExpireAfterAccess() {
+		return expireAfterAccess;
+	}
+
+	/**
+	 * Get the maximum age of a value that is served while it is reloaded.
+	 *
+	 * @return Returns the max staleness in milliseconds
+	 */
+	public long getMaxStaleness() {
+		return maxStaleness;
+	}
+
+	/**
+	 * Get the memory budget of this cache.
+	 *
+	 * @return Returns the maximum weight in bytes
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * Get a snapshot of the statistics of this cache.
+	 *
+	 * @return Returns the current {@link Stats}
+	 */
+	@NotNull
+	public Stats getStats() {
+		long weight;
+		evictionLock.lock();
+		try {
+			weight = weightedSize;
+		} finally {
+			evictionLock.unlock();
+		}
+		return new Stats(hits.sum(), misses.sum(), evictions.sum(), loads.sum(), loadFailures.sum(), loadTime.sum(),
+				data.size(), weight);
+	}
+
+	private CachedObject<M> newObject(Supplier<M> loader) {
+		return new CachedObject<>(loader, cacheTime, refreshExecutor, maxStaleness);
+	}
+
+	private Node<M> load(Supplier<M> loader, long now) {
+		CachedObject<M> obj = newObject(loader);
+		long start = System.nanoTime();
+		try {
+			obj.getNew();
+			loads.increment();
+		} catch (RuntimeException e) {
+			loadFailures.increment();
+			throw e;
+		} finally {
+			loadTime.add(System.nanoTime() - start);
+		}
+		return new Node<>(obj, now);
+	}
+
+	private static <M> Node<M> await(CompletableFuture<Node<M>> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re)
+				throw re;
+			if (e.getCause() instanceof Error err)
+				throw err;
+			throw e;
+		}
+	}
+
+	private void afterRead(LCKKey key, Node<M> node, long now) {
+		node.accessTime = now;
+
+		// Reordering is best effort so that reads never wait on each other
+		if (evictionLock.tryLock()) {
+			try {
+				order.get(key);
+				expire(now);
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	private void afterWrite(LCKKey key, Node<M> node) {
+		evictionLock.lock();
+		try {
+			// Entry was removed before we could account for it
+			if (data.get(key) != node)
+				return;
+
+			node.weight = weigh(node.value.getCached());
+			Node<M> old = order.put(key, node);
+			if (old != null)
+				weightedSize -= old.weight;
+			weightedSize += node.weight;
+
+			expire(node.accessTime);
+			evict(key);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private void remove(LCKKey key, Node<M> node) {
+		evictionLock.lock();
+		try {
+			if (order.remove(key, node))
+				weightedSize -= node.weight;
+			data.remove(key, node);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove expired entries from the least recently used end. Must hold the
+	 * {@link #evictionLock}.
+	 *
+	 * @param now - current time in nanoseconds
+	 */
+	private void expire(long now) {
+		Iterator<Map.Entry<LCKKey, Node<M>>> it = order.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<LCKKey, Node<M>> entry = it.next();
+			Node<M> node = entry.getValue();
+			if (!isExpired(node, now))
+				break;
+
+			it.remove();
+			weightedSize -= node.weight;
+			data.remove(entry.getKey(), node);
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Evict entries until the cache is within its budget. Must hold the
+	 * {@link #evictionLock}.
+	 *
+	 * @param candidate - the newly added key or {@code null}
+	 */
+	private void evict(@Nullable LCKKey candidate) {
+		while (weightedSize > maximumWeight && !order.isEmpty()) {
+			Map.Entry<LCKKey, Node<M>> victim = order.entrySet().iterator().next();
+			LCKKey evict = victim.getKey();
+
+			// Only admit the candidate if it is used more than the victim
+			if (candidate != null && !candidate.equals(evict)
+					&& sketch.frequency(candidate) <= sketch.frequency(evict))
+				evict = candidate;
+			candidate = null;
+
+			Node<M> node = order.remove(evict);
+			weightedSize -= node.weight;
+			data.remove(evict, node);
+			evictions.increment();
+		}
+	}
+
+	private boolean isExpired(Node<M> node, long now) {
+		return now - node.accessTime > TimeUnit.MILLISECONDS.toNanos(expireAfterAccess);
+	}
+
+	private static int weigh(@Nullable BlobMapping mapping) {
+		return ENTRY_OVERHEAD + (mapping != null ? (int) mapping.getLength() : 0);
+	}
+
+	private static final class Node<M> {
+		final CachedObject<M> value;
+		volatile long accessTime;
+		int weight;
+
+		Node(CachedObject<M> value, long accessTime) {
+			this.value = value;
+			this.accessTime = accessTime;
+		}
+	}
+
+	/**
+	 * Statistics about a {@link PropertyCache}.
+	 *
+	 * @param hitCount         - amount of lookups that found a cached entry
+	 * @param missCount        - amount of lookups that had to load an entry
+	 * @param evictionCount    - amount of entries removed due to size or idle time
+	 * @param loadCount        - amount of successful loads
+	 * @param loadFailureCount - amount of loads that threw an exception
+	 * @param totalLoadTime    - total time spent loading in nanoseconds
+	 * @param size             - current amount of entries
+	 * @param weightedSize     - current estimated memory usage in bytes
+	 *
+	 * @author Ashley
+	 */
+	public record Stats(long hitCount, long missCount, long evictionCount, long loadCount, long loadFailureCount,
+			long totalLoadTime, long size, long weightedSize) {
+
+		/**
+		 * Get the ratio of lookups that found a cached entry.
+		 *
+		 * @return Returns a value between {@code 0} and {@code 1}
+		 */
+		public double hitRate() {
+			long total = hitCount + missCount;
+			return total == 0 ? 1D : (double) hitCount / total;
+		}
+
+		/**
+		 * Get the average time spent loading a new entry.
+		 *
+		 * @return Returns the average load time in nanoseconds
+		 */
+		public double averageLoadPenalty() {
+			long total = loadCount + loadFailureCount;
+			return total == 0 ? 0D : (double) totalLoadTime / total;
+		}
+	}
+}
@@ -0,0 +1,720 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+import net.foxgenesis.property.lck.impl.CircuitBreaker.State;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link LCKPropertyResolver} that keeps properties available while its
+ * delegate is unreachable.
+ * <p>
+ * Calls to the delegate pass through a {@link CircuitBreaker}. Once it opens
+ * after repeated failures, calls are no longer sent to the delegate until a
+ * trial call succeeds. In the meantime reads are answered from the last known
+ * value of every property read or written through this resolver. Reads of
+ * properties that were never seen throw a {@link PropertyException} so callers
+ * do not mistake them for unset properties.
+ * </p>
+ * <p>
+ * Only transient and connection failures count as the delegate being
+ * unreachable. Any other failure, such as an invalid property or a constraint
+ * violation, is thrown to the caller. Work shed by the database's
+ * {@link net.foxgenesis.database.ConcurrencyLimiter ConcurrencyLimiter} is
+ * thrown as well without counting as a failure.
+ * </p>
+ * <p>
+ * Writes that can not be stored are queued and replayed in a single batch once
+ * the delegate is reachable again. If the batch is rejected, the writes are
+ * replayed one by one and a write that still fails is quarantined. Reads
+ * through this resolver always see queued writes. If a directory is set, queued writes are journaled to disk
+ * before they are accepted and survive a restart, and the last known values
+ * are periodically saved as a snapshot that is loaded on startup.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class ResilientPropertyResolver extends ForwardingLCKPropertyResolver implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(ResilientPropertyResolver.class);
+
+	/**
+	 * Marker for a property known to be absent
+	 */
+	private static final byte[] ABSENT = new byte[0];
+
+	private final CircuitBreaker breaker;
+
+	/**
+	 * Last known values by lookup and property id. Least recently used lookups
+	 * are evicted first
+	 */
+	private final Map<Long, ConcurrentHashMap<Integer, byte[]>> known;
+	private final ConcurrentHashMap<Integer, PropertyInfo> infoById = new ConcurrentHashMap<>();
+
+	/**
+	 * Writes waiting to be replayed
+	 */
+	private final ConcurrentHashMap<LCKKey, byte[]> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Held while writes are queued and while replayed writes are removed so the
+	 * journal always contains every queued write
+	 */
+	private final Object queueLock = new Object();
+
+	@Nullable
+	private final WriteJournal journal;
+	/**
+	 * Writes that were rejected on their own during a replay
+	 */
+	@Nullable
+	private final WriteJournal quarantine;
+	@Nullable
+	private final Path snapshot;
+	private volatile boolean dirty;
+
+	private final ScheduledExecutorService executor;
+	private final ScheduledFuture<?> replayTask;
+	@Nullable
+	private final ScheduledFuture<?> snapshotTask;
+
+	/**
+	 * Create a new resilient resolver.
+	 *
+	 * @param delegate         - resolver to protect
+	 * @param executor         - executor used to replay writes and save
+	 *                         snapshots
+	 * @param failureThreshold - consecutive failures before the delegate is
+	 *                         considered down
+	 * @param openDuration     - time in milliseconds before a call is sent to a
+	 *                         delegate that is down
+	 * @param maxLookups       - maximum amount of lookups to remember values of
+	 * @param directory        - directory for the write journal and snapshot or
+	 *                         {@code null} to keep them in memory
+	 * @param snapshotInterval - time in seconds between snapshots
+	 *
+	 * @throws IOException Thrown if the journal or snapshot could not be read
+	 */
+	public ResilientPropertyResolver(@NotNull LCKPropertyResolver delegate,
+			@NotNull ScheduledExecutorService executor, int failureThreshold, long openDuration, int maxLookups,
+			@Nullable Path directory, long snapshotInterval) throws IOException {
+		super(delegate);
+		this.executor = executor;
+		this.breaker = new CircuitBreaker(failureThreshold, openDuration);
+
+		int max = Math.max(1, maxLookups);
+		this.known = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 4373165513346066346L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, ConcurrentHashMap<Integer, byte[]>> eldest) {
+				return size() > max;
+			}
+		});
+
+		if (directory != null) {
+			Files.createDirectories(directory);
+			journal = new WriteJournal(directory.resolve("pending.journal"));
+			quarantine = new WriteJournal(directory.resolve("quarantine.journal"));
+			snapshot = directory.resolve("snapshot.bin");
+
+			pending.putAll(journal.recover());
+			if (!pending.isEmpty())
+				logger.info("Recovered {} queued property writes", pending.size());
+			int quarantined = quarantine.recover().size();
+			if (quarantined > 0)
+				logger.warn("{} rejected property writes are kept in {}", quarantined,
+						directory.resolve("quarantine.journal"));
+			loadSnapshot();
+		} else {
+			journal = null;
+			quarantine = null;
+			snapshot = null;
+		}
+
+		long interval = Math.max(1, openDuration);
+		replayTask = executor.scheduleWithFixedDelay(this::replayQuietly, interval, interval, TimeUnit.MILLISECONDS);
+		snapshotTask = snapshot != null && snapshotInterval > 0
+				? executor.scheduleWithFixedDelay(this::saveSnapshotQuietly, snapshotInterval, snapshotInterval,
+						TimeUnit.SECONDS)
+				: null;
+	}
+
+	// =========================================================================================================
+	// Reads
+
+	@Override
+	public Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		LCKKey key = new LCKKey(lookup, info.id());
+		byte[] queued = pending.get(key);
+		if (queued != null)
+			return Optional.ofNullable(toBlob(queued));
+
+		return call(() -> {
+			Optional<Blob> value = delegate.getInternal(lookup, info);
+			remember(key, value.map(ResilientPropertyResolver::toBytes).orElse(ABSENT));
+			return value;
+		}, () -> Optional.ofNullable(toBlob(lastKnown(key))));
+	}
+
+	@Override
+	public Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException {
+		Map<Integer, Blob> map = call(() -> {
+			Map<Integer, Blob> values = delegate.getAllInternal(lookup);
+
+			// The result is every property of the lookup
+			ConcurrentHashMap<Integer, byte[]> all = new ConcurrentHashMap<>();
+			values.forEach((id, blob) -> all.put(id, toBytes(blob)));
+			known.put(lookup, all);
+			dirty = true;
+			return new HashMap<>(values);
+		}, () -> {
+			ConcurrentHashMap<Integer, byte[]> all = known.get(lookup);
+			if (all == null)
+				throw new PropertyException("Properties of " + lookup + " are unavailable while the database is down");
+
+			Map<Integer, Blob> values = new HashMap<>();
+			all.forEach((id, data) -> {
+				if (data != ABSENT)
+					values.put(id, toBlob(data));
+			});
+			return values;
+		});
+
+		pending.forEach((key, data) -> {
+			if (key.lookup() != lookup)
+				return;
+			if (data.length == 0)
+				map.remove(key.propertyId());
+			else
+				map.put(key.propertyId(), toBlob(data));
+		});
+		return map;
+	}
+
+	@Override
+	public Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException {
+		Map<LCKKey, Blob> map = call(() -> {
+			Map<LCKKey, Blob> values = delegate.getAllInternal(keys);
+			for (LCKKey key : keys) {
+				Blob blob = values.get(key);
+				remember(key, blob != null ? toBytes(blob) : ABSENT);
+			}
+			return new HashMap<>(values);
+		}, () -> {
+			Map<LCKKey, Blob> values = new HashMap<>();
+			for (LCKKey key : keys) {
+				byte[] data = lastKnown(key);
+				if (data != ABSENT)
+					values.put(key, toBlob(data));
+			}
+			return values;
+		});
+
+		for (LCKKey key : keys) {
+			byte[] queued = pending.get(key);
+			if (queued == null)
+				continue;
+			if (queued.length == 0)
+				map.remove(key);
+			else
+				map.put(key, toBlob(queued));
+		}
+		return map;
+	}
+
+	@Override
+	public boolean isPresent(Long lookup, PropertyInfo info) throws PropertyException {
+		LCKKey key = new LCKKey(lookup, info.id());
+		byte[] queued = pending.get(key);
+		if (queued != null)
+			return queued.length > 0;
+
+		return call(() -> delegate.isPresent(lookup, info), () -> lastKnown(key) != ABSENT);
+	}
+
+	@Override
+	public PropertyInfo getPropertyByID(int id) throws PropertyException, NoSuchElementException {
+		return call(() -> rememberInfo(delegate.getPropertyByID(id)), () -> {
+			PropertyInfo info = infoById.get(id);
+			if (info == null)
+				throw new PropertyException("Property " + id + " is unavailable while the database is down");
+			return info;
+		});
+	}
+
+	@Override
+	public PropertyInfo getPropertyInfo(String category, String key) throws PropertyException, NoSuchElementException {
+		return call(() -> rememberInfo(delegate.getPropertyInfo(category, key)), () -> infoById.values().stream()
+				.filter(info -> info.category().equalsIgnoreCase(category) && info.name().equalsIgnoreCase(key))
+				.findAny().orElseThrow(() -> new PropertyException(
+						"Property " + category + "." + key + " is unavailable while the database is down")));
+	}
+
+	@Override
+	public List<PropertyInfo> getPropertyList() throws PropertyException {
+		return call(() -> {
+			List<PropertyInfo> list = delegate.getPropertyList();
+			list.forEach(this::rememberInfo);
+			return list;
+		}, () -> {
+			if (infoById.isEmpty())
+				throw new PropertyException("Property list is unavailable while the database is down");
+			return new ArrayList<>(infoById.values());
+		});
+	}
+
+	// =========================================================================================================
+	// Writes
+
+	@Override
+	public boolean putInternal(Long lookup, PropertyInfo info, InputStream in) throws PropertyException {
+		if (in == null)
+			return removeInternal(lookup, info);
+
+		byte[] data;
+		try (in) {
+			data = in.readAllBytes();
+		} catch (IOException e) {
+			throw new PropertyException(e);
+		}
+		if (data.length == 0)
+			return removeInternal(lookup, info);
+
+		LCKKey key = new LCKKey(lookup, info.id());
+		return write(key, data, () -> delegate.putInternal(lookup, info, new ByteArrayInputStream(data)));
+	}
+
+	@Override
+	public boolean removeInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		return write(new LCKKey(lookup, info.id()), ABSENT, () -> delegate.removeInternal(lookup, info));
+	}
+
+	@Override
+	public void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException {
+		if (values.isEmpty())
+			return;
+
+		if (pending.isEmpty() && breaker.tryAcquire()) {
+			try {
+				delegate.putAllInternal(values);
+				succeeded();
+				values.forEach((key, data) -> remember(key, data == null ? ABSENT : data));
+				return;
+			} catch (PropertyException e) {
+				onFailure(e);
+			} catch (RuntimeException e) {
+				succeeded();
+				throw e;
+			}
+		}
+
+		values.forEach((key, data) -> enqueue(key, data == null ? ABSENT : data));
+	}
+
+	/**
+	 * Write all queued writes to the delegate.
+	 *
+	 * @return Returns {@code true} if nothing is left to replay
+	 */
+	public synchronized boolean replay() {
+		if (pending.isEmpty())
+			return true;
+		if (!breaker.tryAcquire())
+			return false;
+
+		Map<LCKKey, byte[]> batch = new HashMap<>(pending);
+		try {
+			delegate.putAllInternal(batch);
+			succeeded();
+			dequeue(batch, true);
+			logger.info("Replayed {} queued property writes", batch.size());
+		} catch (RuntimeException e) {
+			StorageFailure failure = StorageFailure.classify(e);
+			if (failure != StorageFailure.REJECTED) {
+				skipped(e, failure);
+				return false;
+			}
+
+			// The delegate answered. Find the writes it rejects
+			succeeded();
+			logger.warn("Queued property writes were rejected. Replaying them one by one", e);
+			if (!replayEach(batch))
+				return false;
+		}
+
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Replay writes one at a time and quarantine the writes that are rejected.
+	 *
+	 * @param batch - writes to replay
+	 *
+	 * @return Returns {@code false} if the delegate became unreachable
+	 */
+	private boolean replayEach(Map<LCKKey, byte[]> batch) {
+		for (Map.Entry<LCKKey, byte[]> entry : batch.entrySet()) {
+			Map<LCKKey, byte[]> single = Map.of(entry.getKey(), entry.getValue());
+			try {
+				delegate.putAllInternal(single);
+			} catch (RuntimeException e) {
+				StorageFailure failure = StorageFailure.classify(e);
+				if (failure != StorageFailure.REJECTED) {
+					skipped(e, failure);
+					return false;
+				}
+
+				logger.error("Quarantining rejected property write for " + entry.getKey(), e);
+				if (quarantine != null)
+					try {
+						quarantine.append(entry.getKey(), entry.getValue());
+					} catch (IOException e1) {
+						logger.error("Failed to quarantine property write", e1);
+					}
+				dequeue(single, false);
+				continue;
+			}
+			dequeue(single, true);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove replayed writes from the queue and the journal. Writes queued again
+	 * in the meantime are kept.
+	 *
+	 * @param batch  - writes that were stored or quarantined
+	 * @param stored - if the writes were stored by the delegate
+	 */
+	private void dequeue(Map<LCKKey, byte[]> batch, boolean stored) {
+		synchronized (queueLock) {
+			batch.forEach((key, data) -> {
+				if (pending.remove(key, data) && stored)
+					remember(key, data);
+			});
+
+			if (journal != null)
+				try {
+					journal.reset(new HashMap<>(pending));
+				} catch (IOException e) {
+					logger.error("Failed to truncate property write journal", e);
+				}
+		}
+	}
+
+	/**
+	 * Get the amount of writes waiting to be replayed.
+	 *
+	 * @return Returns the amount of queued writes
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Check if the delegate is considered reachable.
+	 *
+	 * @return Returns {@code false} while calls are not sent to the delegate
+	 */
+	public boolean isAvailable() {
+		return breaker.getState() == State.CLOSED;
+	}
+
+	/**
+	 * Stop background tasks, try to replay queued writes and save a final
+	 * snapshot. Writes that could not be replayed stay in the journal.
+	 */
+	@Override
+	public void close() throws IOException {
+		replayTask.cancel(false);
+		if (snapshotTask != null)
+			snapshotTask.cancel(false);
+
+		try {
+			if (!replay())
+				logger.warn("{} property writes could not be stored", pending.size());
+		} catch (RuntimeException e) {
+			logger.error("Failed to replay queued property writes", e);
+		}
+
+		saveSnapshot();
+		if (journal != null)
+			journal.close();
+		if (quarantine != null)
+			quarantine.close();
+	}
+
+	// =========================================================================================================
+
+	private <T> T call(Supplier<T> action, Supplier<T> fallback) {
+		if (!breaker.tryAcquire())
+			return fallback.get();
+
+		T result;
+		try {
+			result = action.get();
+		} catch (PropertyException e) {
+			onFailure(e);
+			try {
+				return fallback.get();
+			} catch (PropertyException unavailable) {
+				// Nothing is known. Report why the delegate could not answer
+				throw e;
+			}
+		} catch (RuntimeException e) {
+			// The delegate answered
+			succeeded();
+			throw e;
+		}
+		succeeded();
+		return result;
+	}
+
+	private boolean write(LCKKey key, byte[] data, Supplier<Boolean> action) {
+		// Queued writes must be stored first to keep their order
+		if (pending.isEmpty() && breaker.tryAcquire()) {
+			try {
+				boolean result = action.get();
+				succeeded();
+				remember(key, data);
+				return result;
+			} catch (PropertyException e) {
+				onFailure(e);
+			} catch (RuntimeException e) {
+				succeeded();
+				throw e;
+			}
+		}
+
+		enqueue(key, data);
+		return true;
+	}
+
+	private void enqueue(LCKKey key, byte[] data) {
+		synchronized (queueLock) {
+			if (journal != null)
+				try {
+					journal.append(key, data);
+				} catch (IOException e) {
+					throw new PropertyException("Failed to queue property write", e);
+				}
+			pending.put(key, data);
+		}
+	}
+
+	/**
+	 * Record a failed call to the delegate. Returns normally only if the delegate
+	 * is unreachable. Any other failure is thrown to the caller.
+	 *
+	 * @param e - thrown exception
+	 */
+	private void onFailure(PropertyException e) {
+		StorageFailure failure = StorageFailure.classify(e);
+		if (failure == StorageFailure.REJECTED)
+			succeeded();
+		else
+			skipped(e, failure);
+
+		if (failure != StorageFailure.UNREACHABLE)
+			throw e;
+	}
+
+	private void skipped(RuntimeException e, StorageFailure failure) {
+		if (failure == StorageFailure.UNREACHABLE)
+			failed(e);
+		else if (failure == StorageFailure.OVERLOADED)
+			breaker.onSkipped();
+	}
+
+	private void succeeded() {
+		if (breaker.onSuccess()) {
+			logger.info("Property storage is available again");
+			if (!pending.isEmpty())
+				try {
+					executor.execute(this::replayQuietly);
+				} catch (RejectedExecutionException e) {
+					// Replayed on close
+				}
+		}
+	}
+
+	private void failed(RuntimeException e) {
+		if (breaker.onFailure())
+			logger.error("Property storage is unavailable. Serving last known values", e);
+		else
+			logger.debug("Property storage call failed", e);
+	}
+
+	private void replayQuietly() {
+		try {
+			replay();
+		} catch (Exception e) {
+			logger.error("Failed to replay queued property writes", e);
+		}
+	}
+
+	/**
+	 * Get the last known value of a property.
+	 *
+	 * @param key - property to get
+	 *
+	 * @return Returns the last known value or {@link #ABSENT} if the property was
+	 *         known to be absent
+	 *
+	 * @throws PropertyException Thrown if the property was never seen
+	 */
+	private byte[] lastKnown(LCKKey key) {
+		Map<Integer, byte[]> values = known.get(key.lookup());
+		byte[] data = values != null ? values.get(key.propertyId()) : null;
+		if (data == null)
+			throw new PropertyException("Property " + key + " is unavailable while the database is down");
+		return data;
+	}
+
+	private void remember(LCKKey key, byte[] data) {
+		known.computeIfAbsent(key.lookup(), l -> new ConcurrentHashMap<>()).put(key.propertyId(),
+				data.length == 0 ? ABSENT : data);
+		dirty = true;
+	}
+
+	private PropertyInfo rememberInfo(PropertyInfo info) {
+		infoById.put(info.id(), info);
+		return info;
+	}
+
+
+	// =========================================================================================================
+	// Snapshot
+
+	private void loadSnapshot() throws IOException {
+		if (snapshot == null || !Files.exists(snapshot))
+			return;
+
+		int count = 0;
+		try (InputStream file = Files.newInputStream(snapshot);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+			int infos = in.readInt();
+			for (int i = 0; i < infos; i++)
+				rememberInfo(new PropertyInfo(in.readInt(), in.readUTF(), in.readUTF(), in.readBoolean(),
+						PropertyType.valueOf(in.readUTF())));
+
+			while (true) {
+				long lookup = in.readLong();
+				int id = in.readInt();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				known.computeIfAbsent(lookup, l -> new ConcurrentHashMap<>()).put(id, data);
+				count++;
+			}
+		} catch (EOFException e) {
+			// End of snapshot
+		} catch (RuntimeException e) {
+			logger.warn("Ignoring unreadable property snapshot", e);
+		}
+		logger.debug("Loaded {} properties from snapshot", count);
+	}
+
+	private synchronized void saveSnapshot() throws IOException {
+		if (snapshot == null || !dirty)
+			return;
+		dirty = false;
+
+		Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+		try (OutputStream file = Files.newOutputStream(tmp);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			List<PropertyInfo> infos = new ArrayList<>(infoById.values());
+			out.writeInt(infos.size());
+			for (PropertyInfo info : infos) {
+				out.writeInt(info.id());
+				out.writeUTF(info.category());
+				out.writeUTF(info.name());
+				out.writeBoolean(info.modifiable());
+				out.writeUTF(info.type().name());
+			}
+
+			List<Map.Entry<Long, ConcurrentHashMap<Integer, byte[]>>> lookups;
+			synchronized (known) {
+				lookups = known.entrySet().stream().map(e -> Map.entry(e.getKey(), e.getValue())).toList();
+			}
+
+			for (Map.Entry<Long, ConcurrentHashMap<Integer, byte[]>> entry : lookups)
+				for (Map.Entry<Integer, byte[]> value : entry.getValue().entrySet()) {
+					if (value.getValue() == ABSENT)
+						continue;
+					out.writeLong(entry.getKey());
+					out.writeInt(value.getKey());
+					out.writeInt(value.getValue().length);
+					out.write(value.getValue());
+				}
+		}
+		Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void saveSnapshotQuietly() {
+		try {
+			saveSnapshot();
+		} catch (IOException e) {
+			dirty = true;
+			logger.warn("Failed to save property snapshot", e);
+		}
+	}
+
+	private static byte[] toBytes(Blob blob) {
+		try {
+			long length = blob.length();
+			return length == 0 ? ABSENT : blob.getBytes(1, (int) length);
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	private static Blob toBlob(byte[] data) {
+		if (data == null || data.length == 0)
+			return null;
+		try {
+			return new SerialBlob(data);
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.sql.SQLException;
+
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.OverloadedException;
+
+/**
+ * Kind of failed call to a property storage.
+ *
+ * @author Ashley
+ */
+enum StorageFailure {
+	/**
+	 * The storage could not be reached
+	 */
+	UNREACHABLE,
+	/**
+	 * The call was shed before it reached the storage
+	 */
+	OVERLOADED,
+	/**
+	 * The storage rejected the call
+	 */
+	REJECTED;
+
+	/**
+	 * Decide if a failure means the storage is unreachable. Only transient and
+	 * connection {@link SQLException}s do.
+	 *
+	 * @param e - thrown exception
+	 *
+	 * @return Returns the kind of failure
+	 *
+	 * @see ConcurrencyLimiter#isOverload(Throwable)
+	 */
+	static StorageFailure classify(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause())
+			if (t instanceof OverloadedException)
+				return OVERLOADED;
+		return ConcurrencyLimiter.isOverload(e) ? UNREACHABLE : REJECTED;
+	}
+}
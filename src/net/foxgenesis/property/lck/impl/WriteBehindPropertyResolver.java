@@ -0,0 +1,299 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link LCKPropertyResolver} that buffers property writes and writes them
+ * to the delegate in batches.
+ * <p>
+ * Writes and removals are kept in memory and flushed every
+ * {@link #getFlushInterval()} milliseconds, or earlier once
+ * {@link #getMaxPending()} properties are waiting. Repeated writes to the same
+ * property before a flush are combined into a single write of the latest
+ * value. Reads through this resolver always see buffered values.
+ * </p>
+ * <p>
+ * <b>Durability:</b> {@link #putInternal(Long, PropertyInfo, InputStream)} and
+ * {@link #removeInternal(Long, PropertyInfo)} return {@code true} once the
+ * change is buffered, not once it is stored. A flush is written in a single
+ * transaction. If it fails, its changes are buffered again (unless a newer
+ * value was written in the meantime) and retried on the next flush. Buffered
+ * changes are written on {@link #close()}; changes made within the last flush
+ * interval are lost if the process is killed without closing this resolver.
+ * </p>
+ * <p>
+ * A flush is written with the highest {@link Priority} of the callers whose
+ * changes it contains.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class WriteBehindPropertyResolver extends ForwardingLCKPropertyResolver implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(WriteBehindPropertyResolver.class);
+
+	/**
+	 * Marker for a buffered removal
+	 */
+	private static final byte[] REMOVED = new byte[0];
+
+	private final ConcurrentHashMap<LCKKey, byte[]> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Changes that are currently being written
+	 */
+	private volatile Map<LCKKey, byte[]> flushing = Map.of();
+
+	private final ScheduledExecutorService executor;
+	private final ScheduledFuture<?> task;
+	private final long flushInterval;
+	private final int maxPending;
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	/**
+	 * Ordinal of the highest priority of the buffered changes
+	 */
+	private final AtomicInteger pendingPriority = new AtomicInteger(Priority.BACKGROUND.ordinal());
+
+	private volatile boolean closed;
+
+	/**
+	 * Create a new write-behind resolver.
+	 *
+	 * @param delegate      - resolver to write to
+	 * @param executor      - executor used to flush buffered writes
+	 * @param flushInterval - time in milliseconds between flushes
+	 * @param maxPending    - amount of buffered properties that triggers an early
+	 *                      flush
+	 */
+	public WriteBehindPropertyResolver(@NotNull LCKPropertyResolver delegate,
+			@NotNull ScheduledExecutorService executor, long flushInterval, int maxPending) {
+		super(delegate);
+		if (flushInterval <= 0)
+			throw new IllegalArgumentException("Flush interval must be greater than 0");
+		this.executor = Objects.requireNonNull(executor);
+		this.flushInterval = flushInterval;
+		this.maxPending = Math.max(1, maxPending);
+
+		task = executor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public boolean putInternal(Long lookup, PropertyInfo info, InputStream in) throws PropertyException {
+		if (in == null)
+			return removeInternal(lookup, info);
+
+		try (in) {
+			buffer(new LCKKey(lookup, info.id()), in.readAllBytes());
+			return true;
+		} catch (IOException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	@Override
+	public boolean removeInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		buffer(new LCKKey(lookup, info.id()), REMOVED);
+		return true;
+	}
+
+	@Override
+	public Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		byte[] data = getBuffered(new LCKKey(lookup, info.id()));
+		if (data != null)
+			return Optional.ofNullable(toBlob(data));
+		return super.getInternal(lookup, info);
+	}
+
+	@Override
+	public Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException {
+		Map<Integer, Blob> map = new HashMap<>(super.getAllInternal(lookup));
+		overlay(flushing, lookup, map);
+		overlay(pending, lookup, map);
+		return map;
+	}
+
+	@Override
+	public Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException {
+		Map<LCKKey, Blob> map = new HashMap<>(super.getAllInternal(keys));
+		for (LCKKey key : keys) {
+			byte[] data = getBuffered(key);
+			if (data == REMOVED)
+				map.remove(key);
+			else if (data != null)
+				map.put(key, toBlob(data));
+		}
+		return map;
+	}
+
+	@Override
+	public boolean isPresent(Long lookup, PropertyInfo info) throws PropertyException {
+		byte[] data = getBuffered(new LCKKey(lookup, info.id()));
+		if (data != null)
+			return data != REMOVED;
+		return super.isPresent(lookup, info);
+	}
+
+	/**
+	 * Write all buffered changes to the delegate.
+	 *
+	 * @throws PropertyException Thrown if the changes could not be written. The
+	 *                           changes are kept and retried on the next flush
+	 */
+	public synchronized void flush() throws PropertyException {
+		if (pending.isEmpty())
+			return;
+
+		Priority priority = Priority.values()[pendingPriority.getAndSet(Priority.BACKGROUND.ordinal())];
+
+		// Publish the batch first so reads keep seeing changes while they move
+		Map<LCKKey, byte[]> batch = new ConcurrentHashMap<>();
+		flushing = batch;
+		for (LCKKey key : pending.keySet()) {
+			byte[] data = pending.get(key);
+			if (data != null) {
+				batch.put(key, data);
+				pending.remove(key, data);
+			}
+		}
+
+		try {
+			ConcurrencyLimiter.runWithPriority(priority, () -> delegate.putAllInternal(batch));
+			logger.debug("Flushed {} buffered properties", batch.size());
+		} catch (RuntimeException e) {
+			// Keep failed changes unless they were replaced
+			batch.forEach(pending::putIfAbsent);
+			raisePriority(priority);
+			throw e;
+		} finally {
+			flushing = Map.of();
+		}
+	}
+
+	/**
+	 * Get the amount of properties waiting to be written.
+	 *
+	 * @return Returns the amount of buffered changes
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Get the time between flushes.
+	 *
+	 * @return Returns the flush interval in milliseconds
+	 */
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	/**
+	 * Get the amount of buffered properties that triggers an early flush.
+	 *
+	 * @return Returns the maximum amount of buffered changes
+	 */
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	/**
+	 * Stop flushing in the background and write all buffered changes. Changes
+	 * made after this method is called are written directly to the delegate.
+	 */
+	@Override
+	public void close() throws PropertyException {
+		closed = true;
+		task.cancel(false);
+		flush();
+	}
+
+	private void buffer(LCKKey key, byte[] data) {
+		if (data.length == 0)
+			data = REMOVED;
+
+		if (closed) {
+			delegate.putAllInternal(Map.of(key, data));
+			return;
+		}
+
+		raisePriority(ConcurrencyLimiter.getPriority());
+		pending.put(key, data);
+
+		if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::flushQuietly);
+			} catch (RejectedExecutionException e) {
+				flushQuietly();
+			}
+		}
+	}
+
+	private void raisePriority(Priority priority) {
+		pendingPriority.accumulateAndGet(priority.ordinal(), Math::min);
+	}
+
+	private byte[] getBuffered(LCKKey key) {
+		byte[] data = pending.get(key);
+		return data != null ? data : flushing.get(key);
+	}
+
+	private void flushQuietly() {
+		flushRequested.set(false);
+		try {
+			flush();
+		} catch (Exception e) {
+			logger.error("Failed to flush " + pending.size() + " buffered properties. Retrying later", e);
+		}
+	}
+
+	private static void overlay(Map<LCKKey, byte[]> changes, long lookup, Map<Integer, Blob> map) {
+		changes.forEach((key, data) -> {
+			if (key.lookup() != lookup)
+				return;
+			if (data == REMOVED)
+				map.remove(key.propertyId());
+			else
+				map.put(key.propertyId(), toBlob(data));
+		});
+	}
+
+	private static Blob toBlob(byte[] data) {
+		if (data == REMOVED)
+			return null;
+		try {
+			return new SerialBlob(data);
+		} catch (SQLException e) {
+			throw new PropertyException(e);
+		}
+	}
+}
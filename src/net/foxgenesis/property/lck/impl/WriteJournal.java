@@ -0,0 +1,140 @@
+package net.foxgenesis.property.lck.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.foxgenesis.property.lck.LCKKey;
+
+/**
+ * Append-only file of property writes that could not be stored yet.
+ * <p>
+ * Every record is {@code [long lookup][int property id][int length][data]}
+ * where a length of {@code 0} is a removal. Records are forced to disk before
+ * {@link #append(LCKKey, byte[])} returns. A record cut short by a crash is
+ * ignored when the journal is read.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class WriteJournal implements AutoCloseable {
+	private static final int HEADER = Long.BYTES + Integer.BYTES * 2;
+
+	/**
+	 * Largest accepted record. Anything larger is a corrupt length
+	 */
+	private static final int MAX_RECORD = 64 * 1024 * 1024;
+
+	private final Path path;
+	private FileChannel channel;
+
+	/**
+	 * Open a journal. Writes left from a previous run are read with
+	 * {@link #recover()}.
+	 *
+	 * @param path - journal file
+	 */
+	WriteJournal(Path path) {
+		this.path = Objects.requireNonNull(path);
+	}
+
+	/**
+	 * Read every journaled write and rewrite the journal without superseded or
+	 * incomplete records. Must be called before writes are appended.
+	 *
+	 * @return Returns the latest data of every journaled key in write order
+	 *
+	 * @throws IOException Thrown if the journal could not be read
+	 */
+	synchronized Map<LCKKey, byte[]> recover() throws IOException {
+		Map<LCKKey, byte[]> map = new LinkedHashMap<>();
+		if (!Files.exists(path)) {
+			channel = open(path);
+			return map;
+		}
+
+		try (InputStream file = Files.newInputStream(path);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+			while (true) {
+				LCKKey key = new LCKKey(in.readLong(), in.readInt());
+				int length = in.readInt();
+				if (length < 0 || length > MAX_RECORD)
+					break;
+				byte[] data = new byte[length];
+				in.readFully(data);
+				map.remove(key);
+				map.put(key, data);
+			}
+		} catch (EOFException e) {
+			// End of journal or a record cut short
+		}
+
+		reset(map);
+		return map;
+	}
+
+	/**
+	 * Durably append a write.
+	 *
+	 * @param key  - written property
+	 * @param data - written data or an empty array for a removal
+	 *
+	 * @throws IOException Thrown if the write could not be journaled
+	 */
+	synchronized void append(LCKKey key, byte[] data) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + data.length);
+		buffer.putLong(key.lookup()).putInt(key.propertyId()).putInt(data.length).put(data).flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		channel.force(false);
+	}
+
+	/**
+	 * Replace the journal with the specified writes.
+	 *
+	 * @param remaining - writes that are still pending
+	 *
+	 * @throws IOException Thrown if the journal could not be replaced
+	 */
+	synchronized void reset(Map<LCKKey, byte[]> remaining) throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Map.Entry<LCKKey, byte[]> entry : remaining.entrySet()) {
+				byte[] data = entry.getValue();
+				ByteBuffer buffer = ByteBuffer.allocate(HEADER + data.length);
+				buffer.putLong(entry.getKey().lookup()).putInt(entry.getKey().propertyId()).putInt(data.length)
+						.put(data).flip();
+				while (buffer.hasRemaining())
+					out.write(buffer);
+			}
+			out.force(true);
+		}
+
+		if (channel != null)
+			channel.close();
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = open(path);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null)
+			channel.close();
+	}
+
+	private static FileChannel open(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+}
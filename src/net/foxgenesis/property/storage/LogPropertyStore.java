@@ -0,0 +1,979 @@
+package net.foxgenesis.property.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import net.foxgenesis.property.PropertyException;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.lck.LCKKey;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link LCKPropertyResolver} storing properties in local files instead of a
+ * database.
+ * <p>
+ * Every change is appended to a memory-mapped segment file as a checksummed
+ * record. Once a segment is full a new one is started. The location of every
+ * stored value is kept in memory, so reads are served directly from the
+ * mapped segments without any network or query overhead.
+ * </p>
+ * <p>
+ * <b>Recovery:</b> All segments are read in order when the store is opened.
+ * Reading a segment stops at the first incomplete or corrupted record, which
+ * is what a crash during a write leaves behind. Multiple writes made with
+ * {@link #putAllInternal(Map)} are stored as a single record and are either
+ * restored completely or not at all. Records are written to the memory
+ * mapping and survive the process being killed. They are only forced to disk
+ * on every write if {@code sync} is enabled.
+ * </p>
+ * <p>
+ * <b>Compaction:</b> Full segments are periodically merged into new segments
+ * holding only the current values once more than half of their space is taken
+ * by outdated records. The merged segments are no larger than any other
+ * segment and take over the sequence numbers of the last segments they
+ * replace. They are written to part files and checked first. A single marker
+ * file listing them commits the compaction, after which the old segments are
+ * replaced. A compaction that was committed but not finished is completed on
+ * the next compaction or start.
+ * </p>
+ * <p>
+ * Only a single process can open a store at a time.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class LogPropertyStore implements LCKPropertyResolver, AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(LogPropertyStore.class);
+
+	private static final String PREFIX = "segment-";
+	private static final String LOG = ".log";
+	private static final String COMPACTED = ".compacted";
+	private static final String PART = ".part";
+	private static final String TEMP = ".tmp";
+
+	/**
+	 * Size of the record length and checksum
+	 */
+	private static final int HEADER = Integer.BYTES * 2;
+
+	/**
+	 * Size of a lookup and property id
+	 */
+	private static final int KEY = Long.BYTES + Integer.BYTES;
+
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	private static final byte INFO = 3;
+	private static final byte REMOVE_INFO = 4;
+	private static final byte BATCH = 5;
+
+	private final Path directory;
+	private final int segmentSize;
+	private final boolean sync;
+
+	/**
+	 * Guards appending records and updating the index
+	 */
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	/**
+	 * Full segments ordered by sequence
+	 */
+	private volatile List<Segment> segments = List.of();
+	private volatile Segment active;
+
+	/**
+	 * Location of every stored value by lookup and property id
+	 */
+	private final ConcurrentHashMap<Long, ConcurrentHashMap<Integer, Location>> index = new ConcurrentHashMap<>();
+
+	private final ConcurrentHashMap<Integer, PropertyInfo> infoById = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, PropertyInfo> infoByName = new ConcurrentHashMap<>();
+	private int nextId = 1;
+
+	private final FileChannel lockChannel;
+	private final FileLock lock;
+	private final ScheduledFuture<?> compactionTask;
+
+	private volatile boolean closed;
+
+	/**
+	 * Open a store in the specified {@code directory}, creating it if needed.
+	 *
+	 * @param directory          - directory holding the segment files
+	 * @param segmentSize        - size of a segment file in bytes. At most
+	 *                           {@link Integer#MAX_VALUE}
+	 * @param sync               - force every write to disk before returning
+	 * @param executor           - executor used to compact segments
+	 * @param compactionInterval - time in seconds between compaction checks
+	 *
+	 * @throws IOException Thrown if the store is in use or can not be read
+	 */
+	public LogPropertyStore(@NotNull Path directory, long segmentSize, boolean sync,
+			@NotNull ScheduledExecutorService executor, long compactionInterval) throws IOException {
+		if (segmentSize <= HEADER)
+			throw new IllegalArgumentException("Segment size is too small");
+		// Segments are mapped as a single buffer
+		if (segmentSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Segment size can not exceed " + Integer.MAX_VALUE + " bytes");
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = (int) segmentSize;
+		this.sync = sync;
+
+		lockChannel = FileChannel.open(directory.resolve(".lock"), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		lock = lockChannel.tryLock();
+		if (lock == null) {
+			lockChannel.close();
+			throw new IOException("Property store " + directory + " is used by another process");
+		}
+
+		try {
+			recover();
+		} catch (IOException | RuntimeException e) {
+			lock.release();
+			lockChannel.close();
+			throw e;
+		}
+
+		compactionTask = executor.scheduleWithFixedDelay(() -> {
+			try {
+				if (shouldCompact())
+					compact();
+			} catch (Exception e) {
+				logger.error("Failed to compact property store", e);
+			}
+		}, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+	}
+
+	// ================================= Values =====================================
+
+	@Override
+	public Optional<Blob> getInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		validate(lookup);
+		Map<Integer, Location> values = index.get(lookup);
+		if (values == null)
+			return Optional.empty();
+		Location location = values.get(info.id());
+		return location == null ? Optional.empty() : Optional.of(location.blob());
+	}
+
+	@Override
+	public Map<Integer, Blob> getAllInternal(Long lookup) throws PropertyException {
+		validate(lookup);
+		Map<Integer, Blob> map = new HashMap<>();
+		Map<Integer, Location> values = index.get(lookup);
+		if (values != null)
+			values.forEach((id, location) -> map.put(id, location.blob()));
+		return map;
+	}
+
+	@Override
+	public Map<LCKKey, Blob> getAllInternal(Collection<LCKKey> keys) throws PropertyException {
+		Map<LCKKey, Blob> map = new HashMap<>();
+		for (LCKKey key : keys) {
+			validate(key.lookup());
+			Map<Integer, Location> values = index.get(key.lookup());
+			Location location = values != null ? values.get(key.propertyId()) : null;
+			if (location != null)
+				map.put(key, location.blob());
+		}
+		return map;
+	}
+
+	@Override
+	public boolean isPresent(Long lookup, PropertyInfo info) throws PropertyException {
+		validate(lookup);
+		Map<Integer, Location> values = index.get(lookup);
+		return values != null && values.containsKey(info.id());
+	}
+
+	@Override
+	public boolean putInternal(Long lookup, PropertyInfo info, InputStream in) throws PropertyException {
+		if (in == null)
+			return removeInternal(lookup, info);
+
+		byte[] data;
+		try (in) {
+			data = in.readAllBytes();
+		} catch (IOException e) {
+			throw new PropertyException(e);
+		}
+
+		validate(lookup);
+		checkRegistered(info.id());
+		ByteBuffer record = record(PUT, KEY + data.length);
+		record.putLong(lookup).putInt(info.id()).put(data);
+
+		writeLock.lock();
+		try {
+			int offset = append(record);
+			put(lookup, info.id(), new Location(active, offset + 1 + KEY, data.length));
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removeInternal(Long lookup, PropertyInfo info) throws PropertyException {
+		validate(lookup);
+
+		writeLock.lock();
+		try {
+			if (!isPresent(lookup, info))
+				return false;
+
+			ByteBuffer record = record(DELETE, KEY);
+			record.putLong(lookup).putInt(info.id());
+			append(record);
+			remove(lookup, info.id());
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void putAllInternal(Map<LCKKey, byte[]> values) throws PropertyException {
+		if (values.isEmpty())
+			return;
+
+		long size = Integer.BYTES;
+		for (Map.Entry<LCKKey, byte[]> entry : values.entrySet()) {
+			validate(entry.getKey().lookup());
+			checkRegistered(entry.getKey().propertyId());
+			byte[] data = entry.getValue();
+			size += 1 + KEY + (data == null || data.length == 0 ? 0 : Integer.BYTES + (long) data.length);
+		}
+		if (HEADER + 1 + size > segmentSize)
+			throw new PropertyException("Batch of " + size + "B exceeds the segment size");
+
+		// Store all values in a single record so they are recovered together
+		ByteBuffer record = record(BATCH, (int) size);
+		record.putInt(values.size());
+		List<LCKKey> keys = new ArrayList<>(values.size());
+		int[] offsets = new int[values.size()];
+
+		int i = 0;
+		for (Map.Entry<LCKKey, byte[]> entry : values.entrySet()) {
+			LCKKey key = entry.getKey();
+			byte[] data = entry.getValue();
+			boolean delete = data == null || data.length == 0;
+
+			record.put(delete ? DELETE : PUT).putLong(key.lookup()).putInt(key.propertyId());
+			if (!delete)
+				record.putInt(data.length);
+			keys.add(key);
+			offsets[i++] = delete ? -1 : record.position() - HEADER;
+			if (!delete)
+				record.put(data);
+		}
+
+		writeLock.lock();
+		try {
+			int offset = append(record);
+			for (i = 0; i < offsets.length; i++) {
+				LCKKey key = keys.get(i);
+				if (offsets[i] < 0)
+					remove(key.lookup(), key.propertyId());
+				else
+					put(key.lookup(), key.propertyId(), new Location(active, offset + offsets[i],
+							values.get(key).length));
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	// ============================== Property Info =================================
+
+	@Override
+	public PropertyInfo createPropertyInfo(String category, String key, boolean modifiable, PropertyType type)
+			throws PropertyException, IllegalArgumentException {
+		validate(category, key);
+
+		writeLock.lock();
+		try {
+			if (infoByName.containsKey(normalize(category, key)))
+				throw new IllegalArgumentException("Property already exists");
+
+			logger.debug("Creating property: [{}] {} (modifiable: {}, type: {})", category, key, modifiable, type);
+			PropertyInfo info = new PropertyInfo(nextId, category, key, modifiable, type);
+			append(infoRecord(info));
+
+			register(info);
+			return info;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removePropertyInfo(String category, String key) {
+		validate(category, key);
+		PropertyInfo info = infoByName.get(normalize(category, key));
+		return info != null && removePropertyInfo(info);
+	}
+
+	@Override
+	public boolean removePropertyInfo(PropertyInfo info) {
+		writeLock.lock();
+		try {
+			if (!infoById.containsKey(info.id()))
+				return false;
+
+			logger.debug("Deleting property: {}", info);
+			ByteBuffer record = record(REMOVE_INFO, Integer.BYTES);
+			record.putInt(info.id());
+			append(record);
+
+			unregister(info.id());
+			return true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isRegistered(String category, String key) throws PropertyException {
+		validate(category, key);
+		return infoByName.containsKey(normalize(category, key));
+	}
+
+	@Override
+	public PropertyInfo getPropertyByID(int id) throws PropertyException, NoSuchElementException {
+		if (id < 0)
+			throw new PropertyException("Invalid property id");
+		PropertyInfo info = infoById.get(id);
+		if (info == null)
+			throw new NoSuchElementException("No property with id " + id);
+		return info;
+	}
+
+	@Override
+	public PropertyInfo getPropertyInfo(String category, String key) throws PropertyException, NoSuchElementException {
+		validate(category, key);
+		PropertyInfo info = infoByName.get(normalize(category, key));
+		if (info == null)
+			throw new NoSuchElementException("No property [" + category + "] " + key);
+		return info;
+	}
+
+	@Override
+	public List<PropertyInfo> getPropertyList() throws PropertyException {
+		return infoById.values().stream().sorted(Comparator.comparingInt(PropertyInfo::id)).toList();
+	}
+
+	// ================================= Storage ====================================
+
+	/**
+	 * Merge all full segments into segments containing only their current
+	 * values.
+	 *
+	 * @throws IOException Thrown if the merged segments could not be written
+	 */
+	public synchronized void compact() throws IOException {
+		List<Segment> sealed = segments;
+		if (sealed.isEmpty() || closed)
+			return;
+
+		// An earlier compaction must be finished before its segments are merged again
+		finishCompactions();
+
+		Set<Segment> merged = Collections.newSetFromMap(new IdentityHashMap<>());
+		merged.addAll(sealed);
+		Segment last = sealed.get(sealed.size() - 1);
+		long start = System.nanoTime();
+
+		// Collect the values that are still current
+		List<LCKKey> keys = new ArrayList<>();
+		List<Location> old = new ArrayList<>();
+		index.forEach((lookup, values) -> values.forEach((id, location) -> {
+			if (merged.contains(location.segment)) {
+				keys.add(new LCKKey(lookup, id));
+				old.add(location);
+			}
+		}));
+		List<ByteBuffer> infos = infoById.values().stream().map(LogPropertyStore::infoRecord).toList();
+
+		// Split the records into parts no larger than a segment
+		int records = infos.size() + keys.size();
+		int[] partOf = new int[records];
+		int[] offsets = new int[records];
+		int parts = 0;
+		long used = 0;
+		for (int r = 0; r < records; r++) {
+			long size = r < infos.size() ? infos.get(r).capacity()
+					: HEADER + 1 + KEY + old.get(r - infos.size()).length;
+			if (parts == 0 || used + size > segmentSize) {
+				parts++;
+				used = 0;
+			}
+			partOf[r] = parts - 1;
+			offsets[r] = (int) used;
+			used += size;
+		}
+		if (parts > sealed.size()) {
+			logger.debug("Skipping compaction as the current values need {} segments", parts);
+			return;
+		}
+
+		// Parts take over the sequence numbers of the last replaced segments
+		long[] sequences = new long[parts];
+		for (int j = 0; j < parts; j++)
+			sequences[j] = sealed.get(sealed.size() - parts + j).sequence;
+
+		List<Segment> compacted = new ArrayList<>(parts);
+		try {
+			int r = 0;
+			for (int j = 0; j < parts; j++) {
+				Path path = file(sequences[j], PART);
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					for (; r < records && partOf[r] == j; r++) {
+						if (r < infos.size()) {
+							write(channel, infos.get(r));
+							continue;
+						}
+
+						LCKKey key = keys.get(r - infos.size());
+						Location location = old.get(r - infos.size());
+						ByteBuffer record = record(PUT, KEY + location.length);
+						record.putLong(key.lookup()).putInt(key.propertyId());
+						record.put(location.segment.buffer.slice(location.offset, location.length));
+						write(channel, record);
+					}
+					channel.force(true);
+				}
+
+				// Check the part before the compaction is committed
+				Segment segment = Segment.open(sequences[j], path);
+				if (readRecords(segment.buffer, offset -> {}) != segment.capacity())
+					throw new IOException("Compacted segment " + path + " is corrupted");
+				segment.size = segment.capacity();
+				compacted.add(segment);
+			}
+
+			// Commit the compaction
+			ByteBuffer marker = ByteBuffer.allocate(Integer.BYTES + Long.BYTES * parts);
+			marker.putInt(parts);
+			for (long sequence : sequences)
+				marker.putLong(sequence);
+			marker.flip();
+
+			Path temp = file(last.sequence, TEMP);
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (marker.hasRemaining())
+					channel.write(marker);
+				channel.force(true);
+			}
+			Files.move(temp, file(last.sequence, COMPACTED), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			for (long sequence : sequences)
+				Files.deleteIfExists(file(sequence, PART));
+			Files.deleteIfExists(file(last.sequence, TEMP));
+			throw e;
+		}
+
+		// Point all values that were not changed in the meantime to the merged segments
+		writeLock.lock();
+		try {
+			for (int i = 0; i < keys.size(); i++) {
+				int r = infos.size() + i;
+				LCKKey key = keys.get(i);
+				Location location = new Location(compacted.get(partOf[r]), offsets[r] + HEADER + 1 + KEY,
+						old.get(i).length);
+				Map<Integer, Location> values = index.get(key.lookup());
+				if (values != null)
+					values.replace(key.propertyId(), old.get(i), location);
+			}
+
+			List<Segment> list = new ArrayList<>(segments);
+			list.removeAll(sealed);
+			list.addAll(0, compacted);
+			segments = List.copyOf(list);
+		} finally {
+			writeLock.unlock();
+		}
+
+		// Replace the old segments. Completed later if this fails
+		try {
+			finishCompactions();
+			for (Segment segment : compacted)
+				segment.moved(file(segment.sequence, LOG));
+		} catch (IOException e) {
+			logger.warn("Failed to remove compacted segments", e);
+		}
+
+		logger.info("Compacted {} segments into {} values in {} segments in {}ms", sealed.size(), keys.size(),
+				parts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	/**
+	 * Get the directory holding the segment files.
+	 *
+	 * @return Returns the store directory
+	 */
+	@NotNull
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void close() throws IOException {
+		compactionTask.cancel(false);
+		synchronized (this) {
+			writeLock.lock();
+			try {
+				if (closed)
+					return;
+				closed = true;
+				active.buffer.force();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		lock.release();
+		lockChannel.close();
+	}
+
+	/**
+	 * Check if more than half of the full segments is taken by outdated
+	 * records.
+	 *
+	 * @return Returns {@code true} if the full segments should be compacted
+	 */
+	private boolean shouldCompact() {
+		List<Segment> sealed = segments;
+		if (sealed.size() < 2)
+			return false;
+
+		Set<Segment> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		set.addAll(sealed);
+		long total = sealed.stream().mapToLong(s -> s.size).sum();
+		long live = index.values().stream().flatMap(values -> values.values().stream())
+				.filter(location -> set.contains(location.segment))
+				.mapToLong(location -> HEADER + 1 + KEY + location.length).sum();
+		return live * 2 < total;
+	}
+
+	/**
+	 * Append a record to the active segment, starting a new segment if it is
+	 * full. Must be called while holding the write lock.
+	 *
+	 * @param record - record to append
+	 *
+	 * @return Returns the offset of the record content inside the active segment
+	 */
+	private int append(ByteBuffer record) {
+		if (closed)
+			throw new PropertyException("Property store is closed");
+
+		// Fill in the header
+		CRC32 crc = new CRC32();
+		crc.update(record.slice(HEADER, record.capacity() - HEADER));
+		record.putInt(0, record.capacity() - HEADER).putInt(Integer.BYTES, (int) crc.getValue());
+
+		if ((long) active.size + record.capacity() > active.capacity()) {
+			if (record.capacity() > segmentSize)
+				throw new PropertyException("Property of " + record.capacity() + "B exceeds the segment size");
+			roll();
+		}
+
+		int position = active.size;
+		active.buffer.put(position, record.array());
+		if (sync)
+			active.buffer.force(position, record.capacity());
+		active.size = position + record.capacity();
+		return position + HEADER;
+	}
+
+	/**
+	 * Seal the active segment and start a new one.
+	 */
+	private void roll() {
+		try {
+			Segment next = Segment.create(active.sequence + 1, file(active.sequence + 1, LOG), segmentSize);
+			active.buffer.force();
+
+			List<Segment> list = new ArrayList<>(segments);
+			list.add(active);
+			segments = List.copyOf(list);
+			active = next;
+			logger.debug("Started property segment {}", next.sequence);
+		} catch (IOException e) {
+			throw new PropertyException(e);
+		}
+	}
+
+	/**
+	 * Finish interrupted compactions and read all segments.
+	 *
+	 * @throws IOException Thrown if a segment could not be read
+	 */
+	private void recover() throws IOException {
+		TreeMap<Long, Path> logs = finishCompactions();
+
+		List<Segment> list = new ArrayList<>();
+		for (Map.Entry<Long, Path> entry : logs.entrySet()) {
+			Segment segment = Segment.open(entry.getKey(), entry.getValue());
+			replay(segment);
+
+			// Segment was started but never written to
+			if (segment.size == 0)
+				Files.delete(entry.getValue());
+			else
+				list.add(segment);
+		}
+		segments = List.copyOf(list);
+
+		long sequence = logs.isEmpty() ? 0 : logs.lastKey() + 1;
+		active = Segment.create(sequence, file(sequence, LOG), segmentSize);
+		logger.info("Loaded {} properties of {} lookups from {} segments", infoById.size(), index.size(),
+				list.size());
+	}
+
+	/**
+	 * Finish compactions that were committed but whose old segments were not
+	 * replaced yet. A compaction is committed once its marker exists. It replaces
+	 * every segment up to the sequence of the marker with the parts it lists.
+	 * Files of compactions that were never committed are deleted.
+	 *
+	 * @return Returns the segment files by sequence
+	 *
+	 * @throws IOException Thrown if a compaction could not be finished
+	 */
+	private TreeMap<Long, Path> finishCompactions() throws IOException {
+		TreeMap<Long, Path> logs = new TreeMap<>();
+		TreeMap<Long, Path> markers = new TreeMap<>();
+		Map<Long, Path> parts = new HashMap<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*")) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				int dot = name.indexOf('.');
+				long sequence;
+				try {
+					sequence = Long.parseLong(name.substring(PREFIX.length(), dot));
+				} catch (NumberFormatException | IndexOutOfBoundsException e) {
+					continue;
+				}
+
+				switch (name.substring(dot)) {
+					case LOG -> logs.put(sequence, path);
+					case COMPACTED -> markers.put(sequence, path);
+					case PART -> parts.put(sequence, path);
+					case TEMP -> Files.delete(path);
+				}
+			}
+		}
+
+		for (Map.Entry<Long, Path> entry : markers.entrySet()) {
+			Set<Long> replacements = readMarker(entry.getValue());
+
+			// Segments without a replacement part were merged away
+			Iterator<Map.Entry<Long, Path>> i = logs.headMap(entry.getKey(), true).entrySet().iterator();
+			while (i.hasNext()) {
+				Map.Entry<Long, Path> log = i.next();
+				if (!replacements.contains(log.getKey())) {
+					Files.delete(log.getValue());
+					i.remove();
+				}
+			}
+
+			for (long sequence : replacements) {
+				Path part = parts.remove(sequence);
+				if (part != null) {
+					Path log = file(sequence, LOG);
+					Files.move(part, log, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+					logs.put(sequence, log);
+				} else if (!logs.containsKey(sequence))
+					// Part was neither promoted before nor written
+					throw new IOException("Compacted segment " + sequence + " is missing");
+			}
+			Files.delete(entry.getValue());
+		}
+
+		// Parts of compactions that were never committed
+		for (Path part : parts.values())
+			Files.delete(part);
+		return logs;
+	}
+
+	/**
+	 * Read the sequences of the parts listed in a compaction marker.
+	 *
+	 * @param marker - marker file
+	 *
+	 * @return Returns the sequences of the parts
+	 *
+	 * @throws IOException Thrown if the marker could not be read
+	 */
+	private static Set<Long> readMarker(Path marker) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(marker));
+		if (buffer.remaining() < Integer.BYTES
+				|| buffer.remaining() != Integer.BYTES + (long) Long.BYTES * buffer.getInt(0))
+			throw new IOException("Compaction marker " + marker + " is corrupted");
+
+		Set<Long> sequences = new HashSet<>();
+		for (int i = buffer.getInt(); i > 0; i--)
+			sequences.add(buffer.getLong());
+		return sequences;
+	}
+
+	/**
+	 * Apply every valid record of a segment.
+	 *
+	 * @param segment - segment to read
+	 */
+	private void replay(Segment segment) {
+		ByteBuffer buffer = segment.buffer;
+		int position = readRecords(buffer, offset -> apply(segment, offset));
+
+		if (position + Integer.BYTES <= buffer.capacity() && buffer.getInt(position) != 0)
+			logger.warn("Ignoring incomplete record in {} at {}", segment.path(), position);
+		segment.size = position;
+	}
+
+	/**
+	 * Walk the records of a segment until the first incomplete or corrupted one.
+	 *
+	 * @param buffer - segment content
+	 * @param action - action run with the content offset of every valid record
+	 *
+	 * @return Returns the offset after the last valid record
+	 */
+	private static int readRecords(ByteBuffer buffer, IntConsumer action) {
+		int limit = buffer.capacity();
+		int position = 0;
+
+		while (position + HEADER <= limit) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || length > limit - position - HEADER)
+				break;
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.slice(position + HEADER, length));
+			if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES))
+				break;
+
+			action.accept(position + HEADER);
+			position += HEADER + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Apply a record read from a segment.
+	 *
+	 * @param segment - segment containing the record
+	 * @param offset  - offset of the record content
+	 */
+	private void apply(Segment segment, int offset) {
+		ByteBuffer buffer = segment.buffer;
+		byte type = buffer.get(offset);
+		int position = offset + 1;
+
+		switch (type) {
+			case PUT -> put(buffer.getLong(position), buffer.getInt(position + Long.BYTES),
+					new Location(segment, position + KEY,
+							buffer.getInt(offset - HEADER) - 1 - KEY));
+			case DELETE -> remove(buffer.getLong(position), buffer.getInt(position + Long.BYTES));
+			case INFO -> {
+				int id = buffer.getInt(position);
+				boolean modifiable = buffer.get(position + 4) != 0;
+				PropertyType propertyType = PropertyType.values()[buffer.get(position + 5)];
+				position += 6;
+				byte[] category = new byte[buffer.getShort(position)];
+				buffer.get(position + Short.BYTES, category);
+				position += Short.BYTES + category.length;
+				byte[] name = new byte[buffer.getShort(position)];
+				buffer.get(position + Short.BYTES, name);
+
+				register(new PropertyInfo(id, new String(category, StandardCharsets.UTF_8),
+						new String(name, StandardCharsets.UTF_8), modifiable, propertyType));
+			}
+			case REMOVE_INFO -> unregister(buffer.getInt(position));
+			case BATCH -> {
+				int count = buffer.getInt(position);
+				position += Integer.BYTES;
+				for (int i = 0; i < count; i++) {
+					byte op = buffer.get(position);
+					long lookup = buffer.getLong(position + 1);
+					int id = buffer.getInt(position + 1 + Long.BYTES);
+					position += 1 + KEY;
+
+					if (op == DELETE)
+						remove(lookup, id);
+					else {
+						int length = buffer.getInt(position);
+						put(lookup, id, new Location(segment, position + Integer.BYTES, length));
+						position += Integer.BYTES + length;
+					}
+				}
+			}
+			default -> logger.warn("Unknown record type {} in {}", type, segment.path());
+		}
+	}
+
+	private void put(long lookup, int id, Location location) {
+		index.computeIfAbsent(lookup, l -> new ConcurrentHashMap<>()).put(id, location);
+	}
+
+	private void remove(long lookup, int id) {
+		index.computeIfPresent(lookup, (l, values) -> {
+			values.remove(id);
+			return values.isEmpty() ? null : values;
+		});
+	}
+
+	private void register(PropertyInfo info) {
+		PropertyInfo old = infoById.put(info.id(), info);
+		if (old != null)
+			infoByName.remove(normalize(old.category(), old.name()));
+		infoByName.put(normalize(info.category(), info.name()), info);
+		nextId = Math.max(nextId, info.id() + 1);
+	}
+
+	private void unregister(int id) {
+		PropertyInfo info = infoById.remove(id);
+		if (info != null)
+			infoByName.remove(normalize(info.category(), info.name()));
+
+		// Remove all values of the property
+		for (Long lookup : index.keySet())
+			remove(lookup, id);
+	}
+
+	private void checkRegistered(int id) {
+		if (!infoById.containsKey(id))
+			throw new PropertyException("Property " + id + " is not registered");
+	}
+
+	private Path file(long sequence, String extension) {
+		return directory.resolve(PREFIX + "%020d".formatted(sequence) + extension);
+	}
+
+	private static ByteBuffer infoRecord(PropertyInfo info) {
+		byte[] c = info.category().getBytes(StandardCharsets.UTF_8);
+		byte[] k = info.name().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = record(INFO, Integer.BYTES + 2 + Short.BYTES * 2 + c.length + k.length);
+		record.putInt(info.id()).put((byte) (info.modifiable() ? 1 : 0)).put((byte) info.type().ordinal());
+		record.putShort((short) c.length).put(c).putShort((short) k.length).put(k);
+		return record;
+	}
+
+	/**
+	 * Create a buffer for a record with space for its header.
+	 *
+	 * @param type   - record type
+	 * @param length - size of the record content excluding the type
+	 *
+	 * @return Returns a buffer positioned after the record type
+	 */
+	private static ByteBuffer record(byte type, int length) {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER + 1 + length);
+		buffer.position(HEADER);
+		buffer.put(type);
+		return buffer;
+	}
+
+	/**
+	 * Fill in the header of a record and write it to a channel.
+	 *
+	 * @param channel - channel to write to
+	 * @param record  - record to write
+	 *
+	 * @throws IOException Thrown if the record could not be written
+	 */
+	private static void write(FileChannel channel, ByteBuffer record) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(record.slice(HEADER, record.capacity() - HEADER));
+		record.putInt(0, record.capacity() - HEADER).putInt(Integer.BYTES, (int) crc.getValue());
+
+		record.clear();
+		while (record.hasRemaining())
+			channel.write(record);
+	}
+
+	private static void validate(long lookup) {
+		if (lookup <= 0)
+			throw new PropertyException("Invalid lookup");
+	}
+
+	private static void validate(String category, String key) {
+		if (category.isBlank() || key.isBlank())
+			throw new IllegalArgumentException("Category and key can not be blank!");
+		if (category.length() > MAX_CATEGORY_LENGTH)
+			throw new IllegalArgumentException("Category length can not exceed " + MAX_CATEGORY_LENGTH + " characters");
+		if (key.length() > MAX_KEY_LENGTH)
+			throw new IllegalArgumentException("Key length can not exceed " + MAX_KEY_LENGTH + " characters");
+	}
+
+	/**
+	 * Create the registry key of a property. Matching is case insensitive like
+	 * the database.
+	 */
+	private static String normalize(String category, String name) {
+		return category.toLowerCase(Locale.ROOT) + '\0' + name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Location of a stored value inside a segment.
+	 */
+	private record Location(Segment segment, int offset, int length) {
+		Blob blob() {
+			byte[] data = new byte[length];
+			segment.buffer.get(offset, data);
+			try {
+				return new SerialBlob(data);
+			} catch (SQLException e) {
+				throw new PropertyException(e);
+			}
+		}
+	}
+}
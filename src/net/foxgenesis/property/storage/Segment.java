@@ -0,0 +1,104 @@
+package net.foxgenesis.property.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A memory-mapped file of a {@link LogPropertyStore}. Records are only ever
+ * appended to the end of a segment.
+ *
+ * @author Ashley
+ */
+final class Segment {
+	final long sequence;
+	final MappedByteBuffer buffer;
+	private volatile Path path;
+
+	/**
+	 * End of the written records. Only modified while holding the store's write
+	 * lock
+	 */
+	volatile int size;
+
+	private Segment(long sequence, Path path, MappedByteBuffer buffer, int size) {
+		this.sequence = sequence;
+		this.path = Objects.requireNonNull(path);
+		this.buffer = Objects.requireNonNull(buffer);
+		this.size = size;
+	}
+
+	/**
+	 * Create a new writable segment.
+	 *
+	 * @param sequence - segment sequence number
+	 * @param path     - file to create
+	 * @param capacity - size of the file in bytes
+	 *
+	 * @return Returns the created segment
+	 *
+	 * @throws IOException Thrown if the file already exists or can not be mapped
+	 */
+	static Segment create(long sequence, Path path, int capacity) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			return new Segment(sequence, path, channel.map(MapMode.READ_WRITE, 0, capacity), 0);
+		}
+	}
+
+	/**
+	 * Map an existing segment for reading.
+	 *
+	 * @param sequence - segment sequence number
+	 * @param path     - file to open
+	 *
+	 * @return Returns the opened segment. Its size must be set once its records
+	 *         are read
+	 *
+	 * @throws IOException Thrown if the file can not be mapped
+	 */
+	static Segment open(long sequence, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE)
+				throw new IOException("Segment " + path + " is too large");
+			return new Segment(sequence, path, channel.map(MapMode.READ_ONLY, 0, length), 0);
+		}
+	}
+
+	/**
+	 * Get the maximum amount of bytes this segment can hold.
+	 *
+	 * @return Returns the segment capacity
+	 */
+	int capacity() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * Get the file backing this segment.
+	 *
+	 * @return Returns the segment file
+	 */
+	Path path() {
+		return path;
+	}
+
+	/**
+	 * Update the file backing this segment after it was moved.
+	 *
+	 * @param path - new location of the segment file
+	 */
+	void moved(Path path) {
+		this.path = Objects.requireNonNull(path);
+	}
+
+	@Override
+	public String toString() {
+		return "Segment[" + sequence + ", " + size + "B]";
+	}
+}
@@ -0,0 +1,62 @@
+package net.foxgenesis.util;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helpers to publish beans through the platform {@link MBeanServer}.
+ *
+ * @author Ashley
+ */
+public final class MBeanUtils {
+	private static final Logger logger = LoggerFactory.getLogger(MBeanUtils.class);
+
+	/**
+	 * Register a bean with the platform {@link MBeanServer}, replacing a
+	 * previously registered bean with the same name.
+	 *
+	 * @param name - object name of the bean
+	 * @param bean - bean to register
+	 *
+	 * @return Returns the registered name or {@code null} if registration failed
+	 */
+	@Nullable
+	public static ObjectName register(@NotNull String name, @NotNull Object bean) {
+		try {
+			ObjectName objectName = new ObjectName(name);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(bean, objectName);
+			return objectName;
+		} catch (JMException e) {
+			logger.warn("Failed to register " + name, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Remove a bean from the platform {@link MBeanServer}.
+	 *
+	 * @param name - name returned by {@link #register(String, Object)}
+	 */
+	public static void unregister(@Nullable ObjectName name) {
+		if (name == null)
+			return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+		} catch (JMException e) {
+			logger.warn("Failed to unregister " + name, e);
+		}
+	}
+}
@@ -58,6 +58,38 @@ public class FormattedModuleResource extends ModuleResource {
 		this.mappings = Objects.requireNonNull(mappings);
 	}
 
+	/**
+	 * Create a new {@link ModuleResource} that points to a specified
+	 * {@code resource} inside a {@code module}.
+	 * <p>
+	 * The specified {@link Map} will be used to format all data in this resource.
+	 * </p>
+	 *
+	 * @param module   - {@link Module} containing the resource
+	 * @param resource - absolute path to the resource
+	 * @param mappings - a {@link Map} containing all the properties to format
+	 *
+	 * @throws NullPointerException If the module, resource name or mappings are
+	 *                              null
+	 */
+	@SuppressWarnings("null")
+	public FormattedModuleResource(@NotNull Module module, @NotNull String resource,
+			@SuppressWarnings("exports") @NotNull Map<@NotNull String, @NotNull String> mappings) {
+		super(module, resource);
+		this.mappings = Objects.requireNonNull(mappings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The variant is formatted with the same mappings as this resource.
+	 * </p>
+	 */
+	@Override
+	public FormattedModuleResource getVariant(String variant) {
+		return new FormattedModuleResource(getModule(), variantPath(variant), mappings);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * <p>
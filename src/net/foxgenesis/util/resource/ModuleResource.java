@@ -126,6 +126,50 @@ public class ModuleResource {
 		return properties;
 	}
 
+	/**
+	 * Check if this resource is present inside its module.
+	 *
+	 * @return Returns {@code true} if this resource can be read
+	 *
+	 * @throws IOException If an I/O error occurs
+	 */
+	public boolean exists() throws IOException {
+		try (InputStream in = module.getResourceAsStream(path)) {
+			return in != null;
+		}
+	}
+
+	/**
+	 * Get a variant of this resource located next to it. The variant name is
+	 * inserted before the file extension, so the {@code h2} variant of
+	 * {@code /setup.sql} is {@code /setup.h2.sql}.
+	 *
+	 * @param variant - name of the variant
+	 *
+	 * @return Returns a {@link ModuleResource} pointing to the variant
+	 */
+	@NotNull
+	public ModuleResource getVariant(@NotNull String variant) {
+		return new ModuleResource(module, variantPath(variant));
+	}
+
+	/**
+	 * Get the path of a variant of this resource.
+	 *
+	 * @param variant - name of the variant
+	 *
+	 * @return Returns the absolute path of the variant
+	 *
+	 * @see #getVariant(String)
+	 */
+	protected String variantPath(@NotNull String variant) {
+		int slash = path.lastIndexOf('/');
+		int dot = path.lastIndexOf('.');
+		if (dot <= slash)
+			return path + '.' + variant;
+		return path.substring(0, dot) + '.' + variant + path.substring(dot);
+	}
+
 	/**
 	 * Get the {@link Module} containing this resource.
 	 *
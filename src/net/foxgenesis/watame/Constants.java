@@ -2,6 +2,7 @@ package net.foxgenesis.watame;
 
 import java.io.File;
 
+import net.foxgenesis.property.database.LCKConfigurationDatabase;
 import net.foxgenesis.util.resource.ModuleResource;
 
 import org.jetbrains.annotations.NotNull;
@@ -17,9 +18,13 @@ public final class Constants {
 	public static final File PLUGINS_FOLDER = new File("plugins");
 
 	public static final long PLUGIN_PROPERTY_CACHE_TIME = 300_000; // 5 minutes
+	public static final long PLUGIN_PROPERTY_EXPIRE_AFTER_ACCESS = 3_600_000; // 1 hour
+	public static final long PLUGIN_PROPERTY_MAX_STALENESS = 1_800_000; // 30 minutes
+	public static final long PLUGIN_PROPERTY_CACHE_BUDGET = 64; // 64 MB
 
 	public static final String DATABASE_TABLE_PROPERTY_INFO = "PropertyInfo";
 	public static final String DATABASE_TABLE_PROPERTIES = "Properties";
+	public static final String DATABASE_TABLE_PROPERTY_CHANGES = LCKConfigurationDatabase.CHANGE_LOG_TABLE;
 
 	private static ModuleResource resource(@NotNull String path) {
 		return new ModuleResource("watamebot", "/META-INF/" + path);
@@ -1,14 +1,23 @@
 package net.foxgenesis.watame;
 
 import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import net.foxgenesis.database.DatabaseManager;
+import net.foxgenesis.executor.BoundedExecutor;
 import net.foxgenesis.watame.plugin.EventStore;
+import net.foxgenesis.watame.plugin.Plugin;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -21,16 +30,62 @@ import net.dv8tion.jda.api.JDABuilder;
 public class Context implements Closeable {
 	private static final Logger logger = LoggerFactory.getLogger(Context.class);
 
+	/**
+	 * Default amount of tasks a plugin may run at once
+	 */
+	public static final int DEFAULT_THREADS = 4;
+
+	/**
+	 * Default amount of tasks a plugin may have waiting
+	 */
+	public static final int DEFAULT_QUEUE = 1000;
+
 	private final EventStore eventStore;
 
 	private final ExecutorService executor;
 
 	private final BiConsumer<String, String> pbConsumer;
 
+	/**
+	 * Executors owned by each plugin
+	 */
+	private final Map<Plugin, BoundedExecutor> pluginExecutors = new ConcurrentHashMap<>();
+
+	/**
+	 * Plugins whose executor was shut down. Plugins are equal by identifier and
+	 * version, so the exact instance is kept to not reject a reloaded plugin. Weak
+	 * so unloaded plugins can be collected
+	 */
+	private final Map<Plugin, WeakReference<Plugin>> closedPlugins = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	private volatile boolean closed;
+
+	private final Function<Plugin, BoundedExecutor> executorFactory;
+
 	public Context(@NotNull JDABuilder builder, @Nullable ExecutorService executor,
 			@NotNull BiConsumer<String, String> pbConsumer) {
+		this(builder, executor, pbConsumer, null);
+	}
+
+	/**
+	 * Create a new context.
+	 *
+	 * @param builder         - discord connection builder
+	 * @param executor        - executor for core tasks or {@code null} for the
+	 *                        common pool
+	 * @param pbConsumer      - consumer of push notifications
+	 * @param executorFactory - function creating the executor of a plugin or
+	 *                        {@code null} for {@value #DEFAULT_THREADS} threads
+	 *                        and a queue of {@value #DEFAULT_QUEUE}
+	 */
+	public Context(@NotNull JDABuilder builder, @Nullable ExecutorService executor,
+			@NotNull BiConsumer<String, String> pbConsumer,
+			@Nullable Function<Plugin, BoundedExecutor> executorFactory) {
 		this.executor = Objects.requireNonNullElse(executor, ForkJoinPool.commonPool());
 		this.pbConsumer = Objects.requireNonNull(pbConsumer);
+		this.executorFactory = Objects.requireNonNullElse(executorFactory,
+				plugin -> new BoundedExecutor(plugin.getInfo().getID(), DEFAULT_THREADS, DEFAULT_QUEUE));
 		eventStore = new EventStore(builder);
 	}
 
@@ -49,6 +104,55 @@ public class Context implements Closeable {
 		return executor;
 	}
 
+	/**
+	 * Get the executor owned by a plugin. Tasks of one plugin can not starve the
+	 * tasks of other plugins or the core. The executor is created on first use
+	 * and shut down when the plugin is unloaded.
+	 *
+	 * @param plugin - owner of the executor
+	 *
+	 * @return Returns the bounded executor of the {@code plugin}
+	 *
+	 * @throws RejectedExecutionException Thrown if the executor of the
+	 *                                    {@code plugin} was already shut down
+	 */
+	@NotNull
+	public ExecutorService getExecutor(@NotNull Plugin plugin) {
+		return pluginExecutors.computeIfAbsent(Objects.requireNonNull(plugin), p -> {
+			// Never hand out a new executor that nobody would shut down
+			if (closed || isClosed(p))
+				throw new RejectedExecutionException(p.getInfo().getID() + " was unloaded");
+			return executorFactory.apply(p);
+		});
+	}
+
+	/**
+	 * Shut down the executor of a plugin. Running tasks get ten seconds to finish
+	 * before they are interrupted. The plugin can not get a new executor
+	 * afterwards.
+	 *
+	 * @param plugin - owner of the executor
+	 */
+	public void closeExecutor(@NotNull Plugin plugin) {
+		synchronized (closedPlugins) {
+			// Replace the key as well so the entry lives as long as this instance
+			closedPlugins.remove(plugin);
+			closedPlugins.put(plugin, new WeakReference<>(plugin));
+		}
+		BoundedExecutor pluginExecutor = pluginExecutors.remove(plugin);
+		if (pluginExecutor == null)
+			return;
+
+		if (pluginExecutor.getRejectedCount() > 0)
+			logger.warn("{} rejected {} tasks", pluginExecutor.getName(), pluginExecutor.getRejectedCount());
+		pluginExecutor.close();
+	}
+
+	private boolean isClosed(Plugin plugin) {
+		WeakReference<Plugin> closedPlugin = closedPlugins.get(plugin);
+		return closedPlugin != null && closedPlugin.get() == plugin;
+	}
+
 	public void pushNotification(String title, String message) {
 		pbConsumer.accept(title, message);
 	}
@@ -69,6 +173,11 @@ public class Context implements Closeable {
 
 	@Override
 	public void close() {
+		closed = true;
+
+		// Executors of plugins that were not unloaded
+		pluginExecutors.keySet().forEach(this::closeExecutor);
+
 		// The common pool does not need to be manually shutdown
 		if (executor == ForkJoinPool.commonPool())
 			return;
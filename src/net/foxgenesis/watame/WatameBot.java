@@ -4,11 +4,16 @@ import static java.lang.StackWalker.Option.RETAIN_CLASS_REFERENCE;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.configuration2.ImmutableConfiguration;
@@ -30,11 +35,24 @@ import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.internal.utils.IOUtil;
 import net.foxgenesis.database.AConnectionProvider;
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
 import net.foxgenesis.database.DatabaseManager;
 import net.foxgenesis.database.IDatabaseManager;
+import net.foxgenesis.database.providers.H2ConnectionProvider;
 import net.foxgenesis.database.providers.MySQLConnectionProvider;
+import net.foxgenesis.executor.BoundedExecutor;
+import net.foxgenesis.executor.PrefixedThreadFactory;
 import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.codec.PropertyCodecs;
+import net.foxgenesis.property.database.ChangeLogPropertyResolver;
 import net.foxgenesis.property.database.LCKConfigurationDatabase;
+import net.foxgenesis.property.lck.LCKPropertyResolver;
+import net.foxgenesis.property.lck.impl.BatchingPropertyResolver;
+import net.foxgenesis.property.lck.impl.PropertyCache;
+import net.foxgenesis.property.lck.impl.ResilientPropertyResolver;
+import net.foxgenesis.property.lck.impl.WriteBehindPropertyResolver;
+import net.foxgenesis.property.storage.LogPropertyStore;
 import net.foxgenesis.util.MethodTimer;
 import net.foxgenesis.util.PushBullet;
 import net.foxgenesis.util.resource.ResourceUtils;
@@ -43,7 +61,9 @@ import net.foxgenesis.watame.plugin.PluginHandler;
 import net.foxgenesis.watame.plugin.SeverePluginException;
 import net.foxgenesis.watame.property.ImmutablePluginProperty;
 import net.foxgenesis.watame.property.PluginProperty;
+import net.foxgenesis.watame.property.PluginPropertyMapping;
 import net.foxgenesis.watame.property.PluginPropertyProvider;
+import net.foxgenesis.watame.property.impl.GuildPropertyLoader;
 import net.foxgenesis.watame.property.impl.PluginPropertyProviderImpl;
 
 /**
@@ -205,6 +225,19 @@ public class WatameBot {
 		INSTANCE.context.getEventRegister().unregisterListeners(plugin, listeners);
 	}
 
+	/**
+	 * Get the executor owned by a plugin.
+	 *
+	 * @param plugin - owner of the executor
+	 *
+	 * @return Returns the bounded {@link ExecutorService} of the {@code plugin}
+	 *
+	 * @see Context#getExecutor(Plugin)
+	 */
+	public static ExecutorService getExecutor(Plugin plugin) {
+		return INSTANCE.context.getExecutor(plugin);
+	}
+
 	/**
 	 * Get the database manager used to register custom databases.
 	 *
@@ -285,6 +318,49 @@ public class WatameBot {
 	 */
 	private final LCKConfigurationDatabase propertyDatabase;
 
+	/**
+	 * Local property storage settings from {@code database.properties}
+	 */
+	private final Properties storageSettings;
+
+	/**
+	 * Local property storage or {@code null} if properties are stored in the
+	 * database
+	 */
+	private LogPropertyStore propertyStore;
+
+	/**
+	 * Executor used to reload outdated properties in the background
+	 */
+	private final ExecutorService propertyRefreshExecutor;
+
+	/**
+	 * Executor used to collect and send batched property reads
+	 */
+	private final ScheduledExecutorService propertyLoaderExecutor;
+
+	/**
+	 * Change log used to sync property caches between processes or {@code null}
+	 * if disabled
+	 */
+	private ChangeLogPropertyResolver propertyChangeLog;
+
+	/**
+	 * Keeps properties available while the database is down or {@code null} if
+	 * disabled
+	 */
+	private ResilientPropertyResolver propertyFallback;
+
+	/**
+	 * Executor used to flush buffered property writes
+	 */
+	private ScheduledExecutorService propertyWriterExecutor;
+
+	/**
+	 * Write-behind buffer for property writes or {@code null} if disabled
+	 */
+	private WriteBehindPropertyResolver propertyWriter;
+
 	/**
 	 * Plugin configuration provider
 	 */
@@ -326,25 +402,206 @@ public class WatameBot {
 		manager = new DatabaseManager("Database Manager");
 
 		// Create database connection
+		Properties databaseSettings;
 		try {
-			connectionProvider = getConnectionProvider();
+			databaseSettings = ResourceUtils.getProperties(settings.getConfigPath().resolve("database.properties"),
+					Constants.DATABASE_SETTINGS_FILE);
+			storageSettings = extractStorageSettings(databaseSettings);
+			useEmbeddedDatabase(databaseSettings, storageSettings);
+			connectionProvider = getConnectionProvider(databaseSettings);
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 
+		// Older versions can not read the binary format
+		PropertyCodecs.setBinaryEnabled(config.getBoolean("PropertyCodec.binary", false));
+
 		// Create our plugin property database
 		propertyDatabase = new LCKConfigurationDatabase(connectionProvider.getDatabase(),
-				Constants.DATABASE_TABLE_PROPERTIES, Constants.DATABASE_TABLE_PROPERTY_INFO);
-		propertyProvider = new PluginPropertyProviderImpl(propertyDatabase, Constants.PLUGIN_PROPERTY_CACHE_TIME);
+				Constants.DATABASE_TABLE_PROPERTIES, Constants.DATABASE_TABLE_PROPERTY_INFO,
+				Constants.DATABASE_TABLE_PROPERTY_CHANGES);
+		propertyRefreshExecutor = Executors.newFixedThreadPool(config.getInt("PropertyCache.refreshThreads", 2),
+				new PrefixedThreadFactory("Property Refresh"));
+		propertyLoaderExecutor = Executors.newScheduledThreadPool(config.getInt("PropertyLoader.threads", 2),
+				new PrefixedThreadFactory("Property Loader"));
+
+		// Store properties in local files if configured
+		if (storageSettings.getProperty("storage", "database").equalsIgnoreCase("local")) {
+			try {
+				propertyStore = createPropertyStore(storageSettings, propertyLoaderExecutor);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		PropertyCache<PluginPropertyMapping> propertyCache = createPropertyCache(propertyRefreshExecutor);
+		propertyProvider = new PluginPropertyProviderImpl(createPropertyResolver(propertyLoaderExecutor),
+				propertyCache);
+
+		// Evict properties changed by other processes
+		if (propertyChangeLog != null)
+			propertyChangeLog.start(propertyCache);
 
 		// Create discord connection builder
 		builder = createJDA(token, null);
 
 		// Set our instance context
-		context = new Context(builder, null, pushbullet::pushPBMessage);
+		context = new Context(builder, null, pushbullet::pushPBMessage, WatameBot::createPluginExecutor);
 
 		// Create our plugin handler
-		pluginHandler = new PluginHandler<>(context, getClass().getModule().getLayer(), Plugin.class);
+		String pluginDirectory = config.getString("Plugins.directory", "plugins");
+		pluginHandler = new PluginHandler<>(context, getClass().getModule().getLayer(), Plugin.class,
+				Duration.ofSeconds(config.getInt("Plugins.phaseTimeout", 60)),
+				pluginDirectory == null || pluginDirectory.isBlank() ? null : Path.of(pluginDirectory));
+	}
+
+	/**
+	 * Create the resolver used by plugin properties from the
+	 * {@code PropertyLoader}, {@code PropertyChanges} and {@code PropertyWriter}
+	 * configuration sections.
+	 *
+	 * @param loaderExecutor - executor used to time batched reads
+	 *
+	 * @return Returns the {@link LCKPropertyResolver} to use
+	 */
+	private LCKPropertyResolver createPropertyResolver(ScheduledExecutorService loaderExecutor) {
+		LCKPropertyResolver resolver = propertyStore != null ? propertyStore : propertyDatabase;
+
+		// Local reads are faster than the batch window
+		if (propertyStore == null && config.getBoolean("PropertyLoader.batching", true)) {
+			long window = config.getLong("PropertyLoader.window", 5);
+			int batchSize = config.getInt("PropertyLoader.batchSize", 100);
+
+			logger.debug("Batching property reads every {}ms with up to {} keys", window, batchSize);
+			resolver = new BatchingPropertyResolver(resolver, loaderExecutor, connectionProvider.getExecutor(), window,
+					batchSize);
+		}
+
+		if (config.getBoolean("PropertyChanges.enabled", false) && propertyStore != null)
+			logger.warn("Property change log is not used with local property storage");
+		else if (config.getBoolean("PropertyChanges.enabled", false)) {
+			long pollInterval = config.getLong("PropertyChanges.pollInterval", 1000);
+			long retention = config.getLong("PropertyChanges.retention", 3600);
+
+			logger.info("Polling property changes every {}ms", pollInterval);
+			resolver = propertyChangeLog = new ChangeLogPropertyResolver(resolver, propertyDatabase, loaderExecutor,
+					pollInterval, retention);
+		}
+
+		if (config.getBoolean("PropertyResilience.enabled", false) && propertyStore == null) {
+			int failureThreshold = config.getInt("PropertyResilience.failureThreshold", 5);
+			long openDuration = config.getLong("PropertyResilience.openDuration", 5000);
+			int maxLookups = config.getInt("PropertyResilience.maxLookups", 10000);
+			String directory = config.getString("PropertyResilience.directory", "resilience");
+			long snapshotInterval = config.getLong("PropertyResilience.snapshotInterval", 300);
+
+			logger.debug("Serving last known properties after {} database failures", failureThreshold);
+			try {
+				resolver = propertyFallback = new ResilientPropertyResolver(resolver, loaderExecutor,
+						failureThreshold, openDuration, maxLookups,
+						directory.isBlank() ? null : CONFIG_PATH.resolve(directory), snapshotInterval);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (config.getBoolean("PropertyWriter.writeBehind", false)) {
+			long flushInterval = config.getLong("PropertyWriter.flushInterval", 1000);
+			int maxPending = config.getInt("PropertyWriter.maxPending", 1000);
+
+			logger.info("Buffering property writes for up to {}ms", flushInterval);
+			propertyWriterExecutor = Executors
+					.newSingleThreadScheduledExecutor(new PrefixedThreadFactory("Property Writer"));
+			resolver = propertyWriter = new WriteBehindPropertyResolver(resolver, propertyWriterExecutor,
+					flushInterval, maxPending);
+		}
+		return resolver;
+	}
+
+	/**
+	 * Remove the local property storage settings from the database settings.
+	 *
+	 * @param properties - database settings
+	 *
+	 * @return Returns the removed {@code storage} settings
+	 */
+	private static Properties extractStorageSettings(Properties properties) {
+		Properties storage = new Properties();
+		for (String key : properties.stringPropertyNames())
+			if (key.equals("storage") || key.startsWith("storage."))
+				storage.setProperty(key, (String) properties.remove(key));
+		return storage;
+	}
+
+	/**
+	 * Switch to an embedded H2 database stored next to the local property storage
+	 * unless {@code storage.database} asks for a database server. Local storage
+	 * then needs no database server to start.
+	 *
+	 * @param database - database settings
+	 * @param storage  - storage settings
+	 */
+	private static void useEmbeddedDatabase(Properties database, Properties storage) {
+		if (!storage.getProperty("storage", "database").equalsIgnoreCase("local")
+				|| storage.getProperty("storage.database", "embedded").equalsIgnoreCase("server"))
+			return;
+
+		database.setProperty("databaseType", "h2");
+		if (database.getProperty("path", "").isBlank()) {
+			Path path = CONFIG_PATH.resolve(storage.getProperty("storage.path", "properties")).resolve("database");
+			database.setProperty("path", path.toAbsolutePath().toString());
+		}
+	}
+
+	/**
+	 * Open the local property storage from the {@code storage} database
+	 * settings.
+	 *
+	 * @param storage  - storage settings
+	 * @param executor - executor used to compact the storage
+	 *
+	 * @return Returns the opened {@link LogPropertyStore}
+	 *
+	 * @throws IOException Thrown if the storage could not be opened
+	 */
+	private static LogPropertyStore createPropertyStore(Properties storage, ScheduledExecutorService executor)
+			throws IOException {
+		Path path = CONFIG_PATH.resolve(storage.getProperty("storage.path", "properties"));
+		long segmentSize = Long.parseLong(storage.getProperty("storage.segmentSize", "16"));
+		boolean sync = Boolean.parseBoolean(storage.getProperty("storage.sync", "false"));
+		long compactionInterval = Long.parseLong(storage.getProperty("storage.compactionInterval", "60"));
+
+		logger.info("Storing properties in {}", path);
+		return new LogPropertyStore(path, segmentSize * 1024L * 1024L, sync, executor, compactionInterval);
+	}
+
+	/**
+	 * Create the cache shared by all plugin properties from the
+	 * {@code PropertyCache} configuration section.
+	 *
+	 * @param refreshExecutor - executor used to reload outdated properties
+	 *
+	 * @return Returns a new {@link PropertyCache}
+	 */
+	private static PropertyCache<PluginPropertyMapping> createPropertyCache(Executor refreshExecutor) {
+		long budget = config.getLong("PropertyCache.memoryBudget", Constants.PLUGIN_PROPERTY_CACHE_BUDGET);
+		long cacheTime = config.getLong("PropertyCache.cacheTime", Constants.PLUGIN_PROPERTY_CACHE_TIME / 1000);
+		long expireAfterAccess = config.getLong("PropertyCache.expireAfterAccess",
+				Constants.PLUGIN_PROPERTY_EXPIRE_AFTER_ACCESS / 1000);
+
+		// Serve outdated values while they are reloaded
+		if (config.getBoolean("PropertyCache.refreshAhead", true)) {
+			long maxStaleness = config.getLong("PropertyCache.maxStaleness",
+					Constants.PLUGIN_PROPERTY_MAX_STALENESS / 1000);
+
+			logger.debug("Creating property cache with a budget of {}MB and max staleness of {}s", budget,
+					maxStaleness);
+			return new PropertyCache<>(budget * 1024 * 1024, cacheTime * 1000, expireAfterAccess * 1000,
+					refreshExecutor, maxStaleness * 1000);
+		}
+
+		logger.debug("Creating property cache with a budget of {}MB", budget);
+		return new PropertyCache<>(budget * 1024 * 1024, cacheTime * 1000, expireAfterAccess * 1000);
 	}
 
 	void start() throws Exception {
@@ -416,7 +673,12 @@ public class WatameBot {
 		pluginHandler.preInit();
 
 		logger.info("Starting database pool");
-		manager.start(connectionProvider);
+		try {
+			manager.start(connectionProvider);
+		} catch (IOException e) {
+			// Running on an outdated schema would corrupt data
+			ExitCode.DATABASE_SETUP_ERROR.programExit(e);
+		}
 	}
 
 	/**
@@ -425,11 +687,23 @@ public class WatameBot {
 	 * @throws Exception
 	 */
 	private void init() throws Exception {
+		// Register all known properties up front
+		try {
+			propertyProvider.preloadProperties();
+		} catch (Exception e) {
+			logger.error("Failed to preload plugin properties", e);
+		}
+
 		// Assert that the moderation log property is set
 		Plugin integrated = pluginHandler.getPlugin("integrated");
-		if (integrated != null)
+		if (integrated != null) {
 			loggingChannel = propertyProvider.upsertProperty(integrated, "modlog", true, PropertyType.NUMBER);
 
+			// Load guild properties in bulk when guilds become available
+			context.getEventRegister().registerListeners(integrated,
+					new GuildPropertyLoader(propertyProvider, context.getAsynchronousExecutor()));
+		}
+
 		// Initialize all plugins
 		pluginHandler.init();
 	}
@@ -477,6 +751,18 @@ public class WatameBot {
 		logger.debug("Setting presence to ready");
 		discord.getPresence().setPresence(OnlineStatus.ONLINE,
 				Activity.playing(config.getString("Startup.Status.online", "https://github.com/FoxGenesis/Watamebot")));
+
+		// Convert object properties stored by older versions
+		if (PropertyCodecs.isBinaryEnabled() && config.getBoolean("PropertyCodec.migrate", false)
+				&& propertyStore == null)
+			CompletableFuture.runAsync(() -> ConcurrencyLimiter.runWithPriority(Priority.BACKGROUND, () -> {
+				logger.info("Converting stored object properties");
+				int count = propertyDatabase.migrateObjectProperties(config.getInt("PropertyCodec.batchSize", 100));
+				logger.info("Converted {} object properties", count);
+			}), context.getAsynchronousExecutor()).exceptionally(e -> {
+				logger.error("Failed to convert object properties", e);
+				return null;
+			});
 	}
 
 	/**
@@ -493,6 +779,11 @@ public class WatameBot {
 		logger.info("Shutting down...");
 
 		IOUtil.silentClose(pluginHandler);
+		IOUtil.silentClose(context);
+
+		// Stop background property reads before closing the database
+		shutdownExecutor(propertyRefreshExecutor);
+		shutdownExecutor(propertyLoaderExecutor);
 
 		// Disconnect from discord
 		if (discord != null) {
@@ -500,6 +791,42 @@ public class WatameBot {
 			discord.shutdown();
 		}
 
+		// Stop polling property changes
+		if (propertyChangeLog != null)
+			propertyChangeLog.close();
+
+		// Write buffered properties before the database is closed
+		if (propertyWriter != null) {
+			logger.info("Writing {} buffered properties", propertyWriter.getPendingCount());
+			try {
+				propertyWriter.close();
+			} catch (Exception e) {
+				logger.error("Failed to write buffered properties!", e);
+			}
+			shutdownExecutor(propertyWriterExecutor);
+		}
+
+		// Replay queued property writes while the database is still open
+		if (propertyFallback != null) {
+			if (propertyFallback.getPendingCount() > 0)
+				logger.info("Replaying {} queued property writes", propertyFallback.getPendingCount());
+			try {
+				propertyFallback.close();
+			} catch (Exception e) {
+				logger.error("Failed to close property fallback!", e);
+			}
+		}
+
+		// Close local property storage
+		if (propertyStore != null) {
+			try {
+				logger.info("Closing property storage");
+				propertyStore.close();
+			} catch (Exception e) {
+				logger.error("Error while closing property storage!", e);
+			}
+		}
+
 		// Close connection to datebase
 		try {
 			logger.info("Closing database connection");
@@ -516,6 +843,42 @@ public class WatameBot {
 		logger.info("Exiting...");
 	}
 
+	/**
+	 * Create the executor of a plugin from the {@code PluginExecutor} section.
+	 * Plugins can be given their own sizes in a {@code PluginExecutor.<id>}
+	 * section.
+	 *
+	 * @param plugin - owner of the executor
+	 *
+	 * @return Returns the created executor
+	 */
+	private static BoundedExecutor createPluginExecutor(Plugin plugin) {
+		String section = "PluginExecutor." + plugin.getInfo().getID() + ".";
+		int threads = config.getInt(section + "threads",
+				config.getInt("PluginExecutor.threads", Context.DEFAULT_THREADS));
+		int queue = config.getInt(section + "queue", config.getInt("PluginExecutor.queue", Context.DEFAULT_QUEUE));
+		return new BoundedExecutor(plugin.getInfo().getID(), Math.max(1, threads), Math.max(0, queue));
+	}
+
+	/**
+	 * Stop an executor and wait a short time for its running tasks to finish.
+	 *
+	 * @param executor - executor to stop
+	 */
+	private static void shutdownExecutor(ExecutorService executor) {
+		if (executor == null)
+			return;
+
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				executor.shutdownNow();
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Create and connect to discord with specified {@code token} via JDA.
 	 *
@@ -583,13 +946,12 @@ public class WatameBot {
 	}
 
 	@SuppressWarnings("resource")
-	private AConnectionProvider getConnectionProvider() throws Exception {
-		Properties properties = ResourceUtils.getProperties(settings.getConfigPath().resolve("database.properties"),
-				Constants.DATABASE_SETTINGS_FILE);
-
+	private AConnectionProvider getConnectionProvider(Properties properties) throws Exception {
 		int maxTries = 5;
-		AConnectionProvider provider = attemptConnection(() -> new MySQLConnectionProvider(properties), 2000, maxTries,
-				"database");
+		boolean embedded = properties.getProperty("databaseType", "mysql").equalsIgnoreCase("h2");
+		AConnectionProvider provider = attemptConnection(
+				() -> embedded ? new H2ConnectionProvider(properties) : new MySQLConnectionProvider(properties), 2000,
+				maxTries, "database");
 		if (provider == null)
 			ExitCode.DATABASE_SETUP_ERROR.programExit("Failed to connect to the database after " + maxTries + " tries");
 		return provider;
@@ -4,11 +4,12 @@ import static net.foxgenesis.watame.util.Colors.ERROR;
 import static net.foxgenesis.watame.util.Colors.INFO;
 import static net.foxgenesis.watame.util.Colors.NOTICE;
 
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import net.foxgenesis.property.PropertyInfo;
@@ -16,6 +17,7 @@ import net.foxgenesis.watame.WatameBot;
 import net.foxgenesis.watame.property.PluginProperty;
 import net.foxgenesis.watame.property.PluginPropertyMapping;
 import net.foxgenesis.watame.property.PluginPropertyProvider;
+import net.foxgenesis.watame.util.LazyPaginatedMenu;
 import net.foxgenesis.watame.util.Response;
 
 import org.jetbrains.annotations.NotNull;
@@ -24,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -37,6 +40,8 @@ import net.dv8tion.jda.api.interactions.AutoCompleteQuery;
 import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
 
 /**
  * Slash command to manually configure database values
@@ -50,6 +55,22 @@ public class ConfigCommand extends ListenerAdapter {
 	private static final String DEFAULT = "Default";
 	private static final String CONFIG_VALUE_FORMAT = "* %s = `%s`";
 
+	/**
+	 * Amount of properties displayed on a single page of the configuration list
+	 */
+	private static final int LIST_PAGE_SIZE = 15;
+
+	/**
+	 * Maximum length of a value displayed in the configuration list
+	 */
+	private static final int LIST_VALUE_LENGTH = 100;
+
+	/**
+	 * Time in minutes the configuration list responds to page changes. Interaction
+	 * tokens are only valid for 15 minutes
+	 */
+	private static final long LIST_MENU_TIMEOUT = 14;
+
 	@Override
 	public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
 		if (event.isFromGuild()) {
@@ -66,11 +87,10 @@ public class ConfigCommand extends ListenerAdapter {
 		if (event.isFromGuild() && guild != null) {
 			if (event.getFullCommandName().startsWith("options configuration") && option.getName().equals("key")) {
 				PluginPropertyProvider provider = WatameBot.getPropertyProvider();
-				String value = option.getValue().toLowerCase();
 
-				@SuppressWarnings("null") List<Command.Choice> choices = provider.getPropertyList().stream()
-						.filter(PropertyInfo::modifiable).filter(info -> info.name().toLowerCase().contains(value))
-						.map(info -> new Command.Choice(info.category() + " " + info.name(), info.id())).limit(25)
+				@SuppressWarnings("null") List<Command.Choice> choices = provider
+						.searchProperties(option.getValue(), PropertyInfo::modifiable, OptionData.MAX_CHOICES)
+						.stream().map(info -> new Command.Choice(info.category() + " " + info.name(), info.id()))
 						.toList();
 				event.replyChoices(choices).queue();
 			}
@@ -216,7 +236,8 @@ public class ConfigCommand extends ListenerAdapter {
 	}
 
 	/**
-	 * List all property values for the guild.
+	 * List all property values for the guild. Every value is read in a single
+	 * operation and pages are only rendered once they are displayed.
 	 * 
 	 * @param event    - slash command event
 	 * @param provider - property provider
@@ -230,18 +251,29 @@ public class ConfigCommand extends ListenerAdapter {
 
 		if (guild != null) {
 			// Collect all values
-			HashMap<String, String> map = new HashMap<>();
-			provider.getPropertyList().stream().map(info -> provider.getProperty(info)).forEach(property -> map
-					.put(displayPropertyString(property.getInfo()), getUserFriendlyValue(property.get(guild))));
-
-			// Build output
-			StringBuilder builder = new StringBuilder();
-			map.entrySet().stream().sorted((e1, e2) -> e1.getKey().compareTo(e2.getKey())).forEachOrdered(entry -> {
-				builder.append((CONFIG_VALUE_FORMAT + "\n").formatted(entry.getKey(), entry.getValue()));
+			List<Map.Entry<PropertyInfo, Optional<PluginPropertyMapping>>> values = List
+					.copyOf(provider.getGuildSnapshot(guild).entrySet());
+			int pages = Math.max(1, (values.size() + LIST_PAGE_SIZE - 1) / LIST_PAGE_SIZE);
+
+			LazyPaginatedMenu<Map.Entry<PropertyInfo, Optional<PluginPropertyMapping>>> menu = new LazyPaginatedMenu<>(
+					event.getIdLong(), values, LIST_PAGE_SIZE, (page, index) -> {
+						StringBuilder builder = new StringBuilder();
+						for (Map.Entry<PropertyInfo, Optional<PluginPropertyMapping>> entry : page)
+							builder.append((CONFIG_VALUE_FORMAT + "\n").formatted(displayPropertyString(entry.getKey()),
+									abbreviate(getUserFriendlyValue(entry.getValue()))));
+
+						return MessageEditData.fromEmbeds(new EmbedBuilder().setColor(INFO)
+								.setTitle("\u2699 Configuration List \u2699").setDescription(builder.toString())
+								.setFooter("Page %d/%d".formatted(index + 1, pages)).build());
+					});
+
+			// Send and stop listening once the interaction expires
+			JDA jda = event.getJDA();
+			hook.editOriginal(menu.getMenuData()).queue(m -> {
+				jda.addEventListener(menu);
+				jda.getGatewayPool().schedule(() -> jda.removeEventListener(menu), LIST_MENU_TIMEOUT,
+						TimeUnit.MINUTES);
 			});
-
-			// Send
-			hook.editOriginalEmbeds(response(INFO, "\u2699 Configuration List \u2699", builder.toString())).queue();
 		} else
 			unknownError(hook);
 	}
@@ -324,6 +356,10 @@ public class ConfigCommand extends ListenerAdapter {
 		return "[" + property.category() + "] " + property.name();
 	}
 
+	private static String abbreviate(String value) {
+		return value.length() > LIST_VALUE_LENGTH ? value.substring(0, LIST_VALUE_LENGTH - 3) + "..." : value;
+	}
+
 	private static void unknownError(InteractionHook hook) {
 		hook.editOriginalEmbeds(response(ERROR, "Error", "Something went wrong. Please try again later")).queue();
 	}
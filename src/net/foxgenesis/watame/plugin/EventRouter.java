@@ -0,0 +1,170 @@
+package net.foxgenesis.watame.plugin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.foxgenesis.database.ConcurrencyLimiter;
+import net.foxgenesis.database.ConcurrencyLimiter.Priority;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Single {@link EventListener} that forwards events only to listeners that
+ * handle them.
+ * <p>
+ * The handlers a {@link ListenerAdapter} overrides are found by reflection once
+ * when it is added. For every concrete event class the interested listeners are
+ * looked up once and cached, so dispatching an event is a table lookup that
+ * skips listeners without a matching handler. Any other {@link EventListener}
+ * receives every event.
+ * </p>
+ * <p>
+ * Interaction events are dispatched with the {@link Priority#INTERACTIVE
+ * interactive} database priority, so every command handler gets a low latency
+ * while the database is busy.
+ * </p>
+ *
+ * @author Ashley
+ */
+final class EventRouter implements EventListener {
+	private static final Logger logger = LoggerFactory.getLogger(EventRouter.class);
+
+	private static final EventListener[] EMPTY = new EventListener[0];
+
+	/**
+	 * Current listeners. Replaced as a whole whenever listeners change
+	 */
+	private volatile Table table = new Table(List.of());
+
+	@Override
+	public void onEvent(@NotNull GenericEvent event) {
+		// A user is waiting on the response to an interaction
+		if (event instanceof GenericInteractionCreateEvent)
+			ConcurrencyLimiter.runWithPriority(Priority.INTERACTIVE, () -> dispatch(event));
+		else
+			dispatch(event);
+	}
+
+	private void dispatch(GenericEvent event) {
+		for (EventListener listener : table.get(event.getClass())) {
+			try {
+				listener.onEvent(event);
+			} catch (Throwable t) {
+				logger.error("One of the EventListeners had an uncaught exception", t);
+				if (t instanceof Error)
+					throw (Error) t;
+			}
+		}
+	}
+
+	/**
+	 * Add listeners to this router.
+	 *
+	 * @param listeners - listeners to add
+	 */
+	synchronized void add(@NotNull EventListener... listeners) {
+		List<Route> routes = new ArrayList<>(table.routes);
+		for (EventListener listener : listeners)
+			routes.add(new Route(Objects.requireNonNull(listener), getHandledEvents(listener)));
+		table = new Table(routes);
+	}
+
+	/**
+	 * Remove listeners from this router.
+	 *
+	 * @param listeners - listeners to remove
+	 */
+	synchronized void remove(@NotNull Object... listeners) {
+		Set<Object> removed = new HashSet<>(Arrays.asList(listeners));
+		table = new Table(table.routes.stream().filter(route -> !removed.contains(route.listener)).toList());
+	}
+
+	/**
+	 * Get the event types a listener handles.
+	 *
+	 * @param listener - listener to inspect
+	 *
+	 * @return Returns the parameter types of every {@link ListenerAdapter} handler
+	 *         the listener overrides or {@link GenericEvent} if it handles every
+	 *         event
+	 */
+	private static Set<Class<?>> getHandledEvents(EventListener listener) {
+		if (!(listener instanceof ListenerAdapter))
+			return Set.of(GenericEvent.class);
+
+		Set<Class<?>> types = new HashSet<>();
+		for (Class<?> c = listener.getClass(); c != ListenerAdapter.class; c = c.getSuperclass())
+			for (Method method : c.getDeclaredMethods()) {
+				if (method.isBridge() || Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1)
+					continue;
+
+				Class<?> type = method.getParameterTypes()[0];
+				if (!GenericEvent.class.isAssignableFrom(type))
+					continue;
+
+				try {
+					ListenerAdapter.class.getMethod(method.getName(), type);
+					types.add(type);
+				} catch (NoSuchMethodException e) {
+					// Not a handler
+				}
+			}
+
+		if (types.isEmpty())
+			logger.warn("{} does not handle any events", listener.getClass().getName());
+		return types;
+	}
+
+	/**
+	 * Listener with the event types it handles.
+	 */
+	private record Route(EventListener listener, Set<Class<?>> types) {
+		boolean handles(Class<?> event) {
+			for (Class<?> type : types)
+				if (type.isAssignableFrom(event))
+					return true;
+			return false;
+		}
+	}
+
+	/**
+	 * Immutable set of routes with the interested listeners of every event class
+	 * seen so far.
+	 */
+	private static final class Table {
+		private final List<Route> routes;
+		private final Map<Class<?>, EventListener[]> cache = new ConcurrentHashMap<>();
+
+		Table(List<Route> routes) {
+			this.routes = List.copyOf(routes);
+		}
+
+		EventListener[] get(Class<?> event) {
+			EventListener[] listeners = cache.get(event);
+			if (listeners == null)
+				listeners = cache.computeIfAbsent(event, this::resolve);
+			return listeners;
+		}
+
+		private EventListener[] resolve(Class<?> event) {
+			EventListener[] listeners = routes.stream().filter(route -> route.handles(event))
+					.map(Route::listener).toArray(EventListener[]::new);
+			return listeners.length == 0 ? EMPTY : listeners;
+		}
+	}
+}
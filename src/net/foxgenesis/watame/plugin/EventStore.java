@@ -1,5 +1,6 @@
 package net.foxgenesis.watame.plugin;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
@@ -11,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.hooks.EventListener;
 
 public class EventStore implements IEventStore {
 	private static final Logger logger = LoggerFactory.getLogger(EventStore.class);
@@ -18,10 +20,16 @@ public class EventStore implements IEventStore {
 	private final ConcurrentHashMap<Plugin, Set<Object>> store = new ConcurrentHashMap<>();
 	private final JDABuilder builder;
 
+	/**
+	 * Dispatches events to plugin {@link EventListener}s
+	 */
+	private final EventRouter router = new EventRouter();
+
 	private JDA jda;
 
 	public EventStore(JDABuilder builder) {
 		this.builder = Objects.requireNonNull(builder);
+		builder.addEventListeners(router);
 	}
 
 	public void register(Plugin plugin) {
@@ -36,10 +44,7 @@ public class EventStore implements IEventStore {
 		if (!(objs == null || objs.isEmpty())) {
 			Object[] l = objs.toArray();
 			logger.debug("Removing {} listeners from {}", l.length, plugin.getInfo().getDisplayName());
-			builder.removeEventListeners(l);
-
-			if (jda != null)
-				jda.removeEventListener(l);
+			removeFromJDA(l);
 
 			objs.clear();
 		}
@@ -56,11 +61,18 @@ public class EventStore implements IEventStore {
 
 		logger.debug("Adding {} listeners from {}", listener.length, plugin.getInfo().getDisplayName());
 		Collections.addAll(listeners, listener);
-		
-		builder.addEventListeners(listener);
-		if (jda != null) {
-			logger.debug("Adding {} listeners from {} to JDA", listener.length, plugin.getInfo().getDisplayName());
-			jda.addEventListener(listener);
+
+		router.add(Arrays.stream(listener).filter(EventListener.class::isInstance).map(EventListener.class::cast)
+				.toArray(EventListener[]::new));
+
+		// Listeners the router can not dispatch to are left to the event manager
+		Object[] other = Arrays.stream(listener).filter(l -> !(l instanceof EventListener)).toArray();
+		if (other.length > 0) {
+			builder.addEventListeners(other);
+			if (jda != null) {
+				logger.debug("Adding {} listeners from {} to JDA", other.length, plugin.getInfo().getDisplayName());
+				jda.addEventListener(other);
+			}
 		}
 	}
 
@@ -73,11 +85,18 @@ public class EventStore implements IEventStore {
 		logger.debug("Removing {} listeners from {}", listener.length, plugin.getInfo().getDisplayName());
 		for (Object l : listener)
 			listeners.remove(l);
-		
-		builder.removeEventListeners(listener);
-		if (jda != null) {
-			logger.debug("Removing {} listeners from {} in JDA", listener.length, plugin.getInfo().getDisplayName());
-			jda.removeEventListener(listener);
+
+		removeFromJDA(listener);
+	}
+
+	private void removeFromJDA(Object[] listener) {
+		router.remove(listener);
+
+		Object[] other = Arrays.stream(listener).filter(l -> !(l instanceof EventListener)).toArray();
+		if (other.length > 0) {
+			builder.removeEventListeners(other);
+			if (jda != null)
+				jda.removeEventListener(other);
 		}
 	}
 
@@ -5,10 +5,12 @@ import java.io.InputStream;
 import java.lang.module.ModuleDescriptor.Version;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
 
 import net.foxgenesis.database.AbstractDatabase;
@@ -240,6 +242,16 @@ public abstract class Plugin extends ServiceStartup {
 		return WatameBot.getPropertyProvider();
 	}
 
+	/**
+	 * Get the executor owned by this plugin. It runs a bounded amount of tasks at
+	 * once and is shut down when this plugin is unloaded.
+	 *
+	 * @return Returns the {@link ExecutorService} of this plugin
+	 */
+	protected final ExecutorService getExecutor() {
+		return WatameBot.getExecutor(this);
+	}
+
 	/**
 	 * Register an {@link AbstractDatabase} that this {@link Plugin} requires.
 	 *
@@ -310,7 +322,13 @@ public abstract class Plugin extends ServiceStartup {
 
 		Path configurationPath = WatameBot.CONFIG_PATH.resolve(id);
 
+		// Plugins that must be initialized before this one
+		Set<String> dependencies = new HashSet<>();
+		for (String dependency : properties.getProperty("depends", "").split(","))
+			if (!dependency.isBlank())
+				dependencies.add(dependency.trim().toLowerCase());
+
 		return new PluginInformation(id, friendlyName, version, description, providesCommands, needsDatabase,
-				configurationPath);
+				configurationPath, Set.copyOf(dependencies));
 	}
 }
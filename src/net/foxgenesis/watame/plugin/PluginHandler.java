@@ -1,29 +1,52 @@
 package net.foxgenesis.watame.plugin;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.lang.module.Configuration;
+import java.lang.module.FindException;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ResolutionException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.ServiceLoader;
 import java.util.ServiceLoader.Provider;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.management.ObjectName;
 
 import net.foxgenesis.util.CompletableFutureUtils;
+import net.foxgenesis.util.MBeanUtils;
 import net.foxgenesis.util.MethodTimer;
 import net.foxgenesis.watame.Context;
+import net.foxgenesis.watame.State;
 import net.foxgenesis.watame.plugin.require.CommandProvider;
 import net.foxgenesis.watame.plugin.require.RequiresCache;
 import net.foxgenesis.watame.plugin.require.RequiresIntents;
@@ -37,6 +60,7 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
 import net.dv8tion.jda.api.utils.MemberCachePolicy;
@@ -55,12 +79,35 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(PluginHandler.class);
 
+	/**
+	 * Time a timed out lifecycle phase has to stop after being interrupted
+	 */
+	private static final Duration STOP_TIMEOUT = Duration.ofSeconds(5);
+
 	/**
 	 * Map of plugins
 	 */
 	@NotNull
 	private final CopyOnWriteArraySet<T> plugins = new CopyOnWriteArraySet<>();
 
+	/**
+	 * Loaded plugins by lowercase identifier
+	 */
+	@NotNull
+	private final Map<String, T> byId = new ConcurrentHashMap<>();
+
+	/**
+	 * Loaded plugins by module
+	 */
+	@NotNull
+	private final Map<Module, T> byModule = new ConcurrentHashMap<>();
+
+	/**
+	 * Loaded plugins by their exact class
+	 */
+	@NotNull
+	private final Map<Class<?>, T> byClass = new ConcurrentHashMap<>();
+
 	/**
 	 * Service loader to load plugins
 	 */
@@ -91,6 +138,44 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	@NotNull
 	private final Context context;
 
+	/**
+	 * Time a plugin may take for a single lifecycle phase
+	 */
+	@NotNull
+	private final Duration phaseTimeout;
+
+	/**
+	 * Plugins grouped by their depth in the dependency graph. Every plugin only
+	 * depends on plugins of earlier waves
+	 */
+	@NotNull
+	private volatile List<List<T>> waves = List.of();
+
+	/**
+	 * Directory of plugins that are loaded into their own module layer.
+	 * {@code null} if disabled
+	 */
+	@Nullable
+	private final Path pluginDirectory;
+
+	/**
+	 * Location of every plugin loaded from the {@link #pluginDirectory}
+	 */
+	@NotNull
+	private final Map<T, Path> sources = new ConcurrentHashMap<>();
+
+	/**
+	 * Serializes loading and unloading at runtime
+	 */
+	@NotNull
+	private final Object reloadLock = new Object();
+
+	/**
+	 * Name of the management bean. {@code null} if not registered
+	 */
+	@Nullable
+	private ObjectName bean;
+
 	/**
 	 * Construct a new {@link PluginHandler} with the specified {@link ModuleLayer}
 	 * and plugin {@link Class}.
@@ -100,9 +185,53 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 * @param pluginClass - the plugin {@link Class} to load
 	 */
 	public PluginHandler(Context context, ModuleLayer layer, Class<T> pluginClass) {
+		this(context, layer, pluginClass, Duration.ofSeconds(60));
+	}
+
+	/**
+	 * Construct a new {@link PluginHandler} with the specified {@link ModuleLayer}
+	 * and plugin {@link Class}.
+	 *
+	 * @param context      - instance context
+	 * @param layer        - layer the {@link ServiceLoader} should use
+	 * @param pluginClass  - the plugin {@link Class} to load
+	 * @param phaseTimeout - time a plugin may take for a single lifecycle phase
+	 *                     before it is unloaded. {@link Duration#ZERO} for no
+	 *                     limit
+	 */
+	public PluginHandler(Context context, ModuleLayer layer, Class<T> pluginClass, Duration phaseTimeout) {
+		this(context, layer, pluginClass, phaseTimeout, null);
+	}
+
+	/**
+	 * Construct a new {@link PluginHandler} that additionally loads every jar or
+	 * directory inside the {@code pluginDirectory} into its own child
+	 * {@link ModuleLayer}. Plugins loaded this way can be unloaded and reloaded
+	 * at runtime.
+	 * <p>
+	 * Every child layer is resolved against the {@code layer} and the layers of
+	 * the other plugins loaded from the directory, so a plugin module may
+	 * {@code require} the module of another plugin. Such a plugin must also
+	 * declare the other plugin as a dependency. Otherwise it is neither unloaded
+	 * nor reloaded along with it and keeps using the old module.
+	 * </p>
+	 *
+	 * @param context         - instance context
+	 * @param layer           - layer the {@link ServiceLoader} should use
+	 * @param pluginClass     - the plugin {@link Class} to load
+	 * @param phaseTimeout    - time a plugin may take for a single lifecycle
+	 *                        phase before it is unloaded. {@link Duration#ZERO}
+	 *                        for no limit
+	 * @param pluginDirectory - directory of reloadable plugins or {@code null}
+	 *                        to only use the {@code layer}
+	 */
+	public PluginHandler(Context context, ModuleLayer layer, Class<T> pluginClass, Duration phaseTimeout,
+			@Nullable Path pluginDirectory) {
 		this.context = Objects.requireNonNull(context);
 		this.layer = Objects.requireNonNull(layer);
 		this.pluginClass = Objects.requireNonNull(pluginClass);
+		this.phaseTimeout = Objects.requireNonNull(phaseTimeout);
+		this.pluginDirectory = pluginDirectory;
 
 		loader = ServiceLoader.load(layer, pluginClass);
 		pluginExecutor = context.getAsynchronousExecutor();
@@ -115,30 +244,430 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 		logger.info("Checking for plugins...");
 		long time = System.nanoTime();
 
-		Collection<Provider<T>> providers = getProviders();
+		Collection<Provider<T>> providers = getProviders(layer);
+
+		// Plugins in their own layer
+		Map<ModuleLayer, Path> layers = new HashMap<>();
+		if (pluginDirectory != null)
+			providers.addAll(getProviders(findPluginSources(), List.of(), layers));
 
 		logger.info("Found {} plugins", providers.size());
 		logger.info("Constructing plugins...");
 
-		plugins.addAll(construct(providers));
-		plugins.forEach(context.getEventRegister()::register);
+		addPlugins(construct(providers), layers);
+		setWaves(resolveDependencies());
+
+		bean = MBeanUtils.register("net.foxgenesis.watame:type=Plugins", new Management());
 
 		time = System.nanoTime() - time;
 		logger.info("Constructed all plugins in {}ms", MethodTimer.formatToMilli(time));
 	}
 
+	/**
+	 * Load a plugin from the plugin directory while the bot is running. The
+	 * plugin runs through every lifecycle phase and its commands are registered.
+	 *
+	 * @param fileName - name of the jar or directory inside the plugin directory
+	 *
+	 * @return Returns the started plugins
+	 *
+	 * @throws IllegalStateException Thrown if startup has not completed yet or
+	 *                               no plugin directory is configured
+	 */
+	@NotNull
+	public List<T> loadPlugin(@NotNull String fileName) {
+		Path source = resolveSource(fileName);
+		synchronized (reloadLock) {
+			return start(load(List.of(source)));
+		}
+	}
+
+	/**
+	 * Unload a plugin while the bot is running. Plugins depending on it are
+	 * unloaded as well. Their listeners, databases, executors and commands are
+	 * removed.
+	 *
+	 * @param identifier - plugin identifier
+	 *
+	 * @return Returns {@code true} if the plugin was unloaded
+	 */
+	public boolean unloadPlugin(@NotNull String identifier) {
+		synchronized (reloadLock) {
+			T plugin = getPlugin(identifier);
+			if (plugin == null)
+				return false;
+
+			Set<String> commands = getCommandNames(getSubtree(plugin));
+			unloadPlugin(plugin);
+			removeCommands(commands);
+			return true;
+		}
+	}
+
+	/**
+	 * Replace a plugin with the current version of its jar while the bot is
+	 * running. Plugins depending on it are reloaded as well. Commands are only
+	 * updated for the reloaded plugins.
+	 * <p>
+	 * The new versions are loaded and constructed before the running plugins are
+	 * touched. If that fails, the running plugins are kept. If a new version
+	 * fails to start, the previous versions are constructed again from their
+	 * still existing module layers and started instead.
+	 * </p>
+	 *
+	 * @param identifier - plugin identifier
+	 *
+	 * @return Returns the started plugins
+	 *
+	 * @throws NoSuchElementException Thrown if the plugin is not loaded
+	 * @throws IllegalStateException  Thrown if startup has not completed yet, the
+	 *                                plugin or one of its dependents was not
+	 *                                loaded from the plugin directory or the new
+	 *                                version could not be loaded or started
+	 */
+	@NotNull
+	public List<T> reloadPlugin(@NotNull String identifier) {
+		synchronized (reloadLock) {
+			T plugin = getPlugin(identifier);
+			if (plugin == null)
+				throw new NoSuchElementException("No plugin is loaded with identifier " + identifier);
+			checkRunning();
+
+			Set<T> subtree = getSubtree(plugin);
+			Set<Path> paths = new LinkedHashSet<>();
+			for (T p : subtree) {
+				Path source = sources.get(p);
+				if (source == null)
+					throw new IllegalStateException(
+							p.getInfo().getDisplayName() + " was not loaded from the plugin directory");
+				paths.add(source);
+			}
+
+			logger.info("Reloading {} plugins", subtree.size());
+
+			// Load the new versions before touching the running plugins
+			Map<ModuleLayer, Path> layers = new HashMap<>();
+			Collection<T> replacements = construct(getProviders(paths, getPluginLayers(subtree), layers));
+			Set<String> missing = getIdentifiers(subtree);
+			missing.removeAll(getIdentifiers(replacements));
+			if (layers.size() != paths.size() || !missing.isEmpty())
+				throw new IllegalStateException("Failed to load the new version of " + plugin.getInfo().getDisplayName()
+						+ (missing.isEmpty() ? "" : ". Missing plugins: " + missing) + ". Nothing was reloaded");
+
+			// Keep the previous layers in case the new versions fail to start
+			Map<ModuleLayer, Path> previous = new HashMap<>();
+			for (T p : subtree)
+				previous.put(p.getClass().getModule().getLayer(), sources.get(p));
+
+			Set<String> commands = getCommandNames(subtree);
+			unloadPlugin(plugin);
+
+			List<T> started = start(addPlugins(replacements, layers));
+			if (!getIdentifiers(started).containsAll(getIdentifiers(subtree))) {
+				logger.error("New version of {} failed to start. Restoring the previous version",
+						plugin.getInfo().getDisplayName());
+				Set<String> added = getCommandNames(started);
+				started.forEach(this::unloadPlugin);
+
+				List<T> restored = start(addPlugins(construct(previous.keySet().stream()
+						.flatMap(old -> getProviders(old).stream()).toList()), previous));
+				added.removeAll(getCommandNames(restored));
+				removeCommands(added);
+				throw new IllegalStateException("Failed to start the new version of " + plugin.getInfo().getDisplayName()
+						+ ". The previous version was restored");
+			}
+
+			// Only delete commands that no longer exist
+			commands.removeAll(getCommandNames(started));
+			removeCommands(commands);
+			return started;
+		}
+	}
+
+	/**
+	 * Get the location a plugin was loaded from.
+	 *
+	 * @param plugin - loaded plugin
+	 *
+	 * @return Returns the jar or directory of the plugin or {@code null} if it was
+	 *         not loaded from the plugin directory
+	 */
+	@Nullable
+	public Path getSource(@NotNull T plugin) {
+		return sources.get(plugin);
+	}
+
+	/**
+	 * Add constructed plugins to the managed plugins.
+	 *
+	 * @param constructed - constructed plugins
+	 * @param layers      - sources of the child layers plugins were loaded from
+	 *
+	 * @return Returns the plugins that were added
+	 */
+	private List<T> addPlugins(Collection<T> constructed, Map<ModuleLayer, Path> layers) {
+		List<T> added = new ArrayList<>();
+		for (T plugin : constructed) {
+			String id = plugin.getInfo().getID().toLowerCase();
+			if (byId.containsKey(id) || !plugins.add(plugin)) {
+				logger.error("A plugin with identifier {} is already loaded! Skipping...", id);
+				continue;
+			}
+
+			byId.put(id, plugin);
+			byModule.put(plugin.getClass().getModule(), plugin);
+			byClass.put(plugin.getClass(), plugin);
+
+			Path source = layers.get(plugin.getClass().getModule().getLayer());
+			if (source != null)
+				sources.put(plugin, source);
+
+			context.getEventRegister().register(plugin);
+			added.add(plugin);
+		}
+		return added;
+	}
+
+	/**
+	 * Construct and add the plugins of the specified sources.
+	 *
+	 * @param paths - jars or directories to load
+	 *
+	 * @return Returns the added plugins
+	 */
+	private List<T> load(Collection<Path> paths) {
+		checkRunning();
+
+		Map<ModuleLayer, Path> layers = new HashMap<>();
+		return addPlugins(construct(getProviders(paths, getPluginLayers(Set.of()), layers)), layers);
+	}
+
+	/**
+	 * Run every lifecycle phase for plugins loaded at runtime and register their
+	 * commands.
+	 *
+	 * @param added - plugins to start
+	 *
+	 * @return Returns the plugins that are still loaded afterwards
+	 */
+	private List<T> start(List<T> added) {
+		setWaves(resolveDependencies());
+		List<List<T>> subset = waves.stream().map(wave -> wave.stream().filter(added::contains).toList())
+				.filter(wave -> !wave.isEmpty()).toList();
+
+		JDA jda = context.getJDA();
+		if (jda != null)
+			for (T plugin : added)
+				if (!jda.getGatewayIntents().containsAll(getRequiredIntents(plugin)))
+					logger.warn("{} requires gateway intents that are only enabled after a restart",
+							plugin.getInfo().getDisplayName());
+
+		forEachPlugin(subset, "pre-initialization", Plugin::preInit).join();
+		forEachPlugin(subset, "initialization", plugin -> plugin.init(context.getEventRegister())).join();
+		forEachPlugin(subset, "post-initialization", Plugin::postInit).join();
+
+		List<T> started = added.stream().filter(plugins::contains).toList();
+		if (jda != null)
+			started.stream().filter(p -> p instanceof CommandProvider).map(CommandProvider.class::cast)
+					.map(CommandProvider::getCommands).filter(Objects::nonNull).flatMap(Collection::stream)
+					.forEach(data -> jda.upsertCommand(data).queue());
+
+		forEachPlugin(subset, "ready", Plugin::onReady).join();
+		started.forEach(plugin -> logger.info("Started {}", plugin.getInfo().getDisplayInfo()));
+		return started;
+	}
+
+	/**
+	 * Delete global commands that are no longer provided.
+	 *
+	 * @param names - names of the commands to delete
+	 */
+	private void removeCommands(Set<String> names) {
+		JDA jda = context.getJDA();
+		if (jda == null || names.isEmpty())
+			return;
+
+		jda.retrieveCommands().queue(commands -> commands.stream().filter(c -> names.contains(c.getName()))
+				.forEach(c -> c.delete().queue()));
+	}
+
+	/**
+	 * Get a plugin and every plugin that depends on it directly or indirectly.
+	 *
+	 * @param plugin - root plugin
+	 *
+	 * @return Returns the plugin and its dependents in dependency order
+	 */
+	private Set<T> getSubtree(T plugin) {
+		Set<T> subtree = new LinkedHashSet<>();
+		subtree.add(plugin);
+
+		// Waves are in dependency order, so dependents come after their dependencies
+		for (List<T> wave : waves)
+			for (T p : wave)
+				for (T member : List.copyOf(subtree))
+					if (p.getInfo().getDependencies().contains(member.getInfo().getID().toLowerCase()))
+						subtree.add(p);
+		return subtree;
+	}
+
+	private void checkRunning() {
+		if (context.getState() != State.RUNNING)
+			throw new IllegalStateException("Plugins can only be changed once startup completed");
+	}
+
+	private Path resolveSource(String fileName) {
+		if (pluginDirectory == null)
+			throw new IllegalStateException("No plugin directory is configured");
+
+		Path source = pluginDirectory.resolve(fileName).normalize();
+		if (!source.startsWith(pluginDirectory.normalize()) || !Files.exists(source))
+			throw new NoSuchElementException("No plugin found at " + fileName);
+		return source;
+	}
+
+	/**
+	 * Find all jars and directories inside the plugin directory.
+	 *
+	 * @return Returns the found sources
+	 */
+	private List<Path> findPluginSources() {
+		if (pluginDirectory == null || !Files.isDirectory(pluginDirectory))
+			return List.of();
+
+		try (Stream<Path> stream = Files.list(pluginDirectory)) {
+			return stream.filter(p -> Files.isDirectory(p) || p.getFileName().toString().endsWith(".jar")).sorted()
+					.toList();
+		} catch (IOException e) {
+			logger.error("Failed to list plugin directory " + pluginDirectory, e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Get the layers of the loaded plugins that new plugins may read.
+	 *
+	 * @param excluded - plugins that are about to be replaced
+	 *
+	 * @return Returns the layers of every plugin loaded from the plugin directory
+	 *         that is not {@code excluded}
+	 */
+	private List<ModuleLayer> getPluginLayers(Set<T> excluded) {
+		return sources.keySet().stream().filter(plugin -> !excluded.contains(plugin))
+				.map(plugin -> plugin.getClass().getModule().getLayer()).distinct().toList();
+	}
+
+	/**
+	 * Create a child {@link ModuleLayer} for every jar or directory. A source may
+	 * require modules of the {@code parents} and of the other sources, so sources
+	 * that can not be resolved yet are tried again once another source was
+	 * loaded.
+	 *
+	 * @param paths   - jars or directories of modules
+	 * @param parents - layers of loaded plugins the new layers may read
+	 * @param layers  - map every created layer is added to
+	 */
+	private void createLayers(Collection<Path> paths, List<ModuleLayer> parents, Map<ModuleLayer, Path> layers) {
+		List<ModuleLayer> resolved = new ArrayList<>(parents);
+		resolved.add(layer);
+
+		Map<Path, RuntimeException> pending = new LinkedHashMap<>();
+		paths.forEach(source -> pending.put(source, null));
+
+		boolean progress = true;
+		while (progress && !pending.isEmpty()) {
+			progress = false;
+			for (Iterator<Map.Entry<Path, RuntimeException>> i = pending.entrySet().iterator(); i.hasNext();) {
+				Map.Entry<Path, RuntimeException> entry = i.next();
+				try {
+					ModuleLayer child = createLayer(entry.getKey(), resolved);
+					layers.put(child, entry.getKey());
+					resolved.add(0, child);
+					i.remove();
+					progress = true;
+				} catch (FindException | ResolutionException e) {
+					// Might require a source that was not loaded yet
+					entry.setValue(e);
+				} catch (LayerInstantiationException e) {
+					logger.error("Failed to load plugin modules from " + entry.getKey(), e);
+					i.remove();
+				}
+			}
+		}
+
+		pending.forEach((source, e) -> logger.error("Failed to load plugin modules from " + source, e));
+	}
+
+	/**
+	 * Create a child {@link ModuleLayer} with all modules of a jar or directory.
+	 *
+	 * @param source  - jar or directory of modules
+	 * @param parents - layers the modules are resolved against
+	 *
+	 * @return Returns the created layer
+	 *
+	 * @throws FindException               Thrown if a module could not be found
+	 * @throws ResolutionException         Thrown if a required module is missing
+	 * @throws LayerInstantiationException Thrown if the layer could not be
+	 *                                     created
+	 */
+	@NotNull
+	private ModuleLayer createLayer(Path source, List<ModuleLayer> parents) {
+		ModuleFinder finder = ModuleFinder.of(source);
+		Set<String> roots = finder.findAll().stream().map(ref -> ref.descriptor().name())
+				.collect(Collectors.toSet());
+		Configuration configuration = Configuration.resolve(finder,
+				parents.stream().map(ModuleLayer::configuration).toList(), ModuleFinder.of(), roots);
+		return ModuleLayer.defineModulesWithOneLoader(configuration, parents, pluginClass.getClassLoader())
+				.layer();
+	}
+
+	/**
+	 * Get all {@link Provider Providers} of {@code T} inside the specified jars or
+	 * directories.
+	 *
+	 * @param paths   - jars or directories of modules
+	 * @param parents - layers of loaded plugins the new layers may read
+	 * @param layers  - map the created layers are added to
+	 *
+	 * @return Returns a {@link Collection} of {@link Provider Providers}
+	 */
+	private Collection<Provider<T>> getProviders(Collection<Path> paths, List<ModuleLayer> parents,
+			Map<ModuleLayer, Path> layers) {
+		Map<ModuleLayer, Path> created = new HashMap<>();
+		createLayers(paths, parents, created);
+		layers.putAll(created);
+
+		List<Provider<T>> providers = new ArrayList<>();
+		created.forEach((child, source) -> {
+			Collection<Provider<T>> found = getProviders(child);
+			if (found.isEmpty())
+				logger.warn("No plugin found in {}", source);
+			providers.addAll(found);
+		});
+		return providers;
+	}
+
 	/**
 	 * Get all {@link Provider Providers} of {@code T} from the
-	 * {@link ServiceLoader}. This method will only take <b>one</b> {@code T} per
-	 * {@link Module}.
+	 * {@link ServiceLoader} that are defined in the specified {@code layer}. This
+	 * method will only take <b>one</b> {@code T} per {@link Module}.
+	 *
+	 * @param layer - layer to get the providers of
 	 *
 	 * @return Returns a {@link Collection} of {@link Provider Providers}
 	 */
-	private Collection<Provider<@NotNull T>> getProviders() {
+	private Collection<Provider<@NotNull T>> getProviders(ModuleLayer layer) {
+		ServiceLoader<T> loader = layer == this.layer ? this.loader : ServiceLoader.load(layer, pluginClass);
+
 		Map<Module, Provider<T>> providers = new HashMap<>();
 		for (Provider<T> provider : loader.stream().toList()) {
 			Module module = provider.type().getModule();
 
+			// Providers of parent layers are loaded separately
+			if (module.getLayer() != layer)
+				continue;
+
 			// Check if module is already present
 			if (providers.containsKey(module)) {
 				logger.warn("A plugin is already registered for module: {}! Skipping...", module);
@@ -148,7 +677,7 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 			providers.put(module, provider);
 		}
 
-		return providers.values();
+		return new ArrayList<>(providers.values());
 	}
 
 	/**
@@ -197,11 +726,75 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 		}).toList();
 	}
 
+	/**
+	 * Order the loaded plugins by their {@code depends} declarations. Plugins
+	 * with a missing dependency or that are part of a dependency cycle are
+	 * unloaded along with everything depending on them.
+	 *
+	 * @return Returns the plugins grouped into waves where every plugin only
+	 *         depends on plugins of earlier waves
+	 */
+	private List<List<T>> resolveDependencies() {
+		// Depth of each plugin in the dependency graph
+		Map<T, Integer> depth = new HashMap<>();
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (T plugin : plugins) {
+				// Skip plugins unloaded as a dependent during this pass
+				if (depth.containsKey(plugin) || !plugins.contains(plugin))
+					continue;
+
+				int max = -1;
+				for (String dependency : plugin.getInfo().getDependencies()) {
+					T required = byId.get(dependency);
+					if (required == null) {
+						logger.error("{} requires missing plugin {}", plugin.getInfo().getDisplayName(), dependency);
+						unloadPlugin(plugin);
+						progress = true;
+						max = Integer.MAX_VALUE;
+						break;
+					}
+
+					Integer d = depth.get(required);
+					if (d == null) {
+						max = Integer.MAX_VALUE;
+						break;
+					}
+					max = Math.max(max, d);
+				}
+
+				if (max != Integer.MAX_VALUE) {
+					depth.put(plugin, max + 1);
+					progress = true;
+				}
+			}
+		}
+
+		// Everything left depends on a cycle
+		for (T plugin : plugins)
+			if (!depth.containsKey(plugin)) {
+				logger.error("{} is part of a plugin dependency cycle", plugin.getInfo().getDisplayName());
+				unloadPlugin(plugin);
+			}
+
+		List<List<T>> waves = new ArrayList<>();
+		depth.forEach((plugin, d) -> {
+			while (waves.size() <= d)
+				waves.add(new ArrayList<>());
+			waves.get(d).add(plugin);
+		});
+		waves.removeIf(List::isEmpty);
+
+		logger.debug("Resolved plugin dependencies into {} waves", waves.size());
+		return waves.stream().map(List::copyOf).toList();
+	}
+
 	/**
 	 * Pre-Initialize all plugins.
 	 */
 	public void preInit() {
-		forEachPlugin(Plugin::preInit, null).join();
+		forEachPlugin("pre-initialization", Plugin::preInit).join();
 	}
 
 	/**
@@ -209,7 +802,7 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@NotNull
 	public void init() {
-		forEachPlugin(plugin -> plugin.init(context.getEventRegister()), null).join();
+		forEachPlugin("initialization", plugin -> plugin.init(context.getEventRegister())).join();
 	}
 
 	/**
@@ -217,7 +810,7 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@NotNull
 	public void postInit() {
-		forEachPlugin(Plugin::postInit, null).join();
+		forEachPlugin("post-initialization", Plugin::postInit).join();
 	}
 
 	/**
@@ -228,7 +821,7 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@NotNull
 	public CompletableFuture<Void> onReady() {
-		return forEachPlugin(Plugin::onReady, null);
+		return forEachPlugin("ready", Plugin::onReady);
 	}
 
 	/**
@@ -247,26 +840,110 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	}
 
 	/**
-	 * Iterate over all plugins that match the {@code filter} and perform a task.
+	 * Run a lifecycle phase for all plugins. Plugins run in dependency order where
+	 * each wave of plugins runs in parallel once the previous wave completed.
 	 * Additionally, any plugin that fires a <b>fatal</b>
-	 * {@link SeverePluginException} will be unloaded.
+	 * {@link SeverePluginException} or exceeds the phase timeout will be unloaded
+	 * along with every plugin depending on it.
 	 *
-	 * @param task   - task that is executed for every plugin in the filter
-	 * @param filter - filter to select what plugins to use or {@code null} for all
-	 *               plugins
+	 * @param phase - name of the phase used in log messages
+	 * @param task  - task that is executed for every plugin
 	 *
 	 * @return Returns a {@link CompletableFuture} that completes after all plugins
 	 *         have finished the {@code task}.
 	 */
 	@NotNull
-	private CompletableFuture<Void> forEachPlugin(Consumer<? super T> task, @Nullable Predicate<Plugin> filter) {
-		if (filter == null)
-			filter = p -> true;
-		return CompletableFutureUtils.allOf(plugins.stream().filter(filter).map(plugin -> CompletableFuture
-				.runAsync(() -> task.accept(plugin), pluginExecutor).exceptionallyAsync(error -> {
-					pluginError(plugin, error);
-					return null;
-				}, pluginExecutor)));
+	private CompletableFuture<Void> forEachPlugin(String phase, Consumer<? super T> task) {
+		return forEachPlugin(waves, phase, task);
+	}
+
+	/**
+	 * Run a lifecycle phase for the plugins of the specified waves.
+	 *
+	 * @param waves - plugins grouped in dependency order
+	 * @param phase - name of the phase used in log messages
+	 * @param task  - task that is executed for every plugin
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes after all plugins
+	 *         have finished the {@code task}.
+	 *
+	 * @see #forEachPlugin(String, Consumer)
+	 */
+	@NotNull
+	private CompletableFuture<Void> forEachPlugin(List<List<T>> waves, String phase, Consumer<? super T> task) {
+		CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+		for (List<T> wave : waves)
+			future = future.thenComposeAsync(v -> CompletableFutureUtils
+					.allOf(wave.stream().filter(plugins::contains).map(plugin -> runPhase(phase, plugin, task))),
+					pluginExecutor);
+		return future;
+	}
+
+	/**
+	 * Run a lifecycle phase for a single plugin.
+	 * <p>
+	 * A phase that exceeds the phase timeout is interrupted. The plugin is only
+	 * unloaded once the phase stopped or did not react to the interrupt within
+	 * {@link #STOP_TIMEOUT} and was abandoned.
+	 * </p>
+	 *
+	 * @param phase  - name of the phase used in log messages
+	 * @param plugin - plugin to run the phase for
+	 * @param task   - task to run
+	 *
+	 * @return Returns a {@link CompletableFuture} that completes once the plugin
+	 *         finished, failed or timed out
+	 */
+	private CompletableFuture<?> runPhase(String phase, T plugin, Consumer<? super T> task) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		CompletableFuture<Boolean> stopped = new CompletableFuture<>();
+		AtomicBoolean started = new AtomicBoolean();
+
+		Future<?> running;
+		try {
+			// Run on the plugin's own executor so a hanging plugin only blocks itself
+			running = context.getExecutor(plugin).submit(() -> {
+				if (!started.compareAndSet(false, true))
+					return;
+				try {
+					task.accept(plugin);
+					future.complete(null);
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				} finally {
+					stopped.complete(true);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			running = CompletableFuture.completedFuture(null);
+			future.completeExceptionally(e);
+		}
+		if (!phaseTimeout.isZero())
+			future.orTimeout(phaseTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+		Future<?> phaseTask = running;
+		return future.exceptionallyComposeAsync(error -> {
+			if (error instanceof CompletionException && error.getCause() != null)
+				error = error.getCause();
+			if (!(error instanceof TimeoutException)) {
+				pluginError(plugin, error);
+				return CompletableFuture.completedFuture(null);
+			}
+
+			// Never start a phase that timed out while it was still queued
+			if (started.compareAndSet(false, true))
+				stopped.complete(true);
+			phaseTask.cancel(true);
+
+			return stopped.completeOnTimeout(false, STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+					.thenAcceptAsync(stop -> {
+						if (!stop)
+							logger.warn("{} did not stop {} after being interrupted. Abandoning it",
+									plugin.getInfo().getDisplayName(), phase);
+						pluginError(plugin, new SeverePluginException(plugin.getInfo().getDisplayName()
+								+ " did not complete " + phase + " within " + phaseTimeout.toSeconds() + " seconds"));
+					}, pluginExecutor);
+		}, pluginExecutor);
 	}
 
 	/**
@@ -277,19 +954,83 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@SuppressWarnings("resource")
 	private void unloadPlugin(T plugin) {
+		if (!plugins.remove(plugin))
+			return;
+		byId.remove(plugin.getInfo().getID().toLowerCase(), plugin);
+		byModule.remove(plugin.getClass().getModule(), plugin);
+		byClass.remove(plugin.getClass(), plugin);
+		sources.remove(plugin);
+		forget(plugin);
+
+		// Plugins depending on this one can no longer work
+		String id = plugin.getInfo().getID().toLowerCase();
+		for (T dependent : plugins)
+			if (dependent.getInfo().getDependencies().contains(id)) {
+				logger.warn("Unloading {} as it depends on {}", dependent.getInfo().getDisplayName(),
+						plugin.getInfo().getDisplayName());
+				unloadPlugin(dependent);
+			}
+
 		logger.debug("Unloading {}", plugin.getClass());
-		plugins.remove(plugin);
 		context.getEventRegister().unregister(plugin);
 		try {
 			plugin.close();
 		} catch (Exception e) {
 			pluginError(plugin, new SeverePluginException(e, false));
 		}
+		context.closeExecutor(plugin);
 		if (plugin.getInfo().requiresDatabase())
 			context.getDatabaseManager().unload(plugin);
 		logger.warn(plugin.getInfo().getDisplayInfo() + " unloaded");
 	}
 
+	/**
+	 * Replace the dependency waves.
+	 *
+	 * @param waves - new waves
+	 */
+	private synchronized void setWaves(List<List<T>> waves) {
+		this.waves = waves;
+	}
+
+	/**
+	 * Remove an unloaded plugin from the dependency waves so its module layer can
+	 * be collected.
+	 *
+	 * @param plugin - unloaded plugin
+	 */
+	private synchronized void forget(T plugin) {
+		waves = waves.stream().map(wave -> wave.stream().filter(p -> p != plugin).toList())
+				.filter(wave -> !wave.isEmpty()).toList();
+	}
+
+	/**
+	 * Get the names of all commands provided by the specified plugins.
+	 *
+	 * @param plugins - plugins to check
+	 *
+	 * @return Returns a mutable set of command names
+	 */
+	private static Set<String> getCommandNames(Collection<? extends Plugin> plugins) {
+		Set<String> names = new HashSet<>();
+		for (Plugin plugin : plugins)
+			if (plugin instanceof CommandProvider provider && provider.getCommands() != null)
+				provider.getCommands().forEach(data -> names.add(data.getName()));
+		return names;
+	}
+
+	/**
+	 * Get the identifiers of the specified plugins.
+	 *
+	 * @param plugins - plugins to check
+	 *
+	 * @return Returns a mutable set of lowercase identifiers
+	 */
+	private static Set<String> getIdentifiers(Collection<? extends Plugin> plugins) {
+		return plugins.stream().map(p -> p.getInfo().getID().toLowerCase())
+				.collect(Collectors.toCollection(HashSet::new));
+	}
+
 	/**
 	 * Indicate that a plugin has thrown an error during one of its initialization
 	 * methods.
@@ -321,13 +1062,29 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	}
 
 	/**
-	 * Close all loaded plugins and <b>wait</b> for the termination of the plugin
-	 * thread pool.
+	 * Close all loaded plugins in reverse dependency order, so no plugin is closed
+	 * before the plugins depending on it.
 	 */
 	@Override
 	public void close() {
 		logger.debug("Closing all pugins");
-		forEachPlugin(this::unloadPlugin, null);
+		List<List<T>> waves = this.waves;
+		for (int i = waves.size() - 1; i >= 0; i--) {
+			CompletableFuture<Void> wave = CompletableFutureUtils.allOf(waves.get(i).stream()
+					.map(plugin -> CompletableFuture.runAsync(() -> unloadPlugin(plugin), pluginExecutor)));
+			if (!phaseTimeout.isZero())
+				wave.orTimeout(phaseTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+			try {
+				wave.join();
+			} catch (CompletionException e) {
+				logger.error("Timed out while closing plugins", e.getCause());
+			}
+		}
+
+		// Plugins loaded outside of the dependency graph
+		plugins.forEach(this::unloadPlugin);
+		MBeanUtils.unregister(bean);
 	}
 
 	/**
@@ -444,8 +1201,8 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@Nullable
 	public T getPlugin(String identifier) {
-		String temp = identifier.trim().toLowerCase();
-		return filterPlugins(p -> p.getInfo().getID().equalsIgnoreCase(temp));
+		T plugin = byId.get(identifier);
+		return plugin != null ? plugin : byId.get(identifier.trim().toLowerCase());
 	}
 
 	/**
@@ -457,7 +1214,9 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@Nullable
 	public T getPlugin(Class<? extends T> pluginClass) {
-		return filterPlugins(p -> pluginClass.isInstance(p));
+		T plugin = byClass.get(pluginClass);
+		// Look up plugins by a super class
+		return plugin != null ? plugin : filterPlugins(p -> pluginClass.isInstance(p));
 	}
 
 	/**
@@ -469,7 +1228,7 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 	 */
 	@Nullable
 	public T getPluginForModule(Module module) {
-		return filterPlugins(p -> p.getClass().getModule().equals(module));
+		return byModule.get(module);
 	}
 
 	/**
@@ -540,4 +1299,36 @@ public class PluginHandler<@NotNull T extends Plugin> implements Closeable {
 			set.addAll(func.apply(plugin));
 		return set;
 	}
+
+	/**
+	 * Management view exposing runtime plugin loading through JMX.
+	 *
+	 * @author Ashley
+	 */
+	private final class Management implements PluginManagerMXBean {
+		@Override
+		public List<String> getPlugins() {
+			return plugins.stream().map(p -> p.getInfo().getID()).sorted().toList();
+		}
+
+		@Override
+		public List<String> getReloadablePlugins() {
+			return sources.keySet().stream().map(p -> p.getInfo().getID()).sorted().toList();
+		}
+
+		@Override
+		public List<String> loadPlugin(String fileName) {
+			return PluginHandler.this.loadPlugin(fileName).stream().map(p -> p.getInfo().getID()).toList();
+		}
+
+		@Override
+		public boolean unloadPlugin(String identifier) {
+			return PluginHandler.this.unloadPlugin(identifier);
+		}
+
+		@Override
+		public List<String> reloadPlugin(String identifier) {
+			return PluginHandler.this.reloadPlugin(identifier).stream().map(p -> p.getInfo().getID()).toList();
+		}
+	}
 }
@@ -2,6 +2,7 @@ package net.foxgenesis.watame.plugin;
 
 import java.lang.module.ModuleDescriptor.Version;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * Record class containing all information about a {@link Plugin}.
@@ -14,11 +15,13 @@ import java.nio.file.Path;
  * @param requiresDatabase     - if the plugin requires access to the database
  * @param getConfigurationPath - the {@link Path} to the plugin's configuration
  *                             folder
+ * @param getDependencies      - identifiers of the plugins this plugin depends
+ *                             on
  *
  * @author Ashley
  */
 public record PluginInformation(String getID, String getDisplayName, Version getVersion, String getDescription,
-		boolean providesCommands, boolean requiresDatabase, Path getConfigurationPath) {
+		boolean providesCommands, boolean requiresDatabase, Path getConfigurationPath, Set<String> getDependencies) {
 
 	/**
 	 * Get a string displaying the plugin's {@code displayName} and {@code version}.
@@ -0,0 +1,49 @@
+package net.foxgenesis.watame.plugin;
+
+import java.util.List;
+
+/**
+ * JMX view of a {@link PluginHandler} used to load, unload and reload plugins
+ * while the bot is running.
+ *
+ * @author Ashley
+ */
+public interface PluginManagerMXBean {
+	/**
+	 * @return Returns the identifiers of all loaded plugins
+	 */
+	List<String> getPlugins();
+
+	/**
+	 * @return Returns the identifiers of all plugins loaded from the plugin
+	 *         directory
+	 */
+	List<String> getReloadablePlugins();
+
+	/**
+	 * Load a jar or directory from the plugin directory.
+	 *
+	 * @param fileName - name of the jar or directory inside the plugin directory
+	 *
+	 * @return Returns the identifiers of the started plugins
+	 */
+	List<String> loadPlugin(String fileName);
+
+	/**
+	 * Unload a plugin and every plugin depending on it.
+	 *
+	 * @param identifier - plugin identifier
+	 *
+	 * @return Returns {@code true} if the plugin was unloaded
+	 */
+	boolean unloadPlugin(String identifier);
+
+	/**
+	 * Reload a plugin and every plugin depending on it from the plugin directory.
+	 *
+	 * @param identifier - plugin identifier
+	 *
+	 * @return Returns the identifiers of the started plugins
+	 */
+	List<String> reloadPlugin(String identifier);
+}
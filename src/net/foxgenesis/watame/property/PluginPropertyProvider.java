@@ -1,10 +1,17 @@
 package net.foxgenesis.watame.property;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
 import net.foxgenesis.property.PropertyInfo;
 import net.foxgenesis.property.PropertyProvider;
 import net.foxgenesis.property.PropertyType;
 import net.foxgenesis.watame.plugin.Plugin;
 
+import org.jetbrains.annotations.NotNull;
+
 import net.dv8tion.jda.api.entities.Guild;
 
 public interface PluginPropertyProvider extends PropertyProvider<Plugin, String, Guild, PluginPropertyMapping> {
@@ -59,4 +66,54 @@ public interface PluginPropertyProvider extends PropertyProvider<Plugin, String,
 	@Override
 	PluginProperty getProperty(PropertyInfo info);
 
+	/**
+	 * Register every {@link PropertyInfo} inside the configuration so later
+	 * lookups do not need to query it.
+	 */
+	void preloadProperties();
+
+	/**
+	 * Retrieve every stored property of a {@link Guild} in a single operation and
+	 * fill the cache of all registered {@link PluginProperty PluginProperties}
+	 * with the result. Properties that are not stored for the {@code guild} are
+	 * remembered as absent.
+	 *
+	 * @param guild - guild to load
+	 */
+	void loadGuild(@NotNull Guild guild);
+
+	/**
+	 * Retrieve the value of every registered property of a {@link Guild} in a
+	 * single operation. The cache of all registered {@link PluginProperty
+	 * PluginProperties} is filled with the result like {@link #loadGuild(Guild)}.
+	 *
+	 * @param guild - guild to read
+	 *
+	 * @return Returns every registered {@link PropertyInfo} ordered by category
+	 *         and name, mapped to its value in the {@code guild}
+	 */
+	@NotNull
+	Map<PropertyInfo, Optional<PluginPropertyMapping>> getGuildSnapshot(@NotNull Guild guild);
+
+	/**
+	 * Remove every cached property value of a {@link Guild}. This should be
+	 * called once the guild is no longer available.
+	 *
+	 * @param guild - guild to unload
+	 */
+	void unloadGuild(@NotNull Guild guild);
+
+	/**
+	 * Find the registered properties whose category or name contains the
+	 * specified {@code query}. Results are ordered by relevance.
+	 *
+	 * @param query  - text to search for
+	 * @param filter - properties to include
+	 * @param limit  - maximum amount of results
+	 *
+	 * @return Returns a ranked list of at most {@code limit} matching
+	 *         {@link PropertyInfo PropertyInfos}
+	 */
+	@NotNull
+	List<PropertyInfo> searchProperties(@NotNull String query, @NotNull Predicate<PropertyInfo> filter, int limit);
 }
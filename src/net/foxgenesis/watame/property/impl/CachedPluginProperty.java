@@ -1,38 +1,42 @@
 package net.foxgenesis.watame.property.impl;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
+import net.foxgenesis.property.PropertyException;
 import net.foxgenesis.property.PropertyInfo;
 import net.foxgenesis.property.PropertyType;
 import net.foxgenesis.property.lck.LCKPropertyResolver;
-import net.foxgenesis.property.lck.impl.CachedObject;
+import net.foxgenesis.property.lck.impl.PropertyCache;
 import net.foxgenesis.watame.property.PluginPropertyMapping;
 
+import org.jetbrains.annotations.Nullable;
+
 import net.dv8tion.jda.api.entities.Guild;
 
 public class CachedPluginProperty extends PluginPropertyImpl {
-	protected final ConcurrentHashMap<Long, CachedObject<PluginPropertyMapping>> cache = new ConcurrentHashMap<>();
-	private final long cacheTime;
+	protected final PropertyCache<PluginPropertyMapping> cache;
 
 	@SuppressWarnings("exports")
-	public CachedPluginProperty(PropertyInfo info, LCKPropertyResolver resolver, long cacheTime) {
+	public CachedPluginProperty(PropertyInfo info, LCKPropertyResolver resolver,
+			PropertyCache<PluginPropertyMapping> cache) {
 		super(info, resolver);
-		this.cacheTime = cacheTime;
+		this.cache = Objects.requireNonNull(cache);
 	}
 
 	@Override
 	public Optional<PluginPropertyMapping> get(Guild lookup) {
-		init(lookup);
-		return Optional.ofNullable(cache.get(lookup.getIdLong()).get());
+		long id = lookup.getIdLong();
+		return Optional.ofNullable(cache.get(id, getInfo().id(), () -> retrieve(id)).get());
 	}
 
 	@Override
 	public boolean set(Guild lookup, byte[] data, boolean isUserInput) {
 		checkUserInput(isUserInput);
-		init(lookup);
 		if (super.set(lookup, data, isUserInput)) {
-			cache.get(lookup.getIdLong()).set(createMapping(lookup, data, getInfo().type()));
+			prime(lookup, createMapping(lookup, data, getInfo().type()));
 			return true;
 		}
 		return false;
@@ -42,15 +46,45 @@ public class CachedPluginProperty extends PluginPropertyImpl {
 	public boolean remove(Guild lookup, boolean isUserInput) {
 		checkUserInput(isUserInput);
 		if (super.remove(lookup, isUserInput)) {
-			cache.get(lookup.getIdLong()).set(null);
+			prime(lookup, null);
 			return true;
 		}
 		return false;
 	}
 
-	protected void init(Guild lookup) {
-		if (!cache.containsKey(lookup.getIdLong()))
-			cache.put(lookup.getIdLong(), new CachedObject<>(() -> super.get(lookup).orElse(null), cacheTime));
+	/**
+	 * Fill the cache of the specified {@code lookup} with an already retrieved
+	 * value. A {@code null} {@code mapping} marks the property as absent.
+	 *
+	 * @param lookup  - property lookup
+	 * @param mapping - retrieved value or {@code null} if not present
+	 */
+	void prime(Guild lookup, @Nullable PluginPropertyMapping mapping) {
+		long id = lookup.getIdLong();
+		cache.put(id, getInfo().id(), () -> retrieve(id), mapping);
+	}
+
+	/**
+	 * Remove the cached value of the specified {@code lookup}.
+	 *
+	 * @param lookup - property lookup
+	 */
+	void invalidate(Guild lookup) {
+		cache.invalidate(lookup.getIdLong(), getInfo().id());
+	}
+
+	public long getCacheTime() {
+		return cache.getCacheTime();
+	}
+
+	private PluginPropertyMapping retrieve(long lookup) {
+		return resolver.getInternal(lookup, getInfo()).map(blob -> {
+			try {
+				return new PluginPropertyMapping(lookup, blob, getInfo().type());
+			} catch (IOException | SQLException e) {
+				throw new PropertyException(e);
+			}
+		}).orElse(null);
 	}
 
 	protected PluginPropertyMapping createMapping(Guild lookup, byte[] data, PropertyType type) {
@@ -58,4 +92,4 @@ public class CachedPluginProperty extends PluginPropertyImpl {
 			return null;
 		return new PluginPropertyMapping(lookup, data, type);
 	}
-}
\ No newline at end of file
+}
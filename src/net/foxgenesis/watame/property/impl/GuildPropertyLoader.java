@@ -0,0 +1,63 @@
+package net.foxgenesis.watame.property.impl;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import net.foxgenesis.watame.property.PluginPropertyProvider;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Listener that loads all properties of a {@link Guild} in a single query as
+ * soon as the guild becomes available and releases them once the guild is
+ * left.
+ *
+ * @author Ashley
+ *
+ * @see PluginPropertyProvider#loadGuild(Guild)
+ */
+public class GuildPropertyLoader extends ListenerAdapter {
+	private static final Logger logger = LoggerFactory.getLogger(GuildPropertyLoader.class);
+
+	private final PluginPropertyProvider provider;
+	private final Executor executor;
+
+	@SuppressWarnings("exports")
+	public GuildPropertyLoader(@NotNull PluginPropertyProvider provider, @NotNull Executor executor) {
+		this.provider = Objects.requireNonNull(provider);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	@Override
+	public void onGuildReady(GuildReadyEvent event) {
+		load(event.getGuild());
+	}
+
+	@Override
+	public void onGuildJoin(GuildJoinEvent event) {
+		load(event.getGuild());
+	}
+
+	@Override
+	public void onGuildLeave(GuildLeaveEvent event) {
+		provider.unloadGuild(event.getGuild());
+	}
+
+	private void load(Guild guild) {
+		executor.execute(() -> {
+			try {
+				provider.loadGuild(guild);
+			} catch (Exception e) {
+				logger.error("Failed to load properties for " + guild, e);
+			}
+		});
+	}
+}
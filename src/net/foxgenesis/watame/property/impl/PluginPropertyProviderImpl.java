@@ -1,34 +1,83 @@
 package net.foxgenesis.watame.property.impl;
 
+import java.io.IOException;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+import net.foxgenesis.property.PropertyException;
 import net.foxgenesis.property.PropertyInfo;
 import net.foxgenesis.property.PropertyType;
 import net.foxgenesis.property.lck.LCKPropertyResolver;
+import net.foxgenesis.property.lck.impl.PropertyCache;
 import net.foxgenesis.watame.plugin.Plugin;
 import net.foxgenesis.watame.property.PluginProperty;
+import net.foxgenesis.watame.property.PluginPropertyMapping;
 import net.foxgenesis.watame.property.PluginPropertyProvider;
 
 import org.jetbrains.annotations.NotNull;
 
+import net.dv8tion.jda.api.entities.Guild;
+
 public class PluginPropertyProviderImpl implements PluginPropertyProvider {
-	private final CopyOnWriteArrayList<PluginProperty> map = new CopyOnWriteArrayList<>();
+	/**
+	 * Order of guild snapshots
+	 */
+	private static final Comparator<PropertyInfo> DISPLAY_ORDER = Comparator
+			.comparing(PropertyInfo::category, String.CASE_INSENSITIVE_ORDER)
+			.thenComparing(PropertyInfo::name, String.CASE_INSENSITIVE_ORDER).thenComparingInt(PropertyInfo::id);
+
+	/**
+	 * Registered properties by {@link PropertyInfo#id()}
+	 */
+	private final ConcurrentHashMap<Integer, PluginProperty> byId = new ConcurrentHashMap<>();
+
+	/**
+	 * Registered properties by normalized category and name
+	 */
+	private final ConcurrentHashMap<String, PluginProperty> byName = new ConcurrentHashMap<>();
+
+	/**
+	 * Search index over all registered properties
+	 */
+	private final PropertySearchIndex searchIndex = new PropertySearchIndex();
+
 	private final LCKPropertyResolver database;
-	private final long cacheTime;
+	private final PropertyCache<PluginPropertyMapping> cache;
 
 	@SuppressWarnings("exports")
-	public PluginPropertyProviderImpl(@NotNull LCKPropertyResolver database, long cacheTime) {
+	public PluginPropertyProviderImpl(@NotNull LCKPropertyResolver database,
+			@NotNull PropertyCache<PluginPropertyMapping> cache) {
 		this.database = Objects.requireNonNull(database);
-		this.cacheTime = cacheTime;
+		this.cache = Objects.requireNonNull(cache);
 	}
 
 	@Override
 	public PropertyInfo registerProperty(Plugin plugin, String key, boolean modifiable, PropertyType type) {
-		if (!propertyExists(plugin, key))
-			return database.createPropertyInfo(plugin.getInfo().getID(), key, modifiable, type);
-		return database.getPropertyInfo(plugin.getInfo().getID(), key);
+		String category = plugin.getInfo().getID();
+
+		PluginProperty cached = byName.get(normalize(category, key));
+		if (cached != null)
+			return cached.getInfo();
+
+		PropertyInfo info;
+		try {
+			info = database.isRegistered(category, key) ? database.getPropertyInfo(category, key)
+					: database.createPropertyInfo(category, key, modifiable, type);
+		} catch (IllegalArgumentException e) {
+			// Created by another thread or process in the meantime
+			info = database.getPropertyInfo(category, key);
+		}
+
+		return index(new CachedPluginProperty(info, database, cache)).getInfo();
 	}
 
 	@Override
@@ -38,7 +87,7 @@ public class PluginPropertyProviderImpl implements PluginPropertyProvider {
 
 	@Override
 	public PluginProperty getProperty(Plugin plugin, String key) {
-		PluginProperty cached = inCache(plugin, key);
+		PluginProperty cached = byName.get(normalize(plugin.getInfo().getID(), key));
 		if (cached != null)
 			return cached;
 		return getProperty(database.getPropertyInfo(plugin.getInfo().getID(), key));
@@ -46,17 +95,15 @@ public class PluginPropertyProviderImpl implements PluginPropertyProvider {
 
 	@Override
 	public PluginProperty getProperty(PropertyInfo info) {
-		PluginProperty cached = inCache(info);
+		PluginProperty cached = byId.get(info.id());
 		if (cached != null)
 			return cached;
-		cached = new CachedPluginProperty(info, database, cacheTime);
-		map.addIfAbsent(cached);
-		return cached;
+		return index(new CachedPluginProperty(info, database, cache));
 	}
 
 	@Override
 	public boolean propertyExists(Plugin plugin, String key) {
-		if (inCache(plugin, key) != null)
+		if (byName.containsKey(normalize(plugin.getInfo().getID(), key)))
 			return true;
 		return database.isRegistered(plugin.getInfo().getID(), key);
 	}
@@ -64,58 +111,104 @@ public class PluginPropertyProviderImpl implements PluginPropertyProvider {
 	@SuppressWarnings("null")
 	@Override
 	public List<PropertyInfo> getPropertyList() {
-		return map.stream().map(PluginProperty::getInfo).toList();
+		return byId.values().stream().map(PluginProperty::getInfo).sorted(Comparator.comparingInt(PropertyInfo::id))
+				.toList();
 	}
 
 	@Override
-	public PluginProperty getPropertyByID(int id) {
-		PluginProperty info = inCache(id);
-		if (info != null)
-			return info;
-		return getProperty(database.getPropertyByID(id));
+	public List<PropertyInfo> searchProperties(String query, Predicate<PropertyInfo> filter, int limit) {
+		return searchIndex.search(query, filter, limit);
+	}
+
+	@Override
+	public void preloadProperties() {
+		List<PropertyInfo> list = database.getPropertyList();
+		for (PropertyInfo info : list)
+			getProperty(info);
+	}
+
+	@Override
+	public void loadGuild(Guild guild) {
+		getGuildSnapshot(guild);
+	}
+
+	@Override
+	public Map<PropertyInfo, Optional<PluginPropertyMapping>> getGuildSnapshot(Guild guild) {
+		Map<Integer, Blob> stored = database.getAllInternal(guild.getIdLong());
+		Map<PropertyInfo, Optional<PluginPropertyMapping>> snapshot = new TreeMap<>(DISPLAY_ORDER);
+
+		for (PluginProperty property : byId.values()) {
+			PropertyInfo info = property.getInfo();
+			Blob blob = stored.get(info.id());
+
+			PluginPropertyMapping mapping;
+			try {
+				mapping = blob != null ? new PluginPropertyMapping(guild, blob, info.type()) : null;
+			} catch (IOException | SQLException e) {
+				throw new PropertyException(e);
+			}
+
+			if (property instanceof CachedPluginProperty cached)
+				cached.prime(guild, mapping);
+			snapshot.put(info, Optional.ofNullable(mapping));
+		}
+		return snapshot;
+	}
+
+	@Override
+	public void unloadGuild(Guild guild) {
+		for (PluginProperty property : byId.values())
+			if (property instanceof CachedPluginProperty cached)
+				cached.invalidate(guild);
 	}
 
 	/**
-	 * Check if a {@link PluginProperty} is inside the cache.
+	 * Get the cache shared by all properties of this provider.
 	 *
-	 * @param plugin - property owner
-	 * @param key    - property name
-	 *
-	 * @return Returns the found {@link PluginProperty}, otherwise {@code null}
+	 * @return Returns the {@link PropertyCache} used by this provider
 	 */
-	private PluginProperty inCache(Plugin plugin, String key) {
-		for (PluginProperty pair : map)
-			if (pair.getInfo().category().equalsIgnoreCase(plugin.getInfo().getID())
-					&& pair.getInfo().name().equalsIgnoreCase(key))
-				return pair;
-		return null;
+	@SuppressWarnings("exports")
+	public PropertyCache<PluginPropertyMapping> getCache() {
+		return cache;
+	}
+
+	@Override
+	public PluginProperty getPropertyByID(int id) {
+		PluginProperty info = byId.get(id);
+		if (info != null)
+			return info;
+		return getProperty(database.getPropertyByID(id));
 	}
 
 	/**
-	 * Check if a {@link PluginProperty} is inside the cache.
+	 * Add a property to the registry unless one with the same id exists.
 	 *
-	 * @param info - property info
+	 * @param property - property to add
 	 *
-	 * @return Returns the found {@link PluginProperty}, otherwise {@code null}
+	 * @return Returns the registered {@link PluginProperty}
 	 */
-	private PluginProperty inCache(PropertyInfo info) {
-		for (PluginProperty pair : map)
-			if (pair.getInfo().equals(info))
-				return pair;
-		return null;
+	private PluginProperty index(PluginProperty property) {
+		PropertyInfo info = property.getInfo();
+
+		PluginProperty existing = byId.putIfAbsent(info.id(), property);
+		if (existing != null)
+			return existing;
+
+		byName.putIfAbsent(normalize(info.category(), info.name()), property);
+		searchIndex.add(info);
+		return property;
 	}
 
 	/**
-	 * Check if a {@link PluginProperty} is inside the cache
+	 * Create the registry key of a property. Matching is case insensitive like
+	 * the database.
 	 *
-	 * @param id - property id
+	 * @param category - property category
+	 * @param name     - property name
 	 *
-	 * @return Returns the found {@link PluginProperty}, otherwise {@code null}
+	 * @return Returns the normalized key
 	 */
-	private PluginProperty inCache(int id) {
-		for (PluginProperty pair : map)
-			if (pair.getInfo().id() == id)
-				return pair;
-		return null;
+	private static String normalize(String category, String name) {
+		return category.toLowerCase(Locale.ROOT) + '\0' + name.toLowerCase(Locale.ROOT);
 	}
 }
@@ -0,0 +1,247 @@
+package net.foxgenesis.watame.property.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+import net.foxgenesis.property.PropertyInfo;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Search index over the category and name of registered {@link PropertyInfo
+ * PropertyInfos}.
+ * <p>
+ * Every n-gram of up to {@value #GRAM_LENGTH} characters of the lowercase
+ * {@code "category name"} text is mapped to the properties containing it.
+ * Searching only intersects the postings of the query's n-grams instead of
+ * scanning every property, and the index is updated as properties are added.
+ * </p>
+ * <p>
+ * Results are ranked by how well the name matches the query: an exact name
+ * first, followed by names starting with the query, words starting with the
+ * query, names containing the query and finally matches on the category only.
+ * </p>
+ *
+ * @author Ashley
+ */
+public class PropertySearchIndex {
+	/**
+	 * Maximum length of an indexed n-gram
+	 */
+	private static final int GRAM_LENGTH = 3;
+
+	/**
+	 * Indexed properties by id
+	 */
+	private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Ids of the properties containing an n-gram
+	 */
+	private final ConcurrentHashMap<String, Set<Integer>> grams = new ConcurrentHashMap<>();
+
+	/**
+	 * Indexed properties in display order, used for empty queries
+	 */
+	private final ConcurrentSkipListMap<String, Entry> ordered = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Add a property to the index. Adding an already indexed property does
+	 * nothing.
+	 *
+	 * @param info - property to add
+	 */
+	public void add(@NotNull PropertyInfo info) {
+		Entry entry = new Entry(info);
+		if (entries.putIfAbsent(info.id(), entry) != null)
+			return;
+
+		for (String gram : grams(entry.text))
+			grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(info.id());
+		ordered.put(entry.sortKey, entry);
+	}
+
+	/**
+	 * Remove a property from the index.
+	 *
+	 * @param info - property to remove
+	 */
+	public void remove(@NotNull PropertyInfo info) {
+		Entry entry = entries.remove(info.id());
+		if (entry == null)
+			return;
+
+		ordered.remove(entry.sortKey);
+		for (String gram : grams(entry.text))
+			grams.computeIfPresent(gram, (g, ids) -> {
+				ids.remove(info.id());
+				return ids.isEmpty() ? null : ids;
+			});
+	}
+
+	/**
+	 * Find the properties best matching a {@code query}.
+	 *
+	 * @param query  - text to search for in the category and name
+	 * @param filter - properties to include
+	 * @param limit  - maximum amount of results
+	 *
+	 * @return Returns the matching properties ordered by relevance
+	 */
+	@NotNull
+	public List<PropertyInfo> search(@NotNull String query, @NotNull Predicate<PropertyInfo> filter, int limit) {
+		Objects.requireNonNull(filter);
+		String q = query.strip().toLowerCase(Locale.ROOT);
+		if (limit <= 0)
+			return List.of();
+
+		// Nothing to rank by. Return in display order
+		if (q.isEmpty()) {
+			List<PropertyInfo> list = new ArrayList<>(limit);
+			for (Entry entry : ordered.values()) {
+				if (filter.test(entry.info))
+					list.add(entry.info);
+				if (list.size() == limit)
+					break;
+			}
+			return list;
+		}
+
+		Set<Integer> candidates = candidates(q);
+		if (candidates.isEmpty())
+			return List.of();
+
+		// Keep the best results with the worst on top
+		Comparator<Match> order = Comparator.<Match>comparingInt(m -> m.rank)
+				.thenComparingInt(m -> m.entry.name.length()).thenComparing(m -> m.entry.sortKey);
+		PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, order.reversed());
+
+		for (Integer id : candidates) {
+			Entry entry = entries.get(id);
+			if (entry == null)
+				continue;
+
+			int rank = entry.rank(q);
+			if (rank < 0 || !filter.test(entry.info))
+				continue;
+
+			best.add(new Match(entry, rank));
+			if (best.size() > limit)
+				best.poll();
+		}
+
+		List<Match> matches = new ArrayList<>(best);
+		matches.sort(order);
+		return matches.stream().map(m -> m.entry.info).toList();
+	}
+
+	/**
+	 * Get the amount of indexed properties.
+	 *
+	 * @return Returns the size of this index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the ids of all properties that may contain the {@code query}.
+	 *
+	 * @param query - lowercase query
+	 *
+	 * @return Returns the intersection of the postings of every query n-gram
+	 */
+	private Set<Integer> candidates(String query) {
+		int length = Math.min(GRAM_LENGTH, query.length());
+		List<Set<Integer>> postings = new ArrayList<>();
+
+		for (int i = 0; i + length <= query.length(); i++) {
+			Set<Integer> ids = grams.get(query.substring(i, i + length));
+			if (ids == null)
+				return Set.of();
+			postings.add(ids);
+		}
+
+		// Start with the rarest n-gram
+		postings.sort(Comparator.comparingInt(Set::size));
+		if (postings.size() == 1)
+			return postings.get(0);
+
+		Set<Integer> result = new HashSet<>();
+		outer: for (Integer id : postings.get(0)) {
+			for (int i = 1; i < postings.size(); i++)
+				if (!postings.get(i).contains(id))
+					continue outer;
+			result.add(id);
+		}
+		return result;
+	}
+
+	/**
+	 * Get every distinct n-gram of up to {@value #GRAM_LENGTH} characters.
+	 *
+	 * @param text - text to split
+	 *
+	 * @return Returns the n-grams of the {@code text}
+	 */
+	private static Set<String> grams(String text) {
+		Set<String> set = new HashSet<>();
+		for (int n = 1; n <= GRAM_LENGTH; n++)
+			for (int i = 0; i + n <= text.length(); i++)
+				set.add(text.substring(i, i + n));
+		return set;
+	}
+
+	private static final class Entry {
+		final PropertyInfo info;
+		final String category;
+		final String name;
+		final String text;
+		final String sortKey;
+
+		Entry(PropertyInfo info) {
+			this.info = info;
+			this.category = info.category().toLowerCase(Locale.ROOT);
+			this.name = info.name().toLowerCase(Locale.ROOT);
+			this.text = category + ' ' + name;
+			this.sortKey = text + '\0' + info.id();
+		}
+
+		/**
+		 * Rank how well this property matches a query. Lower is better.
+		 *
+		 * @param query - lowercase query
+		 *
+		 * @return Returns the rank or {@code -1} if the query is not contained
+		 */
+		int rank(String query) {
+			if (name.equals(query))
+				return 0;
+			if (name.startsWith(query))
+				return 1;
+
+			int index = name.indexOf(query);
+			if (index > 0) {
+				// Prefer a word inside the name starting with the query
+				for (int i = index; i > 0; i = name.indexOf(query, i + 1))
+					if (!Character.isLetterOrDigit(name.charAt(i - 1)))
+						return 2;
+				return 3;
+			}
+			if (category.startsWith(query))
+				return 4;
+			return text.contains(query) ? 5 : -1;
+		}
+	}
+
+	private record Match(Entry entry, int rank) {}
+}
@@ -0,0 +1,70 @@
+package net.foxgenesis.watame.util;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+import org.jetbrains.annotations.NotNull;
+
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
+
+/**
+ * {@link PaginatedMenu} over a list of items where a page is only rendered
+ * once it is displayed. Rendered pages are kept for later use.
+ *
+ * @author Ashley
+ *
+ * @param <T> item type
+ */
+public class LazyPaginatedMenu<T> extends PaginatedMenu {
+	private final List<T> items;
+	private final int pageSize;
+	private final BiFunction<List<T>, Integer, MessageEditData> renderer;
+	private final MessageEditData[] rendered;
+
+	/**
+	 * Create a new menu.
+	 *
+	 * @param referenceId - id of the interaction this menu responds to
+	 * @param items       - items to display
+	 * @param pageSize    - maximum amount of items per page
+	 * @param renderer    - function used to render the items of a page given
+	 *                    the page index
+	 */
+	public LazyPaginatedMenu(long referenceId, @NotNull List<T> items, int pageSize,
+			@NotNull BiFunction<List<T>, Integer, MessageEditData> renderer) {
+		super(referenceId);
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("Page size must be greater than 0");
+		this.items = List.copyOf(items);
+		this.pageSize = pageSize;
+		this.renderer = Objects.requireNonNull(renderer);
+		this.rendered = new MessageEditData[getMaxPages()];
+	}
+
+	@Override
+	public int getMaxPages() {
+		// Always display at least one (empty) page
+		return Math.max(1, (items.size() + pageSize - 1) / pageSize);
+	}
+
+	@Override
+	public synchronized MessageEditData getDataForPage(int page) {
+		Objects.checkIndex(page, rendered.length);
+		if (rendered[page] == null) {
+			int start = page * pageSize;
+			rendered[page] = renderer.apply(items.subList(start, Math.min(items.size(), start + pageSize)),
+					page);
+		}
+		return rendered[page];
+	}
+
+	/**
+	 * Get the amount of items displayed on each page.
+	 *
+	 * @return Returns the page size
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+}
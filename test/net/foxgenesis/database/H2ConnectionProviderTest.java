@@ -0,0 +1,112 @@
+package net.foxgenesis.database;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.foxgenesis.database.providers.H2ConnectionProvider;
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.PropertyType;
+import net.foxgenesis.property.codec.BinaryPropertyCodec;
+import net.foxgenesis.property.codec.PropertyCodecs;
+import net.foxgenesis.property.database.LCKConfigurationDatabase;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the property database against an in-memory H2 database in MySQL mode.
+ *
+ * @author Ashley
+ */
+public class H2ConnectionProviderTest {
+	private static final long GUILD = 123456789012345678L;
+
+	/**
+	 * In memory databases outlive their pool, so every test uses its own
+	 */
+	private static final AtomicInteger databases = new AtomicInteger();
+
+	private H2ConnectionProvider provider;
+	private LCKConfigurationDatabase database;
+
+	@BeforeEach
+	void setup() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("database", "WatameBotTest" + databases.incrementAndGet());
+		provider = new H2ConnectionProvider(properties);
+
+		database = new LCKConfigurationDatabase(provider.getDatabase(), "Property", "PropertyInfo",
+				LCKConfigurationDatabase.CHANGE_LOG_TABLE);
+		assertEquals(1, new SchemaMigrator(provider).migrate(database), "setup.h2.sql was not applied");
+		((AbstractDatabase) database).setup(provider);
+	}
+
+	@AfterEach
+	void close() {
+		((AbstractDatabase) database).unload();
+		provider.close();
+	}
+
+	@Test
+	void migrationIsOnlyAppliedOnce() throws Exception {
+		assertEquals(0, new SchemaMigrator(provider).migrate(database));
+	}
+
+	@Test
+	void propertyRoundTrip() throws Exception {
+		PropertyInfo info = database.createPropertyInfo("test", "greeting", true, PropertyType.PLAIN);
+		assertTrue(database.isRegistered("test", "greeting"));
+		assertEquals(info, database.getPropertyInfo("test", "greeting"));
+
+		byte[] value = "hello".getBytes(StandardCharsets.UTF_8);
+		assertTrue(database.putInternal(GUILD, info, new ByteArrayInputStream(value)));
+
+		Optional<Blob> stored = database.getInternal(GUILD, info);
+		assertTrue(stored.isPresent());
+		assertArrayEquals(value, stored.get().getBytes(1, (int) stored.get().length()));
+		assertEquals(1, database.getAllInternal(GUILD).size());
+
+		assertTrue(database.removeInternal(GUILD, info));
+		assertFalse(database.getInternal(GUILD, info).isPresent());
+	}
+
+	@Test
+	void duplicatePropertyIsRejected() {
+		database.createPropertyInfo("test", "duplicate", true, PropertyType.NUMBER);
+		assertThrows(IllegalArgumentException.class,
+				() -> database.createPropertyInfo("test", "duplicate", true, PropertyType.NUMBER));
+	}
+
+	@Test
+	void objectPropertiesAreMigratedInPages() throws Exception {
+		PropertyInfo info = database.createPropertyInfo("test", "object", true, PropertyType.OBJECT);
+		for (int i = 0; i < 25; i++)
+			assertTrue(database.putInternal(GUILD + i, info, new ByteArrayInputStream(PropertyCodecs.encode(i))));
+
+		try {
+			PropertyCodecs.setBinaryEnabled(true);
+			assertEquals(25, database.migrateObjectProperties(10));
+			assertEquals(0, database.migrateObjectProperties(10));
+		} finally {
+			PropertyCodecs.setBinaryEnabled(false);
+		}
+
+		for (int i = 0; i < 25; i++) {
+			Blob stored = database.getInternal(GUILD + i, info).orElseThrow();
+			byte[] data = stored.getBytes(1, (int) stored.length());
+			assertTrue(new BinaryPropertyCodec().canDecode(data));
+			assertEquals(i, PropertyCodecs.decode(data));
+		}
+	}
+}
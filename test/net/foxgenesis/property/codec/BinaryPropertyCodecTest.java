@@ -0,0 +1,159 @@
+package net.foxgenesis.property.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round trips every supported value through the {@link BinaryPropertyCodec}
+ * and checks that damaged data is rejected.
+ *
+ * @author Ashley
+ */
+public class BinaryPropertyCodecTest {
+	/**
+	 * Amount of tags of the format
+	 */
+	private static final int TAGS = 22;
+
+	public record Point(int x, String label, long[] values) {
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Point p && x == p.x && Objects.equals(label, p.label)
+					&& Arrays.equals(values, p.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(x, label, Arrays.hashCode(values));
+		}
+	}
+
+	public record Unregistered(int x) {}
+
+	private BinaryPropertyCodec codec;
+
+	@BeforeEach
+	void setup() {
+		codec = new BinaryPropertyCodec();
+		codec.registerRecord("point", Point.class);
+	}
+
+	@Test
+	void roundTripsEveryTag() {
+		List<Object> values = Arrays.asList(null, false, true, (byte) -5, (short) -300, 'x', -42, Long.MIN_VALUE,
+				1.5f, Math.PI, "h\u00e9llo", new byte[] { 1, -2 }, new boolean[] { true, false },
+				new short[] { Short.MIN_VALUE, 7 }, "chars".toCharArray(), new int[] { Integer.MAX_VALUE, -1 },
+				new long[] { 123456789012345678L, 0 }, new float[] { Float.NaN, -0f },
+				new double[] { Double.NEGATIVE_INFINITY, 2.5 }, new String[] { "a", null, "" },
+				new Integer[] { 1, null, 3 }, new Point(3, "p", new long[] { 9 }));
+
+		Set<Byte> tags = new HashSet<>();
+		for (Object value : values) {
+			assertTrue(codec.canEncode(value), () -> "Can not encode " + value);
+			byte[] data = codec.encode(value);
+			assertTrue(codec.canDecode(data));
+			tags.add(data[3]);
+			assertTrue(Objects.deepEquals(value, codec.decode(data)), () -> "Round trip changed " + value);
+		}
+		assertEquals(TAGS, tags.size(), "Not every tag was written");
+	}
+
+	@Test
+	void roundTripsRecords() {
+		Point point = new Point(-1, null, new long[0]);
+		assertEquals(point, codec.decode(codec.encode(point)));
+
+		Object[] points = new Point[] { point, null, new Point(2, "two", new long[] { 2 }) };
+		assertTrue(Objects.deepEquals(points, codec.decode(codec.encode(points))));
+
+		Object[] mixed = new Object[] { point, "text", 5L, new int[] { 1 } };
+		assertTrue(Objects.deepEquals(mixed, codec.decode(codec.encode(mixed))));
+	}
+
+	@Test
+	void rejectsUnknownRecords() {
+		assertFalse(codec.canEncode(new Unregistered(1)));
+		assertFalse(codec.canEncode(new Object[] { new Unregistered(1) }));
+		assertThrows(PropertyException.class, () -> codec.encode(new Unregistered(1)));
+
+		assertThrows(IllegalArgumentException.class, () -> codec.registerRecord("point", Unregistered.class));
+		assertThrows(IllegalArgumentException.class, () -> codec.registerRecord("other", Point.class));
+		assertThrows(IllegalArgumentException.class, () -> codec.registerRecord("String", Unregistered.class));
+
+		// Data written by a codec that knows the record
+		byte[] data = codec.encode(new Point(1, "a", null));
+		assertThrows(PropertyException.class, () -> new BinaryPropertyCodec().decode(data));
+	}
+
+	@Test
+	void rejectsTruncatedData() {
+		byte[] data = codec.encode(new Object[] { "text", new Point(7, "seven", new long[] { 1, 2, 3 }),
+				new String[] { "a", null }, new double[] { 1, 2 } });
+
+		for (int length = 0; length < data.length; length++) {
+			byte[] truncated = Arrays.copyOf(data, length);
+			assertThrows(PropertyException.class, () -> codec.decode(truncated), "Accepted " + length + " bytes");
+		}
+	}
+
+	@Test
+	void rejectsCorruptData() {
+		byte[] data = codec.encode(42);
+
+		assertThrows(PropertyException.class, () -> codec.decode(with(data, 2, BinaryPropertyCodec.VERSION + 1)));
+		assertThrows(PropertyException.class, () -> codec.decode(with(data, 2, 0)));
+		assertThrows(PropertyException.class, () -> codec.decode(with(data, 3, 99)));
+		assertThrows(PropertyException.class, () -> codec.decode(Arrays.copyOf(data, data.length + 1)));
+
+		// Variable length number that never ends
+		byte[] endless = Arrays.copyOf(data, 14);
+		Arrays.fill(endless, 4, endless.length, (byte) 0xFF);
+		assertThrows(PropertyException.class, () -> codec.decode(endless));
+
+		// Length larger than the data
+		byte[] string = codec.encode("abc");
+		assertThrows(PropertyException.class, () -> codec.decode(with(string, 4, 100)));
+
+		// String element in an array of integers
+		byte[] array = codec.encode(new Integer[] { 1 });
+		byte[] empty = codec.encode("");
+		array[array.length - 2] = empty[3];
+		array[array.length - 1] = empty[4];
+		assertThrows(PropertyException.class, () -> codec.decode(array));
+	}
+
+	@Test
+	void corruptBytesOnlyThrowPropertyExceptions() {
+		byte[] data = codec.encode(new Object[] { "text", new Point(7, "seven", new long[] { 1, 2, 3 }),
+				new Integer[] { 1, 2 }, new char[] { 'a' } });
+
+		for (int i = 3; i < data.length; i++)
+			for (int bit = 0; bit < 8; bit++) {
+				byte[] corrupt = with(data, i, data[i] ^ (1 << bit));
+				try {
+					codec.decode(corrupt);
+				} catch (PropertyException e) {
+					// Expected for most corruptions
+				}
+			}
+	}
+
+	private static byte[] with(byte[] data, int index, int value) {
+		byte[] copy = data.clone();
+		copy[index] = (byte) value;
+		return copy;
+	}
+}
@@ -0,0 +1,123 @@
+package net.foxgenesis.property.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import net.foxgenesis.property.PropertyException;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks that data written by older versions stays readable and compares the
+ * {@link BinaryPropertyCodec} with the {@link SerializationPropertyCodec}.
+ *
+ * @author Ashley
+ */
+public class PropertyCodecsTest {
+	private static final Logger logger = LoggerFactory.getLogger(PropertyCodecsTest.class);
+
+	/**
+	 * Encodes and decodes of every value per measured round
+	 */
+	private static final int ITERATIONS = 5_000;
+
+	/**
+	 * Typical values of object properties
+	 */
+	private static final List<Object> VALUES = List.of(42, 123456789012345678L, "Welcome to the server!",
+			new long[] { 123456789012345678L, 223456789012345678L, 323456789012345678L, 423456789012345678L },
+			new String[] { "spam", "links", "caps", "mentions" }, new Integer[] { 1, 5, 10, 30, 60 });
+
+	@AfterEach
+	void close() {
+		PropertyCodecs.setBinaryEnabled(false);
+	}
+
+	@Test
+	void decodesLegacyData() {
+		for (Object value : VALUES) {
+			byte[] legacy = SerializationUtils.serialize((Serializable) value);
+			assertEquals((short) 0xACED, (short) ((legacy[0] & 0xFF) << 8 | legacy[1] & 0xFF));
+			assertTrue(Objects.deepEquals(value, PropertyCodecs.decode(legacy)));
+		}
+
+		assertThrows(PropertyException.class, () -> PropertyCodecs.decode(new byte[] { (byte) 0xAC, (byte) 0xED }));
+		assertThrows(PropertyException.class, () -> PropertyCodecs.decode(new byte[] { 1, 2, 3 }));
+	}
+
+	@Test
+	void writesLegacyDataUntilBinaryIsEnabled() {
+		byte[] data = PropertyCodecs.encode("text");
+		assertTrue(new SerializationPropertyCodec().canDecode(data));
+		assertNull(PropertyCodecs.migrate(data));
+
+		PropertyCodecs.setBinaryEnabled(true);
+		assertTrue(new BinaryPropertyCodec().canDecode(PropertyCodecs.encode("text")));
+
+		byte[] migrated = PropertyCodecs.migrate(data);
+		assertTrue(new BinaryPropertyCodec().canDecode(migrated));
+		assertEquals("text", PropertyCodecs.decode(migrated));
+		assertNull(PropertyCodecs.migrate(migrated));
+
+		// Values the binary format does not support stay serialized
+		byte[] list = PropertyCodecs.encode(new ArrayList<>(List.of(1)));
+		assertTrue(new SerializationPropertyCodec().canDecode(list));
+		assertNull(PropertyCodecs.migrate(list));
+	}
+
+	@Test
+	void comparesSizeAndThroughput() {
+		BinaryPropertyCodec binary = new BinaryPropertyCodec();
+		SerializationPropertyCodec serialization = new SerializationPropertyCodec();
+
+		for (Object value : VALUES) {
+			byte[] compact = binary.encode(value);
+			byte[] serialized = serialization.encode(value);
+			assertArrayEquals(compact, binary.encode(binary.decode(compact)));
+			assertTrue(compact.length < serialized.length,
+					() -> value.getClass().getSimpleName() + " is not smaller in the binary format");
+
+			logger.info("{}: {}B binary, {}B serialized", value.getClass().getSimpleName(), compact.length,
+					serialized.length);
+		}
+
+		// Warm up both codecs before measuring
+		measure(binary);
+		measure(serialization);
+
+		long binaryTime = measure(binary);
+		long serializationTime = measure(serialization);
+		logger.info("Round trip of all {} values: {}ns binary, {}ns serialized", VALUES.size(),
+				binaryTime / ITERATIONS, serializationTime / ITERATIONS);
+	}
+
+	/**
+	 * Encode and decode every value {@link #ITERATIONS} times.
+	 *
+	 * @param codec - codec to measure
+	 *
+	 * @return Returns the elapsed time in nanoseconds
+	 */
+	private static long measure(PropertyCodec codec) {
+		long start = System.nanoTime();
+		int sink = 0;
+		for (int i = 0; i < ITERATIONS; i++)
+			for (Object value : VALUES)
+				sink += Objects.hashCode(codec.decode(codec.encode(value)));
+		// Use the results so the work is not optimized away
+		assertTrue(sink != 1);
+		return System.nanoTime() - start;
+	}
+}
@@ -0,0 +1,209 @@
+package net.foxgenesis.property.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import net.foxgenesis.property.PropertyInfo;
+import net.foxgenesis.property.PropertyType;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a {@link LogPropertyStore} recovers every complete record after
+ * a crash left an incomplete one behind.
+ *
+ * @author Ashley
+ */
+public class LogPropertyStoreTest {
+	private static final long GUILD = 123456789012345678L;
+	private static final int SEGMENT_SIZE = 64 * 1024;
+	private static final int SMALL_SEGMENT_SIZE = 4096;
+
+	@TempDir
+	Path directory;
+
+	private ScheduledExecutorService executor;
+
+	@BeforeEach
+	void setup() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@AfterEach
+	void close() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void ignoresTruncatedTail() throws Exception {
+		Path segment = writeTwoValues();
+		int start = lastRecordStart(segment);
+
+		// Crash while the last record was only partly written to disk
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(start + 6);
+		}
+
+		assertRecovered();
+	}
+
+	@Test
+	void ignoresPartialRecord() throws Exception {
+		Path segment = writeTwoValues();
+		int start = lastRecordStart(segment);
+
+		// Crash after the header was written but before the whole content was
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(8), start + 12);
+		}
+
+		assertRecovered();
+	}
+
+	@Test
+	void compactionRollsIntoSegments() throws Exception {
+		int lookups = 100;
+		try (LogPropertyStore store = open(SMALL_SEGMENT_SIZE)) {
+			PropertyInfo info = store.createPropertyInfo("test", "value", true, PropertyType.PLAIN);
+			for (int round = 0; round < 3; round++)
+				for (int i = 0; i < lookups; i++)
+					store.putInternal(GUILD + i, info, stream(value(round, i)));
+
+			store.compact();
+
+			for (int i = 0; i < lookups; i++)
+				assertEquals(value(2, i), read(store.getInternal(GUILD + i, info)));
+		}
+
+		try (var files = Files.list(directory)) {
+			for (Path file : files.filter(path -> path.getFileName().toString().startsWith("segment-")).toList()) {
+				assertTrue(file.toString().endsWith(".log"), file + " was left behind");
+				assertTrue(Files.size(file) <= SMALL_SEGMENT_SIZE, file + " exceeds the segment size");
+			}
+		}
+
+		try (LogPropertyStore store = open(SMALL_SEGMENT_SIZE)) {
+			PropertyInfo info = store.getPropertyInfo("test", "value");
+			for (int i = 0; i < lookups; i++)
+				assertEquals(value(2, i), read(store.getInternal(GUILD + i, info)));
+		}
+	}
+
+	@Test
+	void discardsUncommittedCompaction() throws Exception {
+		writeTwoValues();
+
+		// Crash while a compaction was writing its parts
+		Path part = directory.resolve("segment-00000000000000000000.part");
+		Files.write(part, new byte[] { 1, 2, 3 });
+
+		try (LogPropertyStore store = open()) {
+			assertEquals("first", read(store.getInternal(GUILD, store.getPropertyInfo("test", "value"))));
+			assertEquals("second", read(store.getInternal(GUILD, store.getPropertyInfo("test", "other"))));
+		}
+		assertFalse(Files.exists(part));
+	}
+
+	@Test
+	void rejectsSegmentsLargerThanAMapping() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new LogPropertyStore(directory, 4096L * 1024 * 1024, false, executor, 60));
+	}
+
+	/**
+	 * Store a value of two properties. The second value is the last record.
+	 *
+	 * @return Returns the segment holding both values
+	 */
+	private Path writeTwoValues() throws IOException {
+		try (LogPropertyStore store = open()) {
+			PropertyInfo info = store.createPropertyInfo("test", "value", true, PropertyType.PLAIN);
+			PropertyInfo other = store.createPropertyInfo("test", "other", true, PropertyType.PLAIN);
+			store.putInternal(GUILD, info, stream("first"));
+			store.putInternal(GUILD, other, stream("second"));
+			return segment();
+		}
+	}
+
+	/**
+	 * Walk the records of a segment. Every record starts with its length and
+	 * checksum.
+	 *
+	 * @return Returns the offset of the last record
+	 */
+	private static int lastRecordStart(Path segment) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+		int last = -1;
+		for (int position = 0; buffer.getInt(position) > 0; position += 8 + buffer.getInt(position))
+			last = position;
+
+		assertTrue(last > 0, "The second value was not written");
+		return last;
+	}
+
+	private void assertRecovered() throws IOException {
+		try (LogPropertyStore store = open()) {
+			PropertyInfo info = store.getPropertyInfo("test", "value");
+			assertEquals("first", read(store.getInternal(GUILD, info)));
+
+			PropertyInfo other = store.getPropertyInfo("test", "other");
+			assertFalse(store.getInternal(GUILD, other).isPresent());
+
+			// New writes go to a fresh segment after the damaged one
+			store.putInternal(GUILD, other, stream("third"));
+		}
+
+		try (LogPropertyStore store = open()) {
+			assertEquals("third", read(store.getInternal(GUILD, store.getPropertyInfo("test", "other"))));
+		}
+	}
+
+	private LogPropertyStore open() throws IOException {
+		return open(SEGMENT_SIZE);
+	}
+
+	private LogPropertyStore open(long segmentSize) throws IOException {
+		return new LogPropertyStore(directory, segmentSize, false, executor, 60);
+	}
+
+	private static String value(int round, int lookup) {
+		return "round " + round + " of lookup " + lookup + " " + "x".repeat(80);
+	}
+
+	private Path segment() throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+		}
+	}
+
+	private static ByteArrayInputStream stream(String value) {
+		return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Optional<Blob> blob) {
+		assertTrue(blob.isPresent());
+		try {
+			return new String(blob.get().getBytes(1, (int) blob.get().length()), StandardCharsets.UTF_8);
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+}